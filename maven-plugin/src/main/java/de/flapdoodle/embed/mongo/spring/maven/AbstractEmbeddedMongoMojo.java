@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.maven;
+
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.mongo.distribution.Versions;
+import de.flapdoodle.embed.mongo.packageresolver.FeatureSet;
+import de.flapdoodle.embed.mongo.packageresolver.HasMongotoolsPackage;
+import de.flapdoodle.embed.mongo.packageresolver.NumericVersion;
+import de.flapdoodle.embed.mongo.spring.autoconfigure.ExtractedFileSetIndex;
+import de.flapdoodle.embed.mongo.transitions.ImmutableMongoImport;
+import de.flapdoodle.embed.mongo.transitions.ImmutableMongod;
+import de.flapdoodle.embed.mongo.transitions.MongoImport;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.types.DistributionBaseUrl;
+import de.flapdoodle.embed.process.distribution.Version;
+import de.flapdoodle.reverse.transitions.Start;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.util.Optional;
+
+/**
+ * Common parameters of all goals, named like the properties of the spring integration, so that one
+ * {@code de.flapdoodle.mongodb.embedded.version} property configures the build and the tests.
+ */
+abstract class AbstractEmbeddedMongoMojo extends AbstractMojo {
+
+	@Parameter(property = "de.flapdoodle.mongodb.embedded.version", required = true)
+	private String version;
+
+	@Parameter(property = "de.flapdoodle.mongodb.embedded.tools-version")
+	private String toolsVersion;
+
+	/**
+	 * base url of the distributions, a local mirror (file: or http:) for offline builds
+	 */
+	@Parameter(property = "de.flapdoodle.embed.mongo.baseUrl")
+	private String distributionBaseUrl;
+
+	@Parameter(property = "embedded.mongodb.skip", defaultValue = "false")
+	private boolean skip;
+
+	@Override
+	public final void execute() throws MojoExecutionException {
+		if (skip) {
+			getLog().info("skipped");
+			return;
+		}
+		execute(version());
+	}
+
+	protected abstract void execute(IFeatureAwareVersion version) throws MojoExecutionException;
+
+	protected ImmutableMongod mongod() {
+		ImmutableMongod mongod = Mongod.instance();
+		if (distributionBaseUrl != null) {
+			mongod = mongod.withDistributionBaseUrl(Start.to(DistributionBaseUrl.class)
+				.initializedWith(DistributionBaseUrl.of(distributionBaseUrl)));
+		}
+		return mongod.withExtractPackage(new ExtractedFileSetIndex().wrap(mongod.extractPackage()));
+	}
+
+	protected ImmutableMongoImport mongoImport() {
+		ImmutableMongoImport mongoImport = MongoImport.instance();
+		if (distributionBaseUrl != null) {
+			mongoImport = mongoImport.withDistributionBaseUrl(Start.to(DistributionBaseUrl.class)
+				.initializedWith(DistributionBaseUrl.of(distributionBaseUrl)));
+		}
+		return mongoImport.withExtractPackage(new ExtractedFileSetIndex().wrap(mongoImport.extractPackage()));
+	}
+
+	IFeatureAwareVersion version() {
+		IFeatureAwareVersion featureAwareVersion = Versions.withFeatures(Version.of(version));
+		return toolsVersion != null
+			? new ToolsVersion(featureAwareVersion, toolsVersion)
+			: featureAwareVersion;
+	}
+
+	private static class ToolsVersion implements IFeatureAwareVersion, HasMongotoolsPackage {
+		private final IFeatureAwareVersion delegate;
+		private final String toolsVersion;
+
+		ToolsVersion(IFeatureAwareVersion delegate, String toolsVersion) {
+			this.delegate = delegate;
+			this.toolsVersion = toolsVersion;
+		}
+
+		@Override
+		public FeatureSet features() {
+			return delegate.features();
+		}
+
+		@Override
+		public NumericVersion numericVersion() {
+			return delegate.numericVersion();
+		}
+
+		@Override
+		public String asInDownloadPath() {
+			return delegate.asInDownloadPath();
+		}
+
+		@Override
+		public Optional<? extends Version> mongotoolsVersion() {
+			return Optional.of(Version.of(toolsVersion));
+		}
+	}
+}
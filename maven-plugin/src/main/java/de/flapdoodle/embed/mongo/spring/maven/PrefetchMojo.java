@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.maven;
+
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.process.archives.ExtractedFileSet;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.Transitions;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Downloads and extracts mongod (and the mongo tools) into the artifact store, so that test jvms start
+ * from the extracted files. Set {@code distributionBaseUrl} to a local mirror for offline builds.
+ */
+@Mojo(name = "prefetch", defaultPhase = LifecyclePhase.INITIALIZE, threadSafe = true)
+public class PrefetchMojo extends AbstractEmbeddedMongoMojo {
+
+	@Parameter(property = "embedded.mongodb.prefetch.tools", defaultValue = "true")
+	private boolean tools;
+
+	@Override
+	protected void execute(IFeatureAwareVersion version) throws MojoExecutionException {
+		prefetch("mongod", mongod().transitions(version));
+		if (tools) {
+			prefetch("mongo tools", mongoImport().transitions(version));
+		}
+	}
+
+	private void prefetch(String label, Transitions transitions) throws MojoExecutionException {
+		try (TransitionWalker.ReachedState<ExtractedFileSet> extracted = transitions.walker()
+			.initState(StateID.of(ExtractedFileSet.class))) {
+			getLog().info(label + " extracted to " + extracted.current().baseDir());
+		}
+		catch (RuntimeException ex) {
+			throw new MojoExecutionException("could not prefetch " + label, ex);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.maven;
+
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.mongo.spring.autoconfigure.ReadinessProbe;
+import de.flapdoodle.embed.mongo.transitions.ImmutableMongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.transitions.Start;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+/**
+ * Starts one mongod for the integration tests of this build and publishes host and port as project properties,
+ * so the test jvms can attach to it instead of starting their own. Stopped by {@link StopMojo}.
+ */
+@Mojo(name = "start", defaultPhase = LifecyclePhase.PRE_INTEGRATION_TEST, threadSafe = true)
+public class StartMojo extends AbstractEmbeddedMongoMojo {
+
+	static final String RUNNING = StartMojo.class.getName() + ".running";
+
+	@Parameter(defaultValue = "${project}", readonly = true, required = true)
+	private MavenProject project;
+
+	/**
+	 * port of the server, a free port if 0
+	 */
+	@Parameter(property = "embedded.mongodb.port", defaultValue = "0")
+	private int port;
+
+	@Parameter(defaultValue = "localhost")
+	private String host;
+
+	@Parameter(defaultValue = "embedded.mongodb.port")
+	private String portProperty;
+
+	@Parameter(defaultValue = "embedded.mongodb.host")
+	private String hostProperty;
+
+	@Parameter(property = "embedded.mongodb.readinessProbe", defaultValue = "false")
+	private boolean readinessProbe;
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void execute(IFeatureAwareVersion version) throws MojoExecutionException {
+		if (getPluginContext().get(RUNNING) != null) {
+			throw new MojoExecutionException("mongod already started, missing stop goal?");
+		}
+
+		InetAddress address;
+		Net net;
+		try {
+			address = InetAddress.getByName(host);
+			int serverPort = port != 0
+				? port
+				: de.flapdoodle.net.Net.freeServerPort(address);
+			net = Net.of(address.getHostAddress(), serverPort, de.flapdoodle.net.Net.localhostIsIPv6());
+		}
+		catch (IOException ex) {
+			throw new MojoExecutionException("could not resolve " + host, ex);
+		}
+
+		ImmutableMongod mongod = mongod()
+			.withNet(Start.to(Net.class).initializedWith(net));
+		if (readinessProbe) {
+			mongod = mongod.withMongodStarter(ReadinessProbe.mongodStarter());
+		}
+
+		TransitionWalker.ReachedState<RunningMongodProcess> running;
+		try {
+			running = mongod.start(version);
+		}
+		catch (RuntimeException ex) {
+			throw new MojoExecutionException("could not start mongod " + version.asInDownloadPath(), ex);
+		}
+
+		Running holder = new Running(running);
+		Runtime.getRuntime().addShutdownHook(holder.shutdownHook);
+		getPluginContext().put(RUNNING, holder);
+
+		project.getProperties().setProperty(hostProperty, address.getHostAddress());
+		project.getProperties().setProperty(portProperty, String.valueOf(net.getPort()));
+		getLog().info("mongod " + version.asInDownloadPath() + " started at " + address.getHostAddress() + ":" + net.getPort());
+	}
+
+	static final class Running {
+		private final TransitionWalker.ReachedState<RunningMongodProcess> running;
+		private final Thread shutdownHook;
+
+		Running(TransitionWalker.ReachedState<RunningMongodProcess> running) {
+			this.running = running;
+			this.shutdownHook = new Thread(running::close, "embedded-mongo-stop");
+		}
+
+		void stop() {
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			}
+			catch (IllegalStateException ex) {
+				// jvm is shutting down, hook stops the server
+				return;
+			}
+			running.close();
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.maven;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Stops the mongod started by {@link StartMojo}.
+ */
+@Mojo(name = "stop", defaultPhase = LifecyclePhase.POST_INTEGRATION_TEST, threadSafe = true)
+public class StopMojo extends AbstractMojo {
+
+	@Parameter(property = "embedded.mongodb.skip", defaultValue = "false")
+	private boolean skip;
+
+	@Override
+	public void execute() throws MojoExecutionException {
+		if (skip) {
+			getLog().info("skipped");
+			return;
+		}
+		StartMojo.Running running = (StartMojo.Running) getPluginContext().remove(StartMojo.RUNNING);
+		if (running == null) {
+			getLog().warn("no mongod started in this build");
+			return;
+		}
+		try {
+			running.stop();
+		}
+		catch (RuntimeException ex) {
+			throw new MojoExecutionException("could not stop mongod", ex);
+		}
+		getLog().info("mongod stopped");
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.maven;
+
+import java.lang.reflect.Field;
+
+/**
+ * sets mojo parameters, no injection without a maven session
+ */
+abstract class MojoParameters {
+
+	private MojoParameters() {
+		// no instance
+	}
+
+	static void set(Object target, String name, Object value) throws ReflectiveOperationException {
+		for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+			try {
+				Field field = type.getDeclaredField(name);
+				field.setAccessible(true);
+				field.set(target, value);
+				return;
+			}
+			catch (NoSuchFieldException ignore) {
+				// declared by a super class
+			}
+		}
+		throw new NoSuchFieldException(name);
+	}
+}
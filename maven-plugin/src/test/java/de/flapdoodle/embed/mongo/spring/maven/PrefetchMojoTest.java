@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.maven;
+
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.ExtractFileSet;
+import de.flapdoodle.embed.process.config.store.Package;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.Transitions;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static de.flapdoodle.embed.mongo.spring.maven.MojoParameters.set;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrefetchMojoTest {
+
+	@Test
+	void prefetchFromFileMirror(@TempDir Path mirror, @TempDir Path artifacts) throws Exception {
+		String baseUrl = mirror.toUri().toString().replaceAll("/$", "");
+		PrefetchMojo mojo = new PrefetchMojo();
+		set(mojo, "version", Version.Main.V7_0.asInDownloadPath());
+		set(mojo, "toolsVersion", "100.8.0");
+		set(mojo, "distributionBaseUrl", baseUrl);
+		set(mojo, "tools", true);
+
+		String artifactStore = System.getProperty(ExtractFileSet.ARTIFACT_STORE_PROPERTY_NAME);
+		// a fake distribution must not end up in the artifact store of the user
+		System.setProperty(ExtractFileSet.ARTIFACT_STORE_PROPERTY_NAME, artifacts.toString());
+		try {
+			mirrorArchive(mojo.mongod().transitions(mojo.version()), "mongod");
+			mirrorArchive(mojo.mongoImport().transitions(mojo.version()), "mongoimport");
+
+			mojo.execute();
+		}
+		finally {
+			if (artifactStore != null) {
+				System.setProperty(ExtractFileSet.ARTIFACT_STORE_PROPERTY_NAME, artifactStore);
+			} else {
+				System.clearProperty(ExtractFileSet.ARTIFACT_STORE_PROPERTY_NAME);
+			}
+		}
+
+		try (Stream<Path> files = Files.walk(artifacts)) {
+			List<String> names = files.filter(Files::isRegularFile)
+				.map(it -> it.getFileName().toString())
+				.collect(Collectors.toList());
+			assertThat(names).contains("mongod", "mongoimport");
+		}
+	}
+
+	/**
+	 * writes an archive with only the executable to the path the package is downloaded from
+	 */
+	private static void mirrorArchive(Transitions transitions, String executable) throws IOException {
+		Path archive;
+		try (TransitionWalker.ReachedState<Package> distributionPackage = transitions.walker().initState(StateID.of(Package.class))) {
+			archive = Paths.get(URI.create(distributionPackage.current().url()));
+		}
+		Files.createDirectories(archive.getParent());
+
+		byte[] content = "#!/bin/sh\n".getBytes(StandardCharsets.UTF_8);
+		try (OutputStream out = Files.newOutputStream(archive);
+			 TarArchiveOutputStream tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(out))) {
+			TarArchiveEntry entry = new TarArchiveEntry("mirrored/bin/" + executable);
+			entry.setSize(content.length);
+			entry.setMode(0755);
+			tar.putArchiveEntry(entry);
+			tar.write(content);
+			tar.closeArchiveEntry();
+		}
+	}
+}
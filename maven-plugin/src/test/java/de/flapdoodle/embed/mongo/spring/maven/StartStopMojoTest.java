@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.maven;
+
+import de.flapdoodle.embed.mongo.distribution.Version;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+
+import static de.flapdoodle.embed.mongo.spring.maven.MojoParameters.set;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StartStopMojoTest {
+
+	@Test
+	void startedServerAcceptsConnectionsUntilStopped() throws Exception {
+		Map<Object, Object> pluginContext = new HashMap<>();
+		MavenProject project = new MavenProject();
+
+		start(project, pluginContext).execute();
+
+		String host = project.getProperties().getProperty("embedded.mongodb.host");
+		int port = Integer.parseInt(project.getProperties().getProperty("embedded.mongodb.port"));
+		try (Socket socket = new Socket(host, port)) {
+			assertThat(socket.isConnected()).isTrue();
+		}
+
+		stop(pluginContext).execute();
+
+		assertThat(pluginContext).isEmpty();
+		assertThatThrownBy(() -> new Socket(host, port).close()).isInstanceOf(IOException.class);
+	}
+
+	@Test
+	void startFailsIfAlreadyStarted() throws Exception {
+		Map<Object, Object> pluginContext = new HashMap<>();
+		pluginContext.put(StartMojo.RUNNING, new Object());
+
+		assertThatThrownBy(() -> start(new MavenProject(), pluginContext).execute())
+			.isInstanceOf(MojoExecutionException.class)
+			.hasMessageContaining("already started");
+	}
+
+	@Test
+	void stopWithoutStartIsIgnored() throws Exception {
+		Map<Object, Object> pluginContext = new HashMap<>();
+
+		stop(pluginContext).execute();
+
+		assertThat(pluginContext).isEmpty();
+	}
+
+	private static StartMojo start(MavenProject project, Map<Object, Object> pluginContext) throws ReflectiveOperationException {
+		StartMojo mojo = new StartMojo();
+		// defaults of the parameters, no injection without a maven session
+		set(mojo, "version", Version.Main.V7_0.asInDownloadPath());
+		set(mojo, "project", project);
+		set(mojo, "host", "localhost");
+		set(mojo, "portProperty", "embedded.mongodb.port");
+		set(mojo, "hostProperty", "embedded.mongodb.host");
+		set(mojo, "readinessProbe", false);
+		return context(mojo, pluginContext);
+	}
+
+	private static StopMojo stop(Map<Object, Object> pluginContext) {
+		return context(new StopMojo(), pluginContext);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static <T extends AbstractMojo> T context(T mojo, Map<Object, Object> pluginContext) {
+		mojo.setPluginContext((Map) pluginContext);
+		return mojo;
+	}
+}
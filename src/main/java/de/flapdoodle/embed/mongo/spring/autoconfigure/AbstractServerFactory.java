@@ -20,20 +20,30 @@
  */
 package de.flapdoodle.embed.mongo.spring.autoconfigure;
 
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCredential;
+import com.mongodb.client.model.IndexModel;
 import de.flapdoodle.checks.Preconditions;
 import de.flapdoodle.embed.mongo.client.AuthenticationSetup;
 import de.flapdoodle.embed.mongo.client.ClientActions;
 import de.flapdoodle.embed.mongo.client.ExecuteMongoClientAction;
 import de.flapdoodle.embed.mongo.client.UsernamePassword;
+import de.flapdoodle.embed.mongo.commands.MongoDumpArguments;
 import de.flapdoodle.embed.mongo.commands.MongoImportArguments;
+import de.flapdoodle.embed.mongo.commands.MongoRestoreArguments;
 import de.flapdoodle.embed.mongo.commands.MongodArguments;
 import de.flapdoodle.embed.mongo.commands.ServerAddress;
 import de.flapdoodle.embed.mongo.config.Storage;
 import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.mongo.transitions.ExecutedMongoDumpProcess;
 import de.flapdoodle.embed.mongo.transitions.ExecutedMongoImportProcess;
+import de.flapdoodle.embed.mongo.transitions.ExecutedMongoRestoreProcess;
+import de.flapdoodle.embed.mongo.transitions.MongoDump;
 import de.flapdoodle.embed.mongo.transitions.MongoImport;
+import de.flapdoodle.embed.mongo.transitions.MongoRestore;
 import de.flapdoodle.embed.mongo.transitions.Mongod;
 import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.os.Platform;
 import de.flapdoodle.reverse.Listener;
 import de.flapdoodle.reverse.StateID;
 import de.flapdoodle.reverse.TransitionWalker;
@@ -42,16 +52,36 @@ import de.flapdoodle.reverse.transitions.Start;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public abstract class AbstractServerFactory<C extends Closeable> {
 
 	private final MongoProperties properties;
 	private final ExecuteMongoClientAction<C> adapter;
+	private final SetupSession<C> session;
 
+	/**
+	 * setup steps do not share clients, {@link #client(ServerAddress)} and {@link #serverClient(Closeable)} must be
+	 * implemented for collection fixtures, warm restarts and the server client of the wrapper
+	 */
 	protected AbstractServerFactory(MongoProperties properties, ExecuteMongoClientAction<C> adapter) {
+		this(properties, adapter, SetupSession.unshared());
+	}
+
+	/**
+	 * @param adapter should get its clients from {@code session}, so that all setup steps share them
+	 */
+	AbstractServerFactory(MongoProperties properties, ExecuteMongoClientAction<C> adapter, SetupSession<C> session) {
 		this.properties = properties;
 		this.adapter = adapter;
+		this.session = session;
 	}
 
 	public final MongodWrapper createWrapper(
@@ -60,14 +90,203 @@ public abstract class AbstractServerFactory<C extends Closeable> {
 		MongodArguments mongodArguments,
 		List<MongoImportArguments> mongoImportArguments
 	) {
+		return createWrapper(version, mongod, mongodArguments, Collections.emptyList(), mongoImportArguments, Collections.emptyList(),
+			Optional.empty());
+	}
+
+	public final MongodWrapper createWrapper(
+		IFeatureAwareVersion version,
+		Mongod mongod,
+		MongodArguments mongodArguments,
+		List<MongoRestoreArguments> mongoRestoreArguments,
+		List<MongoImportArguments> mongoImportArguments,
+		List<CollectionFixture> collectionFixtures,
+		Optional<ImportCache> importCache
+	) {
+		return createWrapper(version, mongod, mongodArguments, mongoRestoreArguments, mongoImportArguments, collectionFixtures, importCache,
+			false);
+	}
+
+	/**
+	 * @param warmRestart skip setup steps if the state is already there, for a persistent database directory
+	 */
+	public final MongodWrapper createWrapper(
+		IFeatureAwareVersion version,
+		Mongod mongod,
+		MongodArguments mongodArguments,
+		List<MongoRestoreArguments> mongoRestoreArguments,
+		List<MongoImportArguments> mongoImportArguments,
+		List<CollectionFixture> collectionFixtures,
+		Optional<ImportCache> importCache,
+		boolean warmRestart
+	) {
+		return createWrapper(version, mongod, mongodArguments, mongoRestoreArguments, mongoImportArguments, collectionFixtures, importCache,
+			warmRestart, new FixtureKeys(version, mongoRestoreArguments, mongoImportArguments, collectionFixtures));
+	}
+
+	final MongodWrapper createWrapper(
+		IFeatureAwareVersion version,
+		Mongod mongod,
+		MongodArguments mongodArguments,
+		List<MongoRestoreArguments> mongoRestoreArguments,
+		List<MongoImportArguments> mongoImportArguments,
+		List<CollectionFixture> collectionFixtures,
+		Optional<ImportCache> importCache,
+		boolean warmRestart,
+		FixtureKeys fixtureKeys
+	) {
+		if (importCache.isPresent()) {
+			fixtureKeys.importKey();
+		}
+		if (warmRestart) {
+			fixtureKeys.dataKey();
+		}
+
 		return new MongodWrapper(
 			mongod.transitions(version),
-			addAuthUserToDB(properties),
-			initReplicaSet(version, properties, mongodArguments),
-			importJsonWithMongoImport(version, mongoImportArguments)
+			this::serverClient,
+			// each walk (standbys run concurrently) gets its own tools and setup steps
+			() -> Collections.singletonList(setup(version, mongodArguments, mongoRestoreArguments, mongoImportArguments, collectionFixtures,
+				importCache, warmRestart, fixtureKeys))
 		);
 	}
 
+	private Listener setup(
+		IFeatureAwareVersion version,
+		MongodArguments mongodArguments,
+		List<MongoRestoreArguments> mongoRestoreArguments,
+		List<MongoImportArguments> mongoImportArguments,
+		List<CollectionFixture> collectionFixtures,
+		Optional<ImportCache> importCache,
+		boolean warmRestart,
+		FixtureKeys fixtureKeys
+	) {
+		PreparedTool mongoRestore = new PreparedTool("mongorestore", MongoRestore.instance().transitions(version));
+		PreparedTool mongoImport = new PreparedTool("mongoimport", MongoImport.instance().transitions(version));
+		PreparedTool mongoDump = new PreparedTool("mongodump", MongoDump.instance().transitions(version));
+
+		return Listeners.all(
+			prepareTools(mongoRestoreArguments, mongoImportArguments, importCache, fixtureKeys, mongoRestore, mongoImport, mongoDump),
+			session.around(
+				warmRestart
+					? WarmRestart.authentication(this::setupClient, addAuthUserToDB(properties))
+					: addAuthUserToDB(properties),
+				warmRestart
+					? WarmRestart.replicaSet(this::setupClient, initReplicaSet(version, properties, mongodArguments))
+					: initReplicaSet(version, properties, mongodArguments),
+				WarmRestart.data(this::setupClient, properties.getMongoClientDatabase(),
+					warmRestart
+						? Optional.of(() -> fixtureKeys.dataKey().join())
+						: Optional.empty(),
+					restoreDumpWithMongoRestore(version, mongoRestoreArguments, mongoRestore),
+					importJsonWithMongoImport(version, mongoImportArguments, importCache, fixtureKeys, mongoRestore, mongoImport, mongoDump),
+					insertCollectionFixtures(collectionFixtures)))
+		);
+	}
+
+	/**
+	 * extract the tools needed after start while mongod is booting, the import cache key is awaited in the background
+	 */
+	private static Listener prepareTools(
+		List<MongoRestoreArguments> mongoRestoreArgumentsList,
+		List<MongoImportArguments> mongoImportArgumentsList,
+		Optional<ImportCache> importCache,
+		FixtureKeys fixtureKeys,
+		PreparedTool mongoRestore,
+		PreparedTool mongoImport,
+		PreparedTool mongoDump
+	) {
+		if (mongoRestoreArgumentsList.isEmpty() && mongoImportArgumentsList.isEmpty()) {
+			return Listener.builder().build();
+		}
+
+		return Listener.typedBuilder()
+			.onStateReached(StateID.of(Platform.class), platform -> {
+				if (!mongoRestoreArgumentsList.isEmpty()) {
+					mongoRestore.prepare();
+				}
+				if (!mongoImportArgumentsList.isEmpty()) {
+					if (importCache.isPresent()) {
+						fixtureKeys.importKey().thenAccept(key -> {
+							Optional<Path> cacheEntry = key.map(importCache.get()::entry);
+							if (cacheEntry.isPresent() && ImportCache.isComplete(cacheEntry.get())) {
+								mongoRestore.prepare();
+							} else {
+								mongoImport.prepare();
+								if (cacheEntry.isPresent()) {
+									mongoDump.prepare();
+								}
+							}
+						});
+					} else {
+						mongoImport.prepare();
+					}
+				}
+			})
+			.onStateTearDown(StateID.of(Platform.class), platform -> {
+				mongoRestore.close();
+				mongoImport.close();
+				mongoDump.close();
+			})
+			.build();
+	}
+
+	/**
+	 * @return a new client for the server with the configured credentials
+	 */
+	protected C client(ServerAddress serverAddress) {
+		throw new UnsupportedOperationException(getClass().getName() + " does not create clients");
+	}
+
+	/**
+	 * @return server client which closes {@code client} on close
+	 */
+	protected ServerClient serverClient(C client) {
+		throw new UnsupportedOperationException(getClass().getName() + " does not create server clients");
+	}
+
+	protected final ServerClient serverClient(ServerAddress serverAddress) {
+		return serverClient(client(serverAddress));
+	}
+
+	/**
+	 * @return server client of the setup session, shares the client with setup steps using the same credentials
+	 */
+	private ServerClient setupClient(ServerAddress serverAddress) {
+		return serverClient(session.client(serverAddress, credential(), () -> client(serverAddress)));
+	}
+
+	/**
+	 * clients of the server wrapper (setup, metrics, explain, watchdog) do not report to the command listeners of the
+	 * application, so their commands are not counted as commands of the application
+	 */
+	static MongoClientSettings withoutCommandListeners(MongoClientSettings clientSettings) {
+		return MongoClientSettings.builder(clientSettings)
+			.commandListenerList(Collections.emptyList())
+			.build();
+	}
+
+	protected final MongoClientSettings clientSettings(MongoClientSettings clientSettings, ServerAddress serverAddress) {
+		MongoClientSettings.Builder builder = MongoClientSettings.builder(clientSettings)
+			.applyToClusterSettings(cluster -> cluster
+				.hosts(Collections.singletonList(new com.mongodb.ServerAddress(serverAddress.getHost(), serverAddress.getPort()))));
+
+		credential().ifPresent(builder::credential);
+		return builder.build();
+	}
+
+	private Optional<MongoCredential> credential() {
+		String username = properties.getUsername();
+		char[] password = properties.getPassword();
+		if (username != null && password != null) {
+			String authenticationDatabase = properties.getAuthenticationDatabase() != null
+				? properties.getAuthenticationDatabase()
+				: properties.getMongoClientDatabase();
+			return Optional.of(MongoCredential.createCredential(username, authenticationDatabase, password));
+		}
+		return Optional.empty();
+	}
+
 	private Listener addAuthUserToDB(MongoProperties properties) {
 		String username = properties.getUsername();
 		char[] password = properties.getPassword();
@@ -96,27 +315,105 @@ public abstract class AbstractServerFactory<C extends Closeable> {
 		}
 	}
 
-	private Listener importJsonWithMongoImport(IFeatureAwareVersion version, List<MongoImportArguments> mongoImportArgumentsList) {
+	private Listener restoreDumpWithMongoRestore(IFeatureAwareVersion version, List<MongoRestoreArguments> mongoRestoreArgumentsList,
+		PreparedTool mongoRestore) {
+		if (!mongoRestoreArgumentsList.isEmpty()) {
+
+			Listener.TypedListener.Builder builder = Listener.typedBuilder();
+			builder.onStateReached(StateID.of(RunningMongodProcess.class), runningMongodProcess -> {
+				for (MongoRestoreArguments mongoRestoreArguments : mongoRestoreArgumentsList) {
+					restore(version, runningMongodProcess.getServerAddress(), mongoRestoreArguments, mongoRestore);
+				}
+			});
+
+			return builder.build();
+		}
+		return Listener.builder().build();
+	}
+
+	private Listener importJsonWithMongoImport(IFeatureAwareVersion version, List<MongoImportArguments> mongoImportArgumentsList,
+		Optional<ImportCache> importCache, FixtureKeys fixtureKeys, PreparedTool mongoRestore, PreparedTool mongoImport,
+		PreparedTool mongoDump) {
 		if (!mongoImportArgumentsList.isEmpty()) {
 
 			Listener.TypedListener.Builder builder = Listener.typedBuilder();
 			builder.onStateReached(StateID.of(RunningMongodProcess.class), runningMongodProcess -> {
+				ServerAddress serverAddress = runningMongodProcess.getServerAddress();
+				Optional<Path> cacheEntry = importCache.isPresent()
+					? fixtureKeys.importKey().join().map(importCache.get()::entry)
+					: Optional.empty();
 
+				if (cacheEntry.isPresent() && ImportCache.isComplete(cacheEntry.get())) {
+					importedCollections(mongoImportArgumentsList).forEach((namespace, imports) ->
+						restore(version, serverAddress, MongoRestoreArguments.builder()
+							.archive(ImportCache.archive(cacheEntry.get(), namespace.get(0), namespace.get(1)).toString())
+							.gzip(true)
+							.dropCollection(imports.stream().anyMatch(MongoImportArguments::dropCollection))
+							.build(), mongoRestore));
+				} else {
+					for (MongoImportArguments mongoImportArguments : mongoImportArgumentsList) {
+						Transitions mongoImportTransitions = mongoImport.apply(MongoImport.instance()
+							.transitions(version)
+							.replace(Start.to(MongoImportArguments.class).initializedWith(mongoImportArguments))
+							.addAll(Start.to(ServerAddress.class).initializedWith(serverAddress)));
 
-				for (MongoImportArguments mongoImportArguments : mongoImportArgumentsList) {
-					Transitions mongoImportTransitions = MongoImport.instance()
-						.transitions(version)
-						.replace(Start.to(MongoImportArguments.class).initializedWith(mongoImportArguments))
-						.addAll(Start.to(ServerAddress.class).initializedWith(runningMongodProcess.getServerAddress()));
+						try (TransitionWalker.ReachedState<ExecutedMongoImportProcess> executed = mongoImportTransitions.walker()
+							.initState(StateID.of(ExecutedMongoImportProcess.class))) {
+
+							if (executed.current().returnCode()!=0) {
+								throw new IllegalStateException("mongo import failed: "+ mongoImportArguments);
+							}
+							// import done
+						}
+					}
+
+					if (cacheEntry.isPresent()) {
+						ImportCache cache = importCache.get();
+						Path entryInProgress = cache.prepare(cacheEntry.get());
+						try {
+							// only the imported collections, a database may contain data of other setup steps
+							for (List<String> namespace : importedCollections(mongoImportArgumentsList).keySet()) {
+								dump(version, serverAddress, MongoDumpArguments.builder()
+									.databaseName(namespace.get(0))
+									.collectionName(namespace.get(1))
+									.archive(ImportCache.archive(entryInProgress, namespace.get(0), namespace.get(1)).toString())
+									.gzip(true)
+									.build(), mongoDump);
+							}
+							cache.commit(entryInProgress, cacheEntry.get());
+						}
+						catch (RuntimeException rx) {
+							ImportCache.delete(entryInProgress);
+							throw rx;
+						}
+					}
+				}
+			});
+
+			return builder.build();
+		}
+		return Listener.builder().build();
+	}
 
-					try (TransitionWalker.ReachedState<ExecutedMongoImportProcess> executed = mongoImportTransitions.walker()
-						.initState(StateID.of(ExecutedMongoImportProcess.class))) {
+	private Listener insertCollectionFixtures(List<CollectionFixture> collectionFixtures) {
+		if (!collectionFixtures.isEmpty()) {
 
-						if (executed.current().returnCode()!=0) {
-							throw new IllegalStateException("mongo import failed: "+ mongoImportArguments);
+			Listener.TypedListener.Builder builder = Listener.typedBuilder();
+			builder.onStateReached(StateID.of(RunningMongodProcess.class), runningMongodProcess -> {
+				try (ServerClient client = setupClient(runningMongodProcess.getServerAddress())) {
+					for (CollectionFixture fixture : collectionFixtures) {
+						if (fixture.dropCollection()) {
+							client.drop(fixture.databaseName(), fixture.collectionName());
+						}
+						try (InputStream inputStream = fixture.source().open()) {
+							FixtureDocuments.read(inputStream, fixture.batchSize(),
+								batch -> client.insertMany(fixture.databaseName(), fixture.collectionName(), batch));
+						}
+						catch (IOException iox) {
+							throw new IllegalStateException("could not read fixture: " + fixture, iox);
 						}
-						// import done
 					}
+					createIndexes(client, collectionFixtures);
 				}
 			});
 
@@ -124,4 +421,78 @@ public abstract class AbstractServerFactory<C extends Closeable> {
 		}
 		return Listener.builder().build();
 	}
+
+	private static void createIndexes(ServerClient client, List<CollectionFixture> collectionFixtures) {
+		Map<List<String>, List<IndexModel>> indexesByCollection = new LinkedHashMap<>();
+		for (CollectionFixture fixture : collectionFixtures) {
+			if (!fixture.indexes().isEmpty()) {
+				indexesByCollection.computeIfAbsent(Arrays.asList(fixture.databaseName(), fixture.collectionName()), key -> new ArrayList<>())
+					.addAll(fixture.indexes());
+			}
+		}
+
+		if (!indexesByCollection.isEmpty()) {
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(indexesByCollection.size(), Runtime.getRuntime().availableProcessors()));
+			try {
+				CompletableFuture<?>[] pending = indexesByCollection.entrySet().stream()
+					.map(entry -> CompletableFuture.runAsync(() -> client.createIndexes(entry.getKey().get(0), entry.getKey().get(1), entry.getValue()), executor))
+					.toArray(CompletableFuture[]::new);
+
+				CompletableFuture.allOf(pending).join();
+			}
+			catch (CompletionException cx) {
+				if (cx.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) cx.getCause();
+				}
+				throw cx;
+			}
+			finally {
+				executor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * @return import arguments by database and collection name they import into
+	 */
+	private static Map<List<String>, List<MongoImportArguments>> importedCollections(List<MongoImportArguments> mongoImportArgumentsList) {
+		Map<List<String>, List<MongoImportArguments>> importsByCollection = new LinkedHashMap<>();
+		for (MongoImportArguments mongoImportArguments : mongoImportArgumentsList) {
+			importsByCollection.computeIfAbsent(ImportCache.namespace(mongoImportArguments), key -> new ArrayList<>())
+				.add(mongoImportArguments);
+		}
+		return importsByCollection;
+	}
+
+	private static void restore(IFeatureAwareVersion version, ServerAddress serverAddress, MongoRestoreArguments mongoRestoreArguments,
+		PreparedTool mongoRestore) {
+		Transitions mongoRestoreTransitions = mongoRestore.apply(MongoRestore.instance()
+			.transitions(version)
+			.replace(Start.to(MongoRestoreArguments.class).initializedWith(mongoRestoreArguments))
+			.addAll(Start.to(ServerAddress.class).initializedWith(serverAddress)));
+
+		try (TransitionWalker.ReachedState<ExecutedMongoRestoreProcess> executed = mongoRestoreTransitions.walker()
+			.initState(StateID.of(ExecutedMongoRestoreProcess.class))) {
+
+			if (executed.current().returnCode()!=0) {
+				throw new IllegalStateException("mongo restore failed: "+ mongoRestoreArguments);
+			}
+		}
+	}
+
+	private static void dump(IFeatureAwareVersion version, ServerAddress serverAddress, MongoDumpArguments mongoDumpArguments,
+		PreparedTool mongoDump) {
+		Transitions mongoDumpTransitions = mongoDump.apply(MongoDump.instance()
+			.transitions(version)
+			.replace(Start.to(MongoDumpArguments.class).initializedWith(mongoDumpArguments))
+			.addAll(Start.to(ServerAddress.class).initializedWith(serverAddress)));
+
+		try (TransitionWalker.ReachedState<ExecutedMongoDumpProcess> executed = mongoDumpTransitions.walker()
+			.initState(StateID.of(ExecutedMongoDumpProcess.class))) {
+
+			if (executed.current().returnCode()!=0) {
+				throw new IllegalStateException("mongo dump failed: "+ mongoDumpArguments);
+			}
+		}
+	}
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+
+/**
+ * Runs cleanup tasks (e.g. deleting temporary database directories) in the background. Pending tasks
+ * get some time to finish on jvm shutdown.
+ */
+abstract class BackgroundCleanup {
+	private static final Logger logger = LoggerFactory.getLogger(BackgroundCleanup.class);
+
+	private static final long SHUTDOWN_WAIT_MILLIS = 10_000;
+
+	private static final Queue<Future<?>> pending = new ConcurrentLinkedQueue<>();
+	private static final ThreadPoolExecutor executor = executor();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(BackgroundCleanup::awaitPending, "embedded-mongo-cleanup-shutdown"));
+	}
+
+	private BackgroundCleanup() {
+		// no instance
+	}
+
+	static void submit(Runnable task) {
+		try {
+			pending.add(executor.submit(() -> {
+				try {
+					task.run();
+				}
+				catch (RuntimeException rx) {
+					logger.warn("cleanup failed", rx);
+				}
+			}));
+			pending.removeIf(Future::isDone);
+		}
+		catch (RejectedExecutionException rx) {
+			task.run();
+		}
+	}
+
+	private static void awaitPending() {
+		long until = System.currentTimeMillis() + SHUTDOWN_WAIT_MILLIS;
+		Future<?> next;
+		while ((next = pending.poll()) != null) {
+			try {
+				next.get(Math.max(0, until - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+			}
+			catch (TimeoutException tx) {
+				logger.warn("cleanup did not finish in time");
+				return;
+			}
+			catch (InterruptedException ix) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			catch (ExecutionException ex) {
+				// logged in task
+			}
+		}
+	}
+
+	private static ThreadPoolExecutor executor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "embedded-mongo-cleanup");
+			thread.setDaemon(false);
+			return thread;
+		});
+		// don't keep the jvm alive if there is nothing to do
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+}
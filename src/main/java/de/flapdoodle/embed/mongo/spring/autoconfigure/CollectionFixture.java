@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.client.model.IndexModel;
+import org.immutables.value.Value;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Documents which are inserted into a collection after the server is started. Other than
+ * {@link de.flapdoodle.embed.mongo.commands.MongoImportArguments} no mongoimport process is involved, the documents are
+ * streamed from the {@link FixtureSource} to the server, so they can be read from classpath resources or compressed files.
+ * <p>
+ * {@link #indexes()} are created after all fixtures are loaded, which is much faster than inserting into an indexed collection.
+ */
+@Value.Immutable
+public abstract class CollectionFixture {
+
+	public abstract String databaseName();
+
+	public abstract String collectionName();
+
+	public abstract FixtureSource source();
+
+	public abstract List<IndexModel> indexes();
+
+	/**
+	 * name of the instance (de.flapdoodle.mongodb.embedded.instances.&lt;name&gt;) the fixture is inserted into,
+	 * the default instance if empty
+	 */
+	public abstract Optional<String> instance();
+
+	@Value.Default
+	public boolean dropCollection() {
+		return false;
+	}
+
+	@Value.Default
+	public int batchSize() {
+		return 1000;
+	}
+
+	@Value.Check
+	protected void check() {
+		if (batchSize() <= 0) {
+			throw new IllegalArgumentException("batchSize must be greater than zero: " + batchSize());
+		}
+	}
+
+	public static ImmutableCollectionFixture.Builder builder() {
+		return ImmutableCollectionFixture.builder();
+	}
+}
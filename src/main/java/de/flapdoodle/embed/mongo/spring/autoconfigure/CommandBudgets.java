@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link CommandListener} which counts commands, round trips and elapsed time while a {@link Tracking} is active,
+ * see {@link MongoQueryBudget}. A tracking counts the commands sent from the thread which started it, so tests
+ * running in parallel do not count each other's commands. Commands sent from other threads (a reactive client)
+ * are counted only while a single tracking is active.
+ */
+public class CommandBudgets implements CommandListener {
+
+	private static final Set<String> INTERNAL = new HashSet<>(Arrays.asList(
+		"hello", "isMaster", "ismaster", "saslStart", "saslContinue", "authenticate", "getnonce", "endSessions"));
+	private static final Set<String> CURSOR = new HashSet<>(Arrays.asList("getMore", "killCursors"));
+
+	private final ConcurrentMap<Thread, Tracking> active = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Integer, Tracking> pending = new ConcurrentHashMap<>();
+
+	/**
+	 * starts tracking the commands sent from the calling thread
+	 */
+	public Tracking start() {
+		Tracking tracking = new Tracking();
+		active.put(Thread.currentThread(), tracking);
+		return tracking;
+	}
+
+	public void stop(Tracking tracking) {
+		active.values().remove(tracking);
+		pending.values().removeIf(it -> it == tracking);
+	}
+
+	@Override
+	public void commandStarted(CommandStartedEvent event) {
+		Tracking tracking = tracking();
+		if (tracking != null && !INTERNAL.contains(event.getCommandName())) {
+			pending.put(event.getRequestId(), tracking);
+			tracking.started(event);
+		}
+	}
+
+	@Override
+	public void commandSucceeded(CommandSucceededEvent event) {
+		Tracking tracking = pending.remove(event.getRequestId());
+		if (tracking != null) {
+			tracking.finished(event.getElapsedTime(TimeUnit.NANOSECONDS));
+		}
+	}
+
+	@Override
+	public void commandFailed(CommandFailedEvent event) {
+		Tracking tracking = pending.remove(event.getRequestId());
+		if (tracking != null) {
+			tracking.finished(event.getElapsedTime(TimeUnit.NANOSECONDS));
+		}
+	}
+
+	private Tracking tracking() {
+		Tracking tracking = active.get(Thread.currentThread());
+		if (tracking != null) {
+			return tracking;
+		}
+		Collection<Tracking> all = new ArrayList<>(active.values());
+		return all.size() == 1
+			? all.iterator().next()
+			: null;
+	}
+
+	public static final class Tracking {
+		private final List<String> commands = Collections.synchronizedList(new ArrayList<>());
+		private final AtomicLong roundTrips = new AtomicLong();
+		private final AtomicLong nanos = new AtomicLong();
+
+		private void started(CommandStartedEvent event) {
+			roundTrips.incrementAndGet();
+			if (!CURSOR.contains(event.getCommandName())) {
+				String collection = Commands.collection(event.getCommandName(), event.getCommand());
+				commands.add(event.getCommandName() + (collection.isEmpty() ? "" : " " + collection));
+			}
+		}
+
+		private void finished(long elapsedNanos) {
+			nanos.addAndGet(elapsedNanos);
+		}
+
+		/**
+		 * command name and collection of each command, in order
+		 */
+		public List<String> commands() {
+			synchronized (commands) {
+				return new ArrayList<>(commands);
+			}
+		}
+
+		public long roundTrips() {
+			return roundTrips.get();
+		}
+
+		/**
+		 * sum of the elapsed time of all commands, as measured by the client
+		 */
+		public long timeMs() {
+			return TimeUnit.NANOSECONDS.toMillis(nanos.get());
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link CommandListener} which records the latency of each command per command name, collection and, if called
+ * through a Spring Data repository on the same thread, repository method (see {@link RepositoryMethodCaller}).
+ * Latencies are recorded in microseconds into HdrHistogram {@link Recorder}s, which do not block the recording thread.
+ */
+public class CommandLatencies implements CommandListener {
+
+	private final ConcurrentMap<Integer, Key> pending = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Key, Recorder> recorders = new ConcurrentHashMap<>();
+	private final List<BiConsumer<Key, Long>> observers = new CopyOnWriteArrayList<>();
+
+	@Override
+	public void commandStarted(CommandStartedEvent event) {
+		pending.put(event.getRequestId(), new Key(event.getCommandName(), Commands.collection(event.getCommandName(), event.getCommand()),
+			RepositoryMethodCaller.current()));
+	}
+
+	@Override
+	public void commandSucceeded(CommandSucceededEvent event) {
+		record(event.getRequestId(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+	}
+
+	@Override
+	public void commandFailed(CommandFailedEvent event) {
+		record(event.getRequestId(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+	}
+
+	/**
+	 * called for every recorded command with its latency in nanoseconds, in addition to all observers added before
+	 */
+	public void observe(BiConsumer<Key, Long> observer) {
+		observers.add(observer);
+	}
+
+	/**
+	 * @return latencies recorded since the last call, by total time descending
+	 */
+	public Map<Key, Histogram> interval() {
+		List<Map.Entry<Key, Histogram>> entries = new ArrayList<>();
+		recorders.forEach((key, recorder) -> {
+			Histogram histogram = recorder.getIntervalHistogram();
+			if (histogram.getTotalCount() > 0) {
+				entries.add(new AbstractMap.SimpleImmutableEntry<>(key, histogram));
+			}
+		});
+		entries.sort(Comparator.comparingDouble((Map.Entry<Key, Histogram> it) -> totalMicros(it.getValue())).reversed());
+
+		Map<Key, Histogram> result = new LinkedHashMap<>();
+		entries.forEach(it -> result.put(it.getKey(), it.getValue()));
+		return result;
+	}
+
+	public static String report(Map<Key, Histogram> latencies) {
+		StringBuilder sb = new StringBuilder();
+		latencies.forEach((key, histogram) -> sb.append(String.format("%s count=%d total=%.1fms p50=%dus p99=%dus max=%dus%n",
+			key, histogram.getTotalCount(), totalMicros(histogram) / 1000.0, histogram.getValueAtPercentile(50),
+			histogram.getValueAtPercentile(99), histogram.getMaxValue())));
+		return sb.toString();
+	}
+
+	private void record(int requestId, long nanos) {
+		Key key = pending.remove(requestId);
+		if (key != null) {
+			recorders.computeIfAbsent(key, it -> new Recorder(3))
+				.recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+			observers.forEach(observer -> observer.accept(key, nanos));
+		}
+	}
+
+	private static double totalMicros(Histogram histogram) {
+		return histogram.getMean() * histogram.getTotalCount();
+	}
+
+	public static final class Key {
+		private final String command;
+		private final String collection;
+		private final String caller;
+
+		Key(String command, String collection, String caller) {
+			this.command = command;
+			this.collection = collection;
+			this.caller = caller;
+		}
+
+		public String command() {
+			return command;
+		}
+
+		public String collection() {
+			return collection;
+		}
+
+		/**
+		 * repository method (Interface.method), empty if unknown
+		 */
+		public String caller() {
+			return caller;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Key other = (Key) o;
+			return command.equals(other.command) && collection.equals(other.collection) && caller.equals(other.caller);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(command, collection, caller);
+		}
+
+		@Override
+		public String toString() {
+			return command + (collection.isEmpty() ? "" : " " + collection) + (caller.isEmpty() ? "" : " (" + caller + ")");
+		}
+	}
+}
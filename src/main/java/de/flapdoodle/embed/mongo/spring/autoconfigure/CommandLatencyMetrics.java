@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports {@link CommandLatencies} as timers tagged with command, collection and repository method, to every registry it
+ * is bound to.
+ */
+public class CommandLatencyMetrics implements MeterBinder {
+
+	private final CommandLatencies commandLatencies;
+
+	public CommandLatencyMetrics(CommandLatencies commandLatencies) {
+		this.commandLatencies = commandLatencies;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		ConcurrentMap<CommandLatencies.Key, Timer> timers = new ConcurrentHashMap<>();
+		commandLatencies.observe((key, nanos) -> timers.computeIfAbsent(key, it -> Timer.builder(EmbeddedMongoMetrics.PREFIX + "command")
+				.description("latency of commands sent to the embedded server")
+				.tag("command", it.command())
+				.tag("collection", it.collection())
+				.tag("repositoryMethod", it.caller())
+				.register(registry))
+			.record(nanos, TimeUnit.NANOSECONDS));
+	}
+}
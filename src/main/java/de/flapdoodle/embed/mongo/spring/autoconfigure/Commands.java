@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+/**
+ * helpers for commands seen by a {@link com.mongodb.event.CommandListener}
+ */
+abstract class Commands {
+
+	private Commands() {
+		// no instance
+	}
+
+	/**
+	 * @return collection the command is sent to, empty if there is none
+	 */
+	static String collection(String commandName, BsonDocument command) {
+		BsonValue value = "getMore".equals(commandName)
+			? command.get("collection")
+			: command.get(commandName);
+		return value != null && value.isString()
+			? value.asString().getValue()
+			: "";
+	}
+}
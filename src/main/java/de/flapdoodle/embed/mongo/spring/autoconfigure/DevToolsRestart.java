@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.embed.process.io.ProcessOutput;
+import de.flapdoodle.embed.process.io.StreamProcessor;
+import de.flapdoodle.reverse.Listener;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.Transitions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Keeps the running server alive across Spring Boot DevTools restarts. DevTools only reloads the application classes,
+ * this class is loaded from the library jar by the base classloader, so its state survives a restart. On stop the
+ * server is parked instead of stopped, the next context gets its port for the {@link de.flapdoodle.embed.mongo.config.Net}
+ * and takes it on start if version, arguments and setup are unchanged, so there is no launch and no setup at all.
+ * A parked server is stopped if the next context needs another one, and on jvm shutdown.
+ * <p>
+ * The listeners of the context which started the server are detached on park and its process output is replaced
+ * by the output of the context which takes the server, so a parked server does not keep a previous context alive.
+ */
+abstract class DevToolsRestart {
+	private static final Logger logger = LoggerFactory.getLogger(DevToolsRestart.class);
+
+	static final String RESTART_CLASS_LOADER = "org.springframework.boot.devtools.restart.classloader.RestartClassLoader";
+
+	// output of a parked server, until the next context takes it
+	private static final ProcessOutput PARKED_OUTPUT = ProcessOutput.named("[mongod>]", logger);
+
+	private static Parked parked = null;
+	// set by the shutdown hook, park and stopParked are synchronized, so a server is either not parked or stopped by the hook
+	private static boolean shutdown = false;
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(DevToolsRestart::stopParked, "embedded-mongo-devtools-shutdown"));
+	}
+
+	private DevToolsRestart() {
+		// no instance
+	}
+
+	/**
+	 * @return true if the application classes are loaded by the DevTools restart classloader
+	 */
+	static boolean active(ClassLoader classLoader) {
+		for (ClassLoader current = classLoader; current != null; current = current.getParent()) {
+			if (RESTART_CLASS_LOADER.equals(current.getClass().getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return process output which can be handed over to the next context
+	 */
+	static ProcessOutput processOutput(ProcessOutput output) {
+		return new HandoverOutput(output);
+	}
+
+	/**
+	 * starts a server whose listeners are detached if it is parked
+	 */
+	static Server start(Transitions transitions, List<Listener> listeners) {
+		Attachment attachment = new Attachment(listeners);
+		return new Server(transitions.walker().initState(StateID.of(RunningMongodProcess.class), attachment), attachment);
+	}
+
+	/**
+	 * @return port of the parked server
+	 */
+	static synchronized Optional<Integer> port() {
+		return parked != null ? Optional.of(parked.port) : Optional.empty();
+	}
+
+	/**
+	 * parks the server for the next context
+	 *
+	 * @return false if the jvm is shutting down, the server must be stopped by the caller
+	 */
+	static synchronized boolean park(String key, int port, Server server) {
+		if (shutdown) {
+			return false;
+		}
+		server.attachment.detach();
+		Parked previous = parked;
+		parked = new Parked(key, port, server);
+		if (previous != null) {
+			previous.server.running.close();
+		}
+		logger.info("keep mongod on port {} for the next context", port);
+		return true;
+	}
+
+	/**
+	 * @param output process output of the next context
+	 * @return the parked server if it was started with the same key and port, a parked server which does not match
+	 * is stopped
+	 */
+	static synchronized Optional<Server> take(String key, int port, ProcessOutput output) {
+		Parked current = parked;
+		parked = null;
+		if (current == null) {
+			return Optional.empty();
+		}
+		if (current.key.equals(key) && current.port == port) {
+			logger.info("reuse mongod on port {} from previous context", port);
+			current.server.attachment.attach(output);
+			return Optional.of(current.server);
+		}
+		logger.info("configuration changed, stop mongod on port {} from previous context", current.port);
+		current.server.running.close();
+		return Optional.empty();
+	}
+
+	private static void stopParked() {
+		Parked current;
+		synchronized (DevToolsRestart.class) {
+			shutdown = true;
+			current = parked;
+			parked = null;
+		}
+		if (current != null) {
+			current.server.running.close();
+		}
+	}
+
+	static final class Server {
+		private final TransitionWalker.ReachedState<RunningMongodProcess> running;
+		private final Attachment attachment;
+
+		Server(TransitionWalker.ReachedState<RunningMongodProcess> running, Attachment attachment) {
+			this.running = running;
+			this.attachment = attachment;
+		}
+
+		TransitionWalker.ReachedState<RunningMongodProcess> running() {
+			return running;
+		}
+	}
+
+	/**
+	 * passes state changes to the listeners of the context which started the server, until it is detached, and
+	 * remembers the process output of the server to hand it over
+	 */
+	static final class Attachment implements Listener {
+		private volatile List<Listener> listeners;
+		private volatile HandoverOutput output = null;
+
+		Attachment(List<Listener> listeners) {
+			this.listeners = listeners;
+		}
+
+		@Override
+		public <T> void onStateReached(StateID<T> stateID, T value) {
+			if (value instanceof HandoverOutput) {
+				output = (HandoverOutput) value;
+			}
+			listeners.forEach(listener -> listener.onStateReached(stateID, value));
+		}
+
+		@Override
+		public <T> void onStateTearDown(StateID<T> stateID, T value) {
+			listeners.forEach(listener -> listener.onStateTearDown(stateID, value));
+		}
+
+		void detach() {
+			listeners = Collections.emptyList();
+			if (output != null) {
+				output.target = PARKED_OUTPUT;
+			}
+		}
+
+		void attach(ProcessOutput next) {
+			if (output != null) {
+				// do not chain the output of the next context, which is a handover output as well
+				output.target = next instanceof HandoverOutput ? ((HandoverOutput) next).target : next;
+			}
+		}
+	}
+
+	static final class HandoverOutput implements ProcessOutput {
+		private volatile ProcessOutput target;
+
+		private HandoverOutput(ProcessOutput target) {
+			this.target = target;
+		}
+
+		@Override
+		public StreamProcessor output() {
+			return forward(ProcessOutput::output);
+		}
+
+		@Override
+		public StreamProcessor error() {
+			return forward(ProcessOutput::error);
+		}
+
+		@Override
+		public StreamProcessor commands() {
+			return forward(ProcessOutput::commands);
+		}
+
+		// the process keeps the stream processors, so each call must look up the current target
+		private StreamProcessor forward(Function<ProcessOutput, StreamProcessor> stream) {
+			return new StreamProcessor() {
+				@Override
+				public void process(String block) {
+					stream.apply(target).process(block);
+				}
+
+				@Override
+				public void onProcessed() {
+					stream.apply(target).onProcessed();
+				}
+			};
+		}
+	}
+
+	private static final class Parked {
+		private final String key;
+		private final int port;
+		private final Server server;
+
+		private Parked(String key, int port, Server server) {
+			this.key = key;
+			this.port = port;
+			this.server = server;
+		}
+	}
+}
@@ -24,6 +24,7 @@ import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import de.flapdoodle.embed.mongo.commands.ImmutableMongodArguments;
 import de.flapdoodle.embed.mongo.commands.MongoImportArguments;
+import de.flapdoodle.embed.mongo.commands.MongoRestoreArguments;
 import de.flapdoodle.embed.mongo.commands.MongodArguments;
 import de.flapdoodle.embed.mongo.config.Net;
 import de.flapdoodle.embed.mongo.config.Storage;
@@ -44,15 +45,24 @@ import de.flapdoodle.embed.process.io.progress.ProgressListener;
 import de.flapdoodle.embed.process.io.progress.Slf4jProgressListener;
 import de.flapdoodle.reverse.transitions.Start;
 import de.flapdoodle.types.Try;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.HdrHistogram.Recorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.boot.autoconfigure.AbstractDependsOnBeanFactoryPostProcessor;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
 import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
 import org.springframework.boot.context.properties.ConfigurationPropertiesBindingPostProcessor;
@@ -60,24 +70,37 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.data.mongodb.core.MongoClientFactoryBean;
 import org.springframework.data.mongodb.core.ReactiveMongoClientFactoryBean;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * {@link EnableAutoConfiguration Auto-configuration} for Embedded Mongo.
@@ -91,10 +114,13 @@ import java.util.function.Function;
 	EmbeddedMongoAutoConfiguration.MongoPropertiesDependsOnBeanFactoryPostProcessor.class,
 	EmbeddedMongoAutoConfiguration.EmbeddedMongoClientDependsOnBeanFactoryPostProcessor.class,
 	EmbeddedMongoAutoConfiguration.EmbeddedReactiveStreamsMongoClientDependsOnBeanFactoryPostProcessor.class,
+	EmbeddedMongoInstancesRegistrar.class,
 })
+@ImportRuntimeHints(EmbeddedMongoRuntimeHints.class)
 public class EmbeddedMongoAutoConfiguration {
 	private static final byte[] IP4_LOOPBACK_ADDRESS = { 127, 0, 0, 1 };
 	private static final byte[] IP6_LOOPBACK_ADDRESS = { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1 };
+	private static final String PROXY_PREFIX = "de.flapdoodle.mongodb.embedded.proxy";
 
 	@ConditionalOnClass({ com.mongodb.client.MongoClient.class, MongoClientFactoryBean.class })
 	static class SyncClientServerWrapperConfig {
@@ -107,11 +133,61 @@ public class EmbeddedMongoAutoConfiguration {
 			MongoClientSettings clientSettings,
 			Mongod mongod,
 			MongodArguments mongodArguments,
-			List<MongoImportArguments> mongoImportArguments) {
-			return new SyncClientServerFactory(properties, clientSettings)
-				.createWrapper(version, mongod, mongodArguments, mongoImportArguments);
+			List<MongoRestoreArguments> mongoRestoreArguments,
+			List<MongoImportArguments> mongoImportArguments,
+			List<CollectionFixture> collectionFixtures,
+			Net net,
+			EmbeddedMongoProperties embeddedProperties,
+			ConfigurableListableBeanFactory beanFactory) {
+			FixtureKeys fixtureKeys = new FixtureKeys(version, mongoRestoreArguments, mongoImportArguments, defaultInstance(collectionFixtures, embeddedProperties));
+			MongodWrapper wrapper = new SyncClientServerFactory(properties, clientSettings)
+				.createWrapper(version, mongod, mongodArguments, mongoRestoreArguments, mongoImportArguments, defaultInstance(collectionFixtures, embeddedProperties),
+					importCache(embeddedProperties), embeddedProperties.getDatabaseDir() != null, fixtureKeys);
+			wrapper.setFastShutdown(fastShutdown(embeddedProperties));
+			Supplier<Optional<String>> serverKey = serverKey(version, properties, mongodArguments, net, fixtureKeys, embeddedProperties);
+			if (standby(embeddedProperties) && autoConfiguredMongod(beanFactory)) {
+				wrapper.setStandby(serverKey, net, embeddedProperties.getStandby());
+			}
+			if (devToolsRestart(embeddedProperties)) {
+				wrapper.setDevToolsRestart(serverKey, net);
+			}
+			return wrapper;
+		}
+
+	}
+
+	@ConditionalOnClass({ com.mongodb.client.MongoClient.class, MongoClientFactoryBean.class })
+	@ConditionalOnProperty(prefix = "de.flapdoodle.mongodb.embedded.sharding", name = "enabled", havingValue = "true")
+	static class ShardingConfig {
+
+		@Bean(initMethod = "start", destroyMethod = "stop")
+		@ConditionalOnMissingBean
+		public MongodShards mongodShards(
+			IFeatureAwareVersion version,
+			MongoProperties properties,
+			MongoClientSettings clientSettings,
+			Mongod mongod,
+			Net net,
+			MongodArguments mongodArguments,
+			List<MongoRestoreArguments> mongoRestoreArguments,
+			List<MongoImportArguments> mongoImportArguments,
+			List<CollectionFixture> collectionFixtures,
+			EmbeddedMongoProperties embeddedProperties) {
+			Integer instances = embeddedProperties.getSharding().getInstances();
+			return new MongodShards(version, properties, clientSettings, mongod, net, mongodArguments, mongoRestoreArguments,
+				mongoImportArguments, defaultInstance(collectionFixtures, embeddedProperties), importCache(embeddedProperties),
+				instances != null ? instances : MongodShards.defaultShards());
 		}
 
+		@Bean
+		@ConditionalOnMissingBean(MongoDatabaseFactory.class)
+		public ShardedMongoDatabaseFactory shardedMongoDatabaseFactory(com.mongodb.client.MongoClient mongoClient, MongodShards mongodShards,
+			MongoProperties properties) {
+			List<com.mongodb.client.MongoClient> clients = new ArrayList<>();
+			clients.add(mongoClient);
+			clients.addAll(mongodShards.clients());
+			return new ShardedMongoDatabaseFactory(clients, properties.getMongoClientDatabase());
+		}
 	}
 
 	@ConditionalOnClass({ com.mongodb.reactivestreams.client.MongoClient.class, ReactiveMongoClientFactoryBean.class })
@@ -125,19 +201,224 @@ public class EmbeddedMongoAutoConfiguration {
 			MongoClientSettings clientSettings,
 			Mongod mongod,
 			MongodArguments mongodArguments,
-			List<MongoImportArguments> mongoImportArguments) {
-			return new ReactiveClientServerFactory(properties, clientSettings)
-				.createWrapper(version, mongod, mongodArguments, mongoImportArguments);
+			List<MongoRestoreArguments> mongoRestoreArguments,
+			List<MongoImportArguments> mongoImportArguments,
+			List<CollectionFixture> collectionFixtures,
+			Net net,
+			EmbeddedMongoProperties embeddedProperties,
+			ConfigurableListableBeanFactory beanFactory) {
+			FixtureKeys fixtureKeys = new FixtureKeys(version, mongoRestoreArguments, mongoImportArguments, defaultInstance(collectionFixtures, embeddedProperties));
+			MongodWrapper wrapper = new ReactiveClientServerFactory(properties, clientSettings)
+				.createWrapper(version, mongod, mongodArguments, mongoRestoreArguments, mongoImportArguments, defaultInstance(collectionFixtures, embeddedProperties),
+					importCache(embeddedProperties), embeddedProperties.getDatabaseDir() != null, fixtureKeys);
+			wrapper.setFastShutdown(fastShutdown(embeddedProperties));
+			Supplier<Optional<String>> serverKey = serverKey(version, properties, mongodArguments, net, fixtureKeys, embeddedProperties);
+			if (standby(embeddedProperties) && autoConfiguredMongod(beanFactory)) {
+				wrapper.setStandby(serverKey, net, embeddedProperties.getStandby());
+			}
+			if (devToolsRestart(embeddedProperties)) {
+				wrapper.setDevToolsRestart(serverKey, net);
+			}
+			return wrapper;
+		}
+	}
+
+	@ConditionalOnClass(MeterBinder.class)
+	@ConditionalOnProperty(prefix = "de.flapdoodle.mongodb.embedded.metrics", name = "enabled", havingValue = "true")
+	static class EmbeddedMongoMetricsConfig {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public EmbeddedMongoMetrics embeddedMongoMetrics(MongodWrapper mongodWrapper, IFeatureAwareVersion version,
+			ObjectProvider<EmbeddedMongoInstances> instances, ObjectProvider<MongodShards> shards,
+			EmbeddedMongoProperties embeddedProperties) {
+			// created after all servers, so it is closed before they are stopped
+			Optional<EmbeddedMongoInstances> namedInstances = Optional.ofNullable(instances.getIfAvailable());
+			Optional<MongodShards> additionalShards = Optional.ofNullable(shards.getIfAvailable());
+			return new EmbeddedMongoMetrics(() -> MongodWrappers.of(mongodWrapper, namedInstances, additionalShards),
+				MongodWrappers.versions(version, namedInstances), embeddedProperties.getMetrics().getInterval());
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		public MongodProcessMetrics mongodProcessMetrics(MongodWrapper mongodWrapper, IFeatureAwareVersion version,
+			ObjectProvider<EmbeddedMongoInstances> instances, ObjectProvider<MongodShards> shards) {
+			Optional<EmbeddedMongoInstances> namedInstances = Optional.ofNullable(instances.getIfAvailable());
+			Optional<MongodShards> additionalShards = Optional.ofNullable(shards.getIfAvailable());
+			return new MongodProcessMetrics(() -> MongodWrappers.of(mongodWrapper, namedInstances, additionalShards),
+				MongodWrappers.versions(version, namedInstances));
+		}
+	}
+
+	@ConditionalOnClass(name = "org.junit.jupiter.api.extension.Extension")
+	@ConditionalOnProperty(prefix = "de.flapdoodle.mongodb.embedded.query-budget", name = "enabled", havingValue = "true")
+	static class CommandBudgetsConfig {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public CommandBudgets commandBudgets() {
+			return new CommandBudgets();
+		}
+
+		@Bean
+		public BeanPostProcessor addCommandBudgets(CommandBudgets commandBudgets) {
+			return TypedBeanPostProcessor.applyBeforeInitialization(MongoClientSettings.class, settings -> MongoClientSettings.builder(settings)
+				.addCommandListener(commandBudgets)
+				.build());
+		}
+	}
+
+	@ConditionalOnProperty(prefix = "de.flapdoodle.mongodb.embedded.explain", name = "enabled", havingValue = "true")
+	static class ExplainPlansConfig {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public ExplainPlans explainPlans(ObjectProvider<MongodWrapper> mongodWrapper, ObjectProvider<EmbeddedMongoInstances> instances,
+			ObjectProvider<MongodShards> shards, EmbeddedMongoProperties embeddedProperties) {
+			// resolved lazily, the wrappers depend on the client settings this listener is added to
+			return new ExplainPlans(serverAddress -> MongodWrappers.byPort(MongodWrappers.of(mongodWrapper.getObject(),
+						Optional.ofNullable(instances.getIfAvailable()), Optional.ofNullable(shards.getIfAvailable())).values(),
+					serverAddress.getPort())
+				.orElseThrow(() -> new IllegalStateException("no embedded server on " + serverAddress))
+				.client(), embeddedProperties.getExplain().getMaxDocsExaminedRatio());
+		}
+
+		@Bean
+		public BeanPostProcessor addExplainPlans(ExplainPlans explainPlans) {
+			return TypedBeanPostProcessor.applyBeforeInitialization(MongoClientSettings.class, settings -> MongoClientSettings.builder(settings)
+				.addCommandListener(explainPlans)
+				.build());
+		}
+	}
+
+	@ConditionalOnClass(Recorder.class)
+	@ConditionalOnProperty(prefix = "de.flapdoodle.mongodb.embedded.metrics", name = "commands", havingValue = "true")
+	static class CommandLatenciesConfig {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public CommandLatencies commandLatencies() {
+			return new CommandLatencies();
+		}
+
+		@Bean
+		public BeanPostProcessor addCommandLatencies(CommandLatencies commandLatencies) {
+			return TypedBeanPostProcessor.applyBeforeInitialization(MongoClientSettings.class, settings -> MongoClientSettings.builder(settings)
+				.addCommandListener(commandLatencies)
+				.build());
+		}
+
+		@Bean
+		@ConditionalOnClass(RepositoryFactoryBeanSupport.class)
+		public static BeanPostProcessor repositoryMethodCaller() {
+			return RepositoryMethodCaller.beanPostProcessor();
 		}
 	}
 
+	@ConditionalOnClass({ Recorder.class, MeterBinder.class })
+	@ConditionalOnProperty(prefix = "de.flapdoodle.mongodb.embedded.metrics", name = "commands", havingValue = "true")
+	static class CommandLatencyMetricsConfig {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public CommandLatencyMetrics commandLatencyMetrics(CommandLatencies commandLatencies) {
+			return new CommandLatencyMetrics(commandLatencies);
+		}
+	}
+
+	@Bean(destroyMethod = "write")
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = "de.flapdoodle.mongodb.embedded.report", name = "enabled", havingValue = "true")
+	public UsageReport usageReport(MongodWrapper mongodWrapper, ObjectProvider<EmbeddedMongoInstances> instances,
+		ObjectProvider<MongodShards> shards, EmbeddedMongoProperties embeddedProperties) {
+		// created after all servers, so it is destroyed before they are stopped
+		Optional<EmbeddedMongoInstances> namedInstances = Optional.ofNullable(instances.getIfAvailable());
+		Optional<MongodShards> additionalShards = Optional.ofNullable(shards.getIfAvailable());
+		return new UsageReport(() -> MongodWrappers.of(mongodWrapper, namedInstances, additionalShards),
+			Optional.ofNullable(embeddedProperties.getReport().getFile()).map(Paths::get));
+	}
+
+	@Bean(name = EmbeddedMongoInstances.BEAN_NAME, initMethod = "start", destroyMethod = "stop")
+	@ConditionalOnMissingBean
+	@Conditional(OnEmbeddedMongoInstancesCondition.class)
+	public EmbeddedMongoInstances embeddedMongoInstances(EmbeddedMongoProperties embeddedProperties, MongoProperties properties,
+		ObjectProvider<MongoClientSettings> clientSettings, ObjectProvider<MongoClientSettingsBuilderCustomizer> customizers,
+		ProcessOutput processOutput, ProgressListener progressListener, List<CollectionFixture> collectionFixtures,
+		ListableBeanFactory beanFactory) {
+		Set<String> names = embeddedProperties.getInstances().keySet();
+		MongoClientSettings.Builder settings = MongoClientSettings.builder(clientSettings.getIfAvailable(() -> MongoClientSettings.builder().build()));
+		if (!names.isEmpty()) {
+			customizers.orderedStream().forEach(customizer -> customizer.customize(settings));
+		}
+		return new EmbeddedMongoInstances(embeddedProperties, properties, settings.build(), processOutput, progressListener,
+			collectionFixtures,
+			EmbeddedMongoInstances.qualified(beanFactory, MongoRestoreArguments.class, names),
+			EmbeddedMongoInstances.qualified(beanFactory, MongoImportArguments.class, names));
+	}
+
+	private static List<CollectionFixture> defaultInstance(List<CollectionFixture> collectionFixtures,
+		EmbeddedMongoProperties embeddedProperties) {
+		// fixtures for named instances are checked here as well, the instances bean only exists if instances are configured
+		EmbeddedMongoInstances.checkFixtures(embeddedProperties.getInstances().keySet(), collectionFixtures);
+		return collectionFixtures.stream()
+			.filter(it -> !it.instance().isPresent())
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * @return key of everything a started and set up server depends on, resolved in the background, empty if the data
+	 * sources can not be hashed, because a changed fixture would go unnoticed
+	 */
+	private static Supplier<Optional<String>> serverKey(IFeatureAwareVersion version, MongoProperties properties,
+		MongodArguments mongodArguments, Net net, FixtureKeys fixtureKeys, EmbeddedMongoProperties embeddedProperties) {
+		String settings = String.join(" ", version.asInDownloadPath(), mongodArguments.toString(),
+			net.getBindIp().orElse(""), String.valueOf(net.isIpv6()),
+			String.valueOf(embeddedProperties.getStarttimeout()), String.valueOf(embeddedProperties.isExtractedIndex()),
+			String.valueOf(embeddedProperties.isReadinessProbe()), embeddedProperties.getLaunch().toString(),
+			String.valueOf(properties.getUsername()), String.valueOf(Arrays.hashCode(properties.getPassword())),
+			String.valueOf(properties.getAuthenticationDatabase()), properties.getMongoClientDatabase());
+		CompletableFuture<Optional<String>> dataKey = fixtureKeys.dataKey();
+		return () -> fixtureKeys.noData()
+			? Optional.of(settings)
+			: dataKey.join().map(key -> settings + " " + key);
+	}
+
+	/**
+	 * a {@link Mongod} bean of the application may differ from a standby in ways the key does not cover
+	 */
+	static boolean autoConfiguredMongod(ConfigurableListableBeanFactory beanFactory) {
+		String[] names = beanFactory.getBeanNamesForType(Mongod.class);
+		if (names.length != 1 || !beanFactory.containsBeanDefinition(names[0])) {
+			return false;
+		}
+		BeanDefinition definition = beanFactory.getBeanDefinition(names[0]);
+		MethodMetadata factoryMethod = definition instanceof AnnotatedBeanDefinition
+			? ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata()
+			: null;
+		return factoryMethod != null && factoryMethod.getDeclaringClassName().equals(EmbeddedMongoAutoConfiguration.class.getName());
+	}
+
+	private static boolean devToolsRestart(EmbeddedMongoProperties embeddedProperties) {
+		return embeddedProperties.isDevToolsKeepAlive() && DevToolsRestart.active(ClassUtils.getDefaultClassLoader());
+	}
+
+	private static boolean fastShutdown(EmbeddedMongoProperties embeddedProperties) {
+		// never kill a process with persistent data
+		return embeddedProperties.isFastShutdown() && embeddedProperties.getDatabaseDir() == null;
+	}
+
+	static Optional<ImportCache> importCache(EmbeddedMongoProperties embeddedProperties) {
+		return Optional.ofNullable(embeddedProperties.getImportCacheDir())
+			.map(dir -> new ImportCache(Paths.get(dir)));
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public IFeatureAwareVersion version(EmbeddedMongoProperties embeddedProperties) {
 		return determineVersion("de.flapdoodle", embeddedProperties.getVersion(), embeddedProperties.getToolsVersion());
 	}
 
-	private static IFeatureAwareVersion determineVersion(String prefix, String version, String toolsVersion) {
+	static IFeatureAwareVersion determineVersion(String prefix, String version, String toolsVersion) {
 		Assert.state(version != null, "Set the " + prefix + ".mongodb.embedded.version property or "
 			+ "define your own " + IFeatureAwareVersion.class.getSimpleName() + " bean to use embedded MongoDB");
 		IFeatureAwareVersion featureAwareVersion = Versions.withFeatures(createEmbeddedMongoVersion(version));
@@ -155,27 +436,94 @@ public class EmbeddedMongoAutoConfiguration {
 		return Version.of(version);
 	}
 
+	@Bean(destroyMethod = "release")
+	public StandbyReservation embeddedMongoStandbyReservation(ConfigurableApplicationContext context) throws IOException {
+		MongoProperties properties = bindProperties(context);
+		EmbeddedMongoProperties embeddedProperties = bindEmbeddedProperties(context);
+		boolean parked = devToolsRestart(embeddedProperties) && DevToolsRestart.port().isPresent();
+		return configuredPort(context.getEnvironment(), properties) == null && !parked && standby(embeddedProperties)
+			? StandbyReservation.reserve(getHost(properties))
+			: StandbyReservation.none();
+	}
+
 	@Bean
-	public Net net(ConfigurableApplicationContext context) throws IOException {
+	public Net net(ConfigurableApplicationContext context, StandbyReservation standbyReservation) throws IOException {
 		MongoProperties properties = bindProperties(context);
 
-		Net net = net(properties, properties.getPort());
+		ConfigurableEnvironment env = context.getEnvironment();
+		boolean proxy = env.getProperty(PROXY_PREFIX + ".enabled", Boolean.class, false);
+
+		Integer configuredPort = configuredPort(env, properties);
+		EmbeddedMongoProperties embeddedProperties = bindEmbeddedProperties(context);
+		Optional<Integer> parkedPort = devToolsRestart(embeddedProperties) ? DevToolsRestart.port() : Optional.empty();
+		Net net;
+		if (configuredPort == null && parkedPort.isPresent()) {
+			net = Net.of(getHost(properties).getHostAddress(), parkedPort.get(), de.flapdoodle.net.Net.localhostIsIPv6());
+		} else if (standbyReservation.port().isPresent()) {
+			net = Net.of(getHost(properties).getHostAddress(), standbyReservation.port().get(), de.flapdoodle.net.Net.localhostIsIPv6());
+		} else {
+			net = net(properties, configuredPort);
+		}
 		String hostName = net.getServerAddress().getHostName();
+		int clientPort = proxy
+			? proxyPort(net, env.getProperty(PROXY_PREFIX + ".port", Integer.class, properties.getPort()))
+			: net.getPort();
 
-		Map<String, Object> map = new HashMap<>(3);
-		map.put("spring.data.mongodb.port", net.getPort());
+		Map<String, Object> map = new HashMap<>(4);
+		map.put("spring.data.mongodb.port", clientPort);
 		map.put("spring.data.mongodb.host", hostName);
 		String uri = properties.getUri();
 		if (uri != null) {
 			String database = properties.getMongoClientDatabase();
-			map.put("spring.data.mongodb.uri", "mongodb://" + hostName + ":" + net.getPort() + "/" + database);
+			map.put("spring.data.mongodb.uri", "mongodb://" + hostName + ":" + clientPort + "/" + database);
+		}
+		if (proxy) {
+			map.put(PROXY_PREFIX + ".port", clientPort);
 		}
-		ConfigurableEnvironment env = context.getEnvironment();
 		env.getPropertySources().addFirst(new MapPropertySource("embeddedMongoProperties", map));
 
 		return net;
 	}
 
+	private static boolean standby(EmbeddedMongoProperties embeddedProperties) {
+		return embeddedProperties.getStandby() > 0 && embeddedProperties.getDatabaseDir() == null;
+	}
+
+	private static EmbeddedMongoProperties bindEmbeddedProperties(ApplicationContext context) {
+		EmbeddedMongoProperties embeddedProperties = new EmbeddedMongoProperties();
+		context.getBean(ConfigurationPropertiesBindingPostProcessor.class)
+				.postProcessBeforeInitialization(embeddedProperties, "");
+		return embeddedProperties;
+	}
+
+	/**
+	 * with the proxy enabled, mongod gets a free port and the client is connected to the proxy
+	 *
+	 * @return port of mongod, null for a free port
+	 */
+	private static Integer configuredPort(ConfigurableEnvironment env, MongoProperties properties) {
+		boolean proxy = env.getProperty(PROXY_PREFIX + ".enabled", Boolean.class, false);
+		Integer configuredPort = proxy ? null : properties.getPort();
+		return configuredPort != null && configuredPort > 0 ? configuredPort : null;
+	}
+
+	private static int proxyPort(Net net, Integer configuredPort) throws IOException {
+		return (configuredPort != null && configuredPort > 0)
+			? configuredPort
+			: de.flapdoodle.net.Net.freeServerPort(net.getServerAddress());
+	}
+
+	@Bean(initMethod = "start", destroyMethod = "stop")
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = PROXY_PREFIX, name = "enabled", havingValue = "true")
+	public EmbeddedMongoProxy embeddedMongoProxy(Net net, ConfigurableEnvironment env, EmbeddedMongoProperties embeddedProperties)
+		throws UnknownHostException {
+		InetAddress host = net.getServerAddress();
+		int port = env.getRequiredProperty(PROXY_PREFIX + ".port", Integer.class);
+		return new EmbeddedMongoProxy(new InetSocketAddress(host, port), new InetSocketAddress(host, net.getPort()),
+			embeddedProperties.getProxy());
+	}
+
 	private static MongoProperties bindProperties(ApplicationContext context) {
 		MongoProperties properties = new MongoProperties();
 		context.getBean(ConfigurationPropertiesBindingPostProcessor.class)
@@ -192,7 +540,7 @@ public class EmbeddedMongoAutoConfiguration {
 		return InetAddress.getByName(properties.getHost());
 	}
 
-	private static Net net(MongoProperties properties, Integer configuredPort) throws IOException {
+	static Net net(MongoProperties properties, Integer configuredPort) throws IOException {
 		InetAddress host = getHost(properties);
 
 		return (configuredPort != null && configuredPort > 0)
@@ -204,6 +552,13 @@ public class EmbeddedMongoAutoConfiguration {
 	@ConditionalOnMissingBean
 	public Mongod mongod(MongodArguments mongodArguments, ProcessOutput processOutput, Net net,
 		ProgressListener progressListener, EmbeddedMongoProperties embeddedProperties) {
+		return configureMongod(mongodArguments,
+			devToolsRestart(embeddedProperties) ? DevToolsRestart.processOutput(processOutput) : processOutput,
+			net, progressListener, embeddedProperties, embeddedProperties.getDatabaseDir());
+	}
+
+	static ImmutableMongod configureMongod(MongodArguments mongodArguments, ProcessOutput processOutput, Net net,
+		ProgressListener progressListener, EmbeddedMongoProperties embeddedProperties, String databaseDir) {
 
 		ImmutableMongod copy = Mongod.builder()
 			.mongodArguments(Start.to(MongodArguments.class).initializedWith(mongodArguments))
@@ -221,8 +576,24 @@ public class EmbeddedMongoAutoConfiguration {
 				.withProgressListener(Start.to(ProgressListener.class).initializedWith(progressListener));
 		}
 
-		if (embeddedProperties.getDatabaseDir()!=null) {
-			Path databaseDirPath = Paths.get(embeddedProperties.getDatabaseDir());
+		if (embeddedProperties.isExtractedIndex()) {
+			copy = copy
+				.withExtractPackage(new ExtractedFileSetIndex().wrap(copy.extractPackage()));
+		}
+
+		if (embeddedProperties.isReadinessProbe()) {
+			copy = copy
+				.withMongodStarter(ReadinessProbe.mongodStarter());
+		}
+
+		Optional<MongodLauncher> launcher = MongodLauncher.of(embeddedProperties.getLaunch());
+		if (launcher.isPresent()) {
+			copy = copy
+				.withExtractPackage(launcher.get().wrap(copy.extractPackage()));
+		}
+
+		if (databaseDir!=null) {
+			Path databaseDirPath = Paths.get(databaseDir);
 			if (!Files.exists(databaseDirPath)) {
 				Try.run(() -> Files.createDirectories(databaseDirPath));
 			}
@@ -302,14 +673,14 @@ public class EmbeddedMongoAutoConfiguration {
 
 	/**
 	 * Post processor to ensure that {@link com.mongodb.client.MongoClient} beans depend
-	 * on any {@link MongodWrapper} beans.
+	 * on any {@link MongodWrapper} and {@link EmbeddedMongoProxy} beans.
 	 */
 	@ConditionalOnClass({ com.mongodb.client.MongoClient.class, MongoClientFactoryBean.class })
 	static class EmbeddedMongoClientDependsOnBeanFactoryPostProcessor
 		extends AbstractDependsOnBeanFactoryPostProcessor {
 
 		public EmbeddedMongoClientDependsOnBeanFactoryPostProcessor() {
-			super(MongoClient.class, MongoClientFactoryBean.class, MongodWrapper.class);
+			super(MongoClient.class, MongoClientFactoryBean.class, MongodWrapper.class, EmbeddedMongoProxy.class);
 		}
 
 	}
@@ -317,14 +688,15 @@ public class EmbeddedMongoAutoConfiguration {
 	/**
 	 * Post processor to ensure that
 	 * {@link com.mongodb.reactivestreams.client.MongoClient} beans depend on any
-	 * {@link MongodWrapper} beans.
+	 * {@link MongodWrapper} and {@link EmbeddedMongoProxy} beans.
 	 */
 	@ConditionalOnClass({ com.mongodb.reactivestreams.client.MongoClient.class, ReactiveMongoClientFactoryBean.class })
 	static class EmbeddedReactiveStreamsMongoClientDependsOnBeanFactoryPostProcessor
 		extends AbstractDependsOnBeanFactoryPostProcessor {
 
 		public EmbeddedReactiveStreamsMongoClientDependsOnBeanFactoryPostProcessor() {
-			super(com.mongodb.reactivestreams.client.MongoClient.class, ReactiveMongoClientFactoryBean.class, MongodWrapper.class);
+			super(com.mongodb.reactivestreams.client.MongoClient.class, ReactiveMongoClientFactoryBean.class, MongodWrapper.class,
+				EmbeddedMongoProxy.class);
 		}
 	}
 
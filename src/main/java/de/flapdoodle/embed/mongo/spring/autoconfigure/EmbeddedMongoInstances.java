@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.MongoClientSettings;
+import de.flapdoodle.checks.Preconditions;
+import de.flapdoodle.embed.mongo.commands.ImmutableMongodArguments;
+import de.flapdoodle.embed.mongo.commands.MongoImportArguments;
+import de.flapdoodle.embed.mongo.commands.MongoRestoreArguments;
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.config.Storage;
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.process.io.ProcessOutput;
+import de.flapdoodle.embed.process.io.progress.ProgressListener;
+import de.flapdoodle.types.Try;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.ClassUtils;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Named embedded servers configured with {@code de.flapdoodle.mongodb.embedded.instances.<name>.*}.
+ * All instances are started in parallel, each one is exposed as {@link MongodWrapper} and client
+ * beans qualified with its name (see {@link EmbeddedMongoInstancesRegistrar}).
+ * Instances are set up like the default server: same credentials, client settings and launch settings.
+ * {@link MongoRestoreArguments} and {@link MongoImportArguments} beans (or lists of them) qualified with the
+ * instance name are applied to that instance; declare them with {@code @Bean(defaultCandidate = false)},
+ * so the default server does not pick them up.
+ */
+public class EmbeddedMongoInstances {
+	private static final Logger logger = LoggerFactory.getLogger(EmbeddedMongoInstances.class);
+
+	public static final String BEAN_NAME = "embeddedMongoInstances";
+
+	private final Map<String, EmbeddedMongoProperties.Instance> instances;
+	private final EmbeddedMongoProperties defaults;
+	private final MongoProperties properties;
+	private final MongoClientSettings clientSettings;
+	private final ProcessOutput processOutput;
+	private final ProgressListener progressListener;
+	private final List<CollectionFixture> collectionFixtures;
+	private final Map<String, List<MongoRestoreArguments>> mongoRestoreArguments;
+	private final Map<String, List<MongoImportArguments>> mongoImportArguments;
+
+	private final Map<String, AbstractServerFactory<?>> factories = new LinkedHashMap<>();
+	private final Map<String, MongodWrapper> wrappers = new LinkedHashMap<>();
+	private final Map<String, IFeatureAwareVersion> versions = new LinkedHashMap<>();
+
+	/**
+	 * @param properties credentials of the default server, used for all instances
+	 * @param clientSettings settings of the default server with all customizers applied, the hosts are replaced
+	 */
+	EmbeddedMongoInstances(
+		EmbeddedMongoProperties defaults,
+		MongoProperties properties,
+		MongoClientSettings clientSettings,
+		ProcessOutput processOutput,
+		ProgressListener progressListener,
+		List<CollectionFixture> collectionFixtures,
+		Map<String, List<MongoRestoreArguments>> mongoRestoreArguments,
+		Map<String, List<MongoImportArguments>> mongoImportArguments
+	) {
+		this.instances = new LinkedHashMap<>(defaults.getInstances());
+		this.defaults = defaults;
+		this.properties = properties;
+		this.clientSettings = clientSettings;
+		this.processOutput = processOutput;
+		this.progressListener = progressListener;
+		this.collectionFixtures = collectionFixtures;
+		this.mongoRestoreArguments = mongoRestoreArguments;
+		this.mongoImportArguments = mongoImportArguments;
+
+		checkFixtures(instances.keySet(), collectionFixtures);
+	}
+
+	static void checkFixtures(Set<String> names, List<CollectionFixture> collectionFixtures) {
+		collectionFixtures.stream()
+			.map(CollectionFixture::instance)
+			.filter(Optional::isPresent)
+			.map(Optional::get)
+			.filter(name -> !names.contains(name))
+			.findAny()
+			.ifPresent(name -> {
+				throw new IllegalArgumentException("collection fixture for unknown instance: " + name + " (known: " + names + ")");
+			});
+	}
+
+	public Set<String> names() {
+		return Collections.unmodifiableSet(instances.keySet());
+	}
+
+	public synchronized MongodWrapper wrapper(String name) {
+		return Preconditions.checkNotNull(wrappers.get(name), "instance %s not started", name);
+	}
+
+	public synchronized IFeatureAwareVersion version(String name) {
+		return Preconditions.checkNotNull(versions.get(name), "instance %s not started", name);
+	}
+
+	public String databaseName(String name) {
+		return instance(name).getDatabase();
+	}
+
+	/**
+	 * @return client settings of the default server, pointing to the named instance
+	 */
+	public synchronized MongoClientSettings clientSettings(String name) {
+		AbstractServerFactory<?> factory = Preconditions.checkNotNull(factories.get(name), "instance %s not started", name);
+		return factory.clientSettings(clientSettings, wrapper(name).serverAddress());
+	}
+
+	synchronized void start() {
+		if (instances.isEmpty()) {
+			return;
+		}
+
+		Map<String, MongodWrapper> created = new LinkedHashMap<>();
+		instances.forEach((name, instance) -> created.put(name, createWrapper(name, instance)));
+
+		ExecutorService executor = Executors.newFixedThreadPool(created.size());
+		Map<String, CompletableFuture<Void>> started = new LinkedHashMap<>();
+		try {
+			created.forEach((name, wrapper) -> started.put(name, CompletableFuture.runAsync(() -> {
+				logger.info("start instance {}", name);
+				wrapper.start();
+			}, executor)));
+
+			RuntimeException failure = null;
+			for (Map.Entry<String, CompletableFuture<Void>> entry : started.entrySet()) {
+				try {
+					entry.getValue().join();
+					wrappers.put(entry.getKey(), created.get(entry.getKey()));
+				}
+				catch (CompletionException cx) {
+					RuntimeException cause = cx.getCause() instanceof RuntimeException
+						? (RuntimeException) cx.getCause()
+						: new IllegalStateException("could not start instance " + entry.getKey(), cx.getCause());
+					if (failure == null) {
+						failure = cause;
+					} else {
+						failure.addSuppressed(cause);
+					}
+				}
+			}
+
+			if (failure != null) {
+				stop();
+				throw failure;
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	synchronized void stop() {
+		List<String> names = new ArrayList<>(wrappers.keySet());
+		Collections.reverse(names);
+		for (String name : names) {
+			try {
+				wrappers.get(name).stop();
+			}
+			catch (RuntimeException rx) {
+				logger.warn("could not stop instance " + name, rx);
+			}
+		}
+		wrappers.clear();
+	}
+
+	private MongodWrapper createWrapper(String name, EmbeddedMongoProperties.Instance instance) {
+		IFeatureAwareVersion version = EmbeddedMongoAutoConfiguration.determineVersion("de.flapdoodle",
+			instance.getVersion() != null ? instance.getVersion() : defaults.getVersion(),
+			instance.getToolsVersion() != null ? instance.getToolsVersion() : defaults.getToolsVersion());
+
+		MongoProperties instanceProperties = instanceProperties(properties, instance);
+		MongodArguments mongodArguments = mongodArguments(instance.getStorage(), instanceProperties);
+		Net net = Try.get(() -> EmbeddedMongoAutoConfiguration.net(new MongoProperties(), instance.getPort()));
+		Mongod mongod = EmbeddedMongoAutoConfiguration.configureMongod(mongodArguments, processOutput, net, progressListener, defaults,
+			instance.getDatabaseDir());
+
+		List<CollectionFixture> fixtures = collectionFixtures.stream()
+			.filter(it -> it.instance().equals(Optional.of(name)))
+			.collect(Collectors.toList());
+
+		AbstractServerFactory<?> factory = ClassUtils.isPresent("com.mongodb.client.MongoClients", getClass().getClassLoader())
+			? new SyncClientServerFactory(instanceProperties, clientSettings)
+			: new ReactiveClientServerFactory(instanceProperties, clientSettings);
+		factories.put(name, factory);
+		versions.put(name, version);
+
+		MongodWrapper wrapper = factory.createWrapper(version, mongod, mongodArguments,
+			mongoRestoreArguments.getOrDefault(name, Collections.emptyList()),
+			mongoImportArguments.getOrDefault(name, Collections.emptyList()),
+			fixtures, EmbeddedMongoAutoConfiguration.importCache(defaults), instance.getDatabaseDir() != null);
+		wrapper.setFastShutdown(defaults.isFastShutdown() && instance.getDatabaseDir() == null);
+		return wrapper;
+	}
+
+	static MongoProperties instanceProperties(MongoProperties properties, EmbeddedMongoProperties.Instance instance) {
+		MongoProperties instanceProperties = new MongoProperties();
+		instanceProperties.setDatabase(instance.getDatabase());
+		instanceProperties.setUsername(properties.getUsername());
+		instanceProperties.setPassword(properties.getPassword());
+		instanceProperties.setAuthenticationDatabase(properties.getAuthenticationDatabase());
+		return instanceProperties;
+	}
+
+	static MongodArguments mongodArguments(EmbeddedMongoProperties.Storage storage, MongoProperties properties) {
+		ImmutableMongodArguments.Builder builder = MongodArguments.builder()
+			.from(MongodArguments.defaults());
+
+		if (storage.getReplSetName() != null) {
+			int oplogSize = (storage.getOplogSize() != null) ? (int) storage.getOplogSize().toMegabytes() : 0;
+			builder
+				.replication(Storage.of(storage.getReplSetName(), oplogSize))
+				.useNoJournal(false);
+		}
+
+		if (properties.getUsername() != null && properties.getPassword() != null) {
+			builder.auth(true);
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * @return beans of {@code type} and lists of {@code type} by the instance name they are qualified with
+	 */
+	static <T> Map<String, List<T>> qualified(ListableBeanFactory beanFactory, Class<T> type, Set<String> names) {
+		Map<String, List<T>> qualified = new LinkedHashMap<>();
+		for (String name : names) {
+			List<T> beans = new ArrayList<>();
+			for (String beanName : beanFactory.getBeanNamesForType(type)) {
+				if (BeanFactoryAnnotationUtils.isQualifierMatch(name::equals, beanName, beanFactory)) {
+					beans.add(beanFactory.getBean(beanName, type));
+				}
+			}
+			for (String beanName : beanFactory.getBeanNamesForType(ResolvableType.forClassWithGenerics(List.class, type))) {
+				if (BeanFactoryAnnotationUtils.isQualifierMatch(name::equals, beanName, beanFactory)) {
+					for (Object bean : beanFactory.getBean(beanName, List.class)) {
+						beans.add(type.cast(bean));
+					}
+				}
+			}
+			qualified.put(name, beans);
+		}
+		return qualified;
+	}
+
+	private EmbeddedMongoProperties.Instance instance(String name) {
+		return Preconditions.checkNotNull(instances.get(name), "unknown instance: %s", name);
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.MongoClientSettings;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.AutowireCandidateQualifier;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ClassUtils;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Registers beans for each instance configured with {@code de.flapdoodle.mongodb.embedded.instances.<name>.*}:
+ * {@code <name>MongodWrapper}, {@code <name>MongoClient} and {@code <name>MongoTemplate} (or the reactive counterparts).
+ * All of them are qualified with the instance name and are no default candidates, so the
+ * unqualified beans of the default instance are not affected.
+ */
+class EmbeddedMongoInstancesRegistrar implements ImportBeanDefinitionRegistrar, EnvironmentAware {
+
+	static final String PREFIX = "de.flapdoodle.mongodb.embedded.instances";
+
+	private Environment environment;
+
+	@Override
+	public void setEnvironment(Environment environment) {
+		this.environment = environment;
+	}
+
+	@Override
+	public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
+		Map<String, EmbeddedMongoProperties.Instance> instances = Binder.get(environment)
+			.bind(PREFIX, Bindable.mapOf(String.class, EmbeddedMongoProperties.Instance.class))
+			.orElse(Collections.emptyMap());
+
+		ClassLoader classLoader = getClass().getClassLoader();
+		boolean sync = ClassUtils.isPresent("com.mongodb.client.MongoClients", classLoader);
+		boolean reactive = ClassUtils.isPresent("com.mongodb.reactivestreams.client.MongoClients", classLoader);
+		boolean template = ClassUtils.isPresent("org.springframework.data.mongodb.core.MongoTemplate", classLoader);
+
+		for (String name : instances.keySet()) {
+			register(registry, name, name + "MongodWrapper", BeanDefinitionBuilder.genericBeanDefinition(MongodWrapper.class)
+				.setFactoryMethodOnBean("wrapper", EmbeddedMongoInstances.BEAN_NAME)
+				.addConstructorArgValue(name));
+
+			if (sync) {
+				register(registry, name, name + "MongoClient", BeanDefinitionBuilder.genericBeanDefinition(SyncClients.class)
+					.setFactoryMethod("mongoClient")
+					.addConstructorArgReference(EmbeddedMongoInstances.BEAN_NAME)
+					.addConstructorArgValue(name)
+					.setDestroyMethodName("close"));
+				if (template) {
+					register(registry, name, name + "MongoTemplate", BeanDefinitionBuilder.genericBeanDefinition(SyncClients.class)
+						.setFactoryMethod("mongoTemplate")
+						.addConstructorArgReference(name + "MongoClient")
+						.addConstructorArgValue(instances.get(name).getDatabase()));
+				}
+			}
+
+			if (reactive) {
+				register(registry, name, name + "ReactiveMongoClient", BeanDefinitionBuilder.genericBeanDefinition(ReactiveClients.class)
+					.setFactoryMethod("mongoClient")
+					.addConstructorArgReference(EmbeddedMongoInstances.BEAN_NAME)
+					.addConstructorArgValue(name)
+					.setDestroyMethodName("close"));
+				if (template) {
+					register(registry, name, name + "ReactiveMongoTemplate", BeanDefinitionBuilder.genericBeanDefinition(ReactiveClients.class)
+						.setFactoryMethod("mongoTemplate")
+						.addConstructorArgReference(name + "ReactiveMongoClient")
+						.addConstructorArgValue(instances.get(name).getDatabase()));
+				}
+			}
+		}
+	}
+
+	private static void register(BeanDefinitionRegistry registry, String instanceName, String beanName, BeanDefinitionBuilder builder) {
+		AbstractBeanDefinition beanDefinition = builder.getBeanDefinition();
+		beanDefinition.addQualifier(new AutowireCandidateQualifier(Qualifier.class, instanceName));
+		beanDefinition.setDefaultCandidate(false);
+		registry.registerBeanDefinition(beanName, beanDefinition);
+	}
+
+	static class SyncClients {
+		static com.mongodb.client.MongoClient mongoClient(EmbeddedMongoInstances instances, String name) {
+			MongoClientSettings settings = instances.clientSettings(name);
+			return com.mongodb.client.MongoClients.create(settings);
+		}
+
+		static org.springframework.data.mongodb.core.MongoTemplate mongoTemplate(com.mongodb.client.MongoClient client, String databaseName) {
+			return new org.springframework.data.mongodb.core.MongoTemplate(client, databaseName);
+		}
+	}
+
+	static class ReactiveClients {
+		static com.mongodb.reactivestreams.client.MongoClient mongoClient(EmbeddedMongoInstances instances, String name) {
+			MongoClientSettings settings = instances.clientSettings(name);
+			return com.mongodb.reactivestreams.client.MongoClients.create(settings);
+		}
+
+		static org.springframework.data.mongodb.core.ReactiveMongoTemplate mongoTemplate(com.mongodb.reactivestreams.client.MongoClient client,
+			String databaseName) {
+			return new org.springframework.data.mongodb.core.ReactiveMongoTemplate(client, databaseName);
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Polls serverStatus of each embedded server once per interval and exposes the values as micrometer meters,
+ * tagged by instance ({@code default}, the name of a named instance or {@code shard-<n>}).
+ * All meters read the last polled result, so the number of commands does not depend on the number of meters
+ * or registries.
+ */
+public class EmbeddedMongoMetrics implements MeterBinder, AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(EmbeddedMongoMetrics.class);
+
+	static final String PREFIX = "embedded.mongodb.";
+
+	private static final Document SERVER_STATUS = new Document("serverStatus", 1)
+		// skip sections we don't use to keep the response small
+		.append("metrics", 0)
+		.append("locks", 0)
+		.append("repl", 0);
+
+	private final Supplier<Map<String, MongodWrapper>> mongodWrappers;
+	private final Function<String, IFeatureAwareVersion> versions;
+	private final Duration interval;
+
+	private Map<String, Server> servers;
+	private ScheduledExecutorService executor;
+
+	public EmbeddedMongoMetrics(MongodWrapper mongodWrapper, IFeatureAwareVersion version, Duration interval) {
+		this(() -> Collections.singletonMap(MongodWrappers.DEFAULT, mongodWrapper), name -> version, interval);
+	}
+
+	/**
+	 * @param mongodWrappers servers by instance name, resolved on first bind
+	 * @param versions version by instance name
+	 */
+	public EmbeddedMongoMetrics(Supplier<Map<String, MongodWrapper>> mongodWrappers, Function<String, IFeatureAwareVersion> versions,
+		Duration interval) {
+		this.mongodWrappers = mongodWrappers;
+		this.versions = versions;
+		this.interval = interval;
+	}
+
+	@Override
+	public synchronized void bindTo(MeterRegistry registry) {
+		if (servers == null) {
+			servers = new LinkedHashMap<>();
+			mongodWrappers.get().forEach((name, wrapper) -> servers.put(name, new Server(wrapper)));
+		}
+
+		servers.forEach((name, server) -> {
+			Tags tags = Tags.of("port", String.valueOf(server.wrapper.serverAddress().getPort()),
+				"version", versions.apply(name).asInDownloadPath(), "instance", name);
+			bindTo(registry, server, tags);
+		});
+
+		start();
+	}
+
+	private static void bindTo(MeterRegistry registry, Server server, Tags tags) {
+		for (String type : new String[] { "insert", "query", "update", "delete", "getmore", "command" }) {
+			counter(registry, server, "opcounters", tags.and("type", type), "opcounters", type);
+		}
+
+		gauge(registry, server, "connections.current", tags, "connections", "current");
+		gauge(registry, server, "connections.available", tags, "connections", "available");
+		counter(registry, server, "connections.created", tags, "connections", "totalCreated");
+
+		gauge(registry, server, "cache.bytes.used", tags, "wiredTiger", "cache", "bytes currently in the cache");
+		gauge(registry, server, "cache.bytes.max", tags, "wiredTiger", "cache", "maximum bytes configured");
+		gauge(registry, server, "cache.bytes.dirty", tags, "wiredTiger", "cache", "tracked dirty bytes in the cache");
+		counter(registry, server, "cache.evicted.modified", tags, "wiredTiger", "cache", "modified pages evicted");
+		counter(registry, server, "cache.evicted.unmodified", tags, "wiredTiger", "cache", "unmodified pages evicted");
+		counter(registry, server, "cache.evicted.application", tags, "wiredTiger", "cache", "pages evicted by application threads");
+
+		for (String operation : new String[] { "read", "write" }) {
+			Tags operationTags = tags.and("operation", operation);
+			registry.gauge(PREFIX + "tickets.out", operationTags, server, it -> it.tickets(operation, "out"));
+			registry.gauge(PREFIX + "tickets.available", operationTags, server, it -> it.tickets(operation, "available"));
+		}
+
+		Gauge.builder(PREFIX + "memory.resident", server, it -> it.value("mem", "resident") * 1024 * 1024)
+			.tags(tags).baseUnit("bytes").register(registry);
+		Gauge.builder(PREFIX + "memory.virtual", server, it -> it.value("mem", "virtual") * 1024 * 1024)
+			.tags(tags).baseUnit("bytes").register(registry);
+
+		TimeGauge.builder(PREFIX + "startup.readiness", server.wrapper, TimeUnit.NANOSECONDS,
+				it -> it.readinessLatency().map(latency -> (double) latency.toNanos()).orElse(Double.NaN))
+			.tags(tags).register(registry);
+	}
+
+	private void start() {
+		if (executor == null) {
+			servers.values().forEach(server -> server.client = server.wrapper.client());
+			executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "embedded-mongo-metrics");
+				thread.setDaemon(true);
+				return thread;
+			});
+			poll();
+			executor.scheduleWithFixedDelay(this::poll, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void poll() {
+		servers.values().forEach(Server::poll);
+	}
+
+	@Override
+	public synchronized void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+			servers.values().forEach(Server::close);
+		}
+	}
+
+	private static void gauge(MeterRegistry registry, Server server, String name, Tags tags, String... path) {
+		registry.gauge(PREFIX + name, tags, server, it -> it.value(path));
+	}
+
+	private static void counter(MeterRegistry registry, Server server, String name, Tags tags, String... path) {
+		FunctionCounter.builder(PREFIX + name, server, it -> it.value(path))
+			.tags(tags)
+			.register(registry);
+	}
+
+	private static final class Server {
+		private final MongodWrapper wrapper;
+
+		private volatile Document lastStatus = new Document();
+		private ServerClient client;
+
+		private Server(MongodWrapper wrapper) {
+			this.wrapper = wrapper;
+		}
+
+		private void poll() {
+			try {
+				lastStatus = client.runCommand("admin", SERVER_STATUS);
+			}
+			catch (RuntimeException rx) {
+				logger.debug("serverStatus failed", rx);
+			}
+		}
+
+		private void close() {
+			client.close();
+			client = null;
+		}
+
+		private double tickets(String operation, String field) {
+			// mongodb 7.0 moved the tickets from wiredTiger.concurrentTransactions to queues.execution
+			double value = value("queues", "execution", operation, field);
+			return Double.isNaN(value)
+				? value("wiredTiger", "concurrentTransactions", operation, field)
+				: value;
+		}
+
+		private double value(String... path) {
+			return EmbeddedMongoMetrics.value(lastStatus, path);
+		}
+	}
+
+	static double value(Document document, String... path) {
+		Object current = document;
+		for (String key : path) {
+			if (!(current instanceof Document)) {
+				return Double.NaN;
+			}
+			current = ((Document) current).get(key);
+		}
+		return current instanceof Number
+			? ((Number) current).doubleValue()
+			: Double.NaN;
+	}
+}
@@ -25,6 +25,10 @@ import org.springframework.boot.convert.DataSizeUnit;
 import org.springframework.util.unit.DataSize;
 import org.springframework.util.unit.DataUnit;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @ConfigurationProperties(prefix = "de.flapdoodle.mongodb.embedded")
 public class EmbeddedMongoProperties {
 
@@ -35,12 +39,67 @@ public class EmbeddedMongoProperties {
 
 	private String toolsVersion;
 
+	/**
+	 * Persistent database directory. On a restart the setup steps (user, replica set, data) are skipped if their
+	 * state is already there.
+	 */
 	private String databaseDir;
 
 	private long startTimeout;
 
+	/**
+	 * Directory used to cache imported fixtures. Disabled if not set.
+	 */
+	private String importCacheDir;
+
+	/**
+	 * Kill mongod on shutdown and delete its temporary files in the background. Ignored if databaseDir is set.
+	 */
+	private boolean fastShutdown;
+
+	/**
+	 * Remember extracted binaries in an index shared by all jvms, so warm starts skip archive hashing and validation.
+	 * Indexed files are checked by size, modification time and a hash of their first and last block only.
+	 */
+	private boolean extractedIndex;
+
+	/**
+	 * Probe the port of mongod with a hello command while watching its log, so startup completes as soon as either
+	 * reports readiness, and fails at once if the process dies.
+	 */
+	private boolean readinessProbe;
+
+	/**
+	 * Number of servers started in the background, so a new context (e.g. after @DirtiesContext) gets a running
+	 * server at once. Only used without databaseDir and a fixed port.
+	 */
+	private int standby;
+
+	/**
+	 * Keep mongod running across Spring Boot DevTools restarts, the restarted context reuses it if version,
+	 * arguments and setup are unchanged.
+	 */
+	private boolean devToolsKeepAlive;
+
 	private final EmbeddedMongoProperties.Storage storage = new EmbeddedMongoProperties.Storage();
 
+	private final EmbeddedMongoProperties.Metrics metrics = new EmbeddedMongoProperties.Metrics();
+
+	private final EmbeddedMongoProperties.Launch launch = new EmbeddedMongoProperties.Launch();
+
+	private final EmbeddedMongoProperties.Proxy proxy = new EmbeddedMongoProperties.Proxy();
+
+	private final EmbeddedMongoProperties.Explain explain = new EmbeddedMongoProperties.Explain();
+
+	private final EmbeddedMongoProperties.Report report = new EmbeddedMongoProperties.Report();
+
+	private final EmbeddedMongoProperties.Sharding sharding = new EmbeddedMongoProperties.Sharding();
+
+	/**
+	 * Additional named instances, started in parallel with their own qualified client beans.
+	 */
+	private final Map<String, EmbeddedMongoProperties.Instance> instances = new LinkedHashMap<>();
+
 	/**
 	 * Comma-separated list of features to enable. Uses the defaults of the configured
 	 * version by default.
@@ -77,15 +136,104 @@ public class EmbeddedMongoProperties {
 		this.startTimeout = startTimeout;
 	}
 
+	public String getImportCacheDir() {
+		return importCacheDir;
+	}
+
+	public void setImportCacheDir(String importCacheDir) {
+		this.importCacheDir = importCacheDir;
+	}
+
+	public boolean isFastShutdown() {
+		return fastShutdown;
+	}
+
+	public void setFastShutdown(boolean fastShutdown) {
+		this.fastShutdown = fastShutdown;
+	}
+
+	public boolean isExtractedIndex() {
+		return extractedIndex;
+	}
+
+	public void setExtractedIndex(boolean extractedIndex) {
+		this.extractedIndex = extractedIndex;
+	}
+
+	public boolean isReadinessProbe() {
+		return readinessProbe;
+	}
+
+	public void setReadinessProbe(boolean readinessProbe) {
+		this.readinessProbe = readinessProbe;
+	}
+
+	public int getStandby() {
+		return standby;
+	}
+
+	public void setStandby(int standby) {
+		this.standby = standby;
+	}
+
+	public boolean isDevToolsKeepAlive() {
+		return devToolsKeepAlive;
+	}
+
+	public void setDevToolsKeepAlive(boolean devToolsKeepAlive) {
+		this.devToolsKeepAlive = devToolsKeepAlive;
+	}
+
 	public EmbeddedMongoProperties.Storage getStorage() {
 		return this.storage;
 	}
 
+	public EmbeddedMongoProperties.Metrics getMetrics() {
+		return this.metrics;
+	}
+
+	public EmbeddedMongoProperties.Launch getLaunch() {
+		return this.launch;
+	}
+
+	public EmbeddedMongoProperties.Proxy getProxy() {
+		return this.proxy;
+	}
+
+	public EmbeddedMongoProperties.Explain getExplain() {
+		return this.explain;
+	}
+
+	public EmbeddedMongoProperties.Report getReport() {
+		return this.report;
+	}
+
+	public EmbeddedMongoProperties.Sharding getSharding() {
+		return this.sharding;
+	}
+
+	public Map<String, EmbeddedMongoProperties.Instance> getInstances() {
+		return this.instances;
+	}
+
 	@Override public String toString() {
 		return "EmbeddedMongoProperties{" +
 			"version='" + version + '\'' +
 			", databaseDir='" + databaseDir + '\'' +
+			", importCacheDir='" + importCacheDir + '\'' +
+			", fastShutdown=" + fastShutdown +
+			", extractedIndex=" + extractedIndex +
+			", readinessProbe=" + readinessProbe +
+			", standby=" + standby +
+			", devToolsKeepAlive=" + devToolsKeepAlive +
 			", storage=" + storage +
+			", metrics=" + metrics +
+			", launch=" + launch +
+			", proxy=" + proxy +
+			", explain=" + explain +
+			", report=" + report +
+			", sharding=" + sharding +
+			", instances=" + instances +
 			'}';
 	}
 	public static class Storage {
@@ -125,4 +273,494 @@ public class EmbeddedMongoProperties {
 		}
 	}
 
+	public static class Instance {
+
+		/**
+		 * Version of Mongo to use, defaults to de.flapdoodle.mongodb.embedded.version.
+		 */
+		private String version;
+
+		private String toolsVersion;
+
+		/**
+		 * Port of the instance, a free port is used if not set.
+		 */
+		private Integer port;
+
+		/**
+		 * Persistent database directory of the instance, see {@link EmbeddedMongoProperties#getDatabaseDir()}.
+		 */
+		private String databaseDir;
+
+		/**
+		 * Database used by the MongoTemplate of this instance.
+		 */
+		private String database = "test";
+
+		private final EmbeddedMongoProperties.Storage storage = new EmbeddedMongoProperties.Storage();
+
+		public String getVersion() {
+			return this.version;
+		}
+
+		public void setVersion(String version) {
+			this.version = version;
+		}
+
+		public String getToolsVersion() {
+			return this.toolsVersion;
+		}
+
+		public void setToolsVersion(String toolsVersion) {
+			this.toolsVersion = toolsVersion;
+		}
+
+		public Integer getPort() {
+			return this.port;
+		}
+
+		public void setPort(Integer port) {
+			this.port = port;
+		}
+
+		public String getDatabaseDir() {
+			return this.databaseDir;
+		}
+
+		public void setDatabaseDir(String databaseDir) {
+			this.databaseDir = databaseDir;
+		}
+
+		public String getDatabase() {
+			return this.database;
+		}
+
+		public void setDatabase(String database) {
+			this.database = database;
+		}
+
+		public EmbeddedMongoProperties.Storage getStorage() {
+			return this.storage;
+		}
+
+		@Override public String toString() {
+			return "Instance{" +
+				"version='" + version + '\'' +
+				", port=" + port +
+				", databaseDir='" + databaseDir + '\'' +
+				", database='" + database + '\'' +
+				", storage=" + storage +
+				'}';
+		}
+	}
+
+	public static class Metrics {
+
+		/**
+		 * Poll serverStatus and process stats of the embedded server and expose them as micrometer meters.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Interval between two serverStatus calls.
+		 */
+		private Duration interval = Duration.ofSeconds(10);
+
+		/**
+		 * Record latency histograms of each command per command name, collection and repository method.
+		 */
+		private boolean commands;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getInterval() {
+			return this.interval;
+		}
+
+		public void setInterval(Duration interval) {
+			this.interval = interval;
+		}
+
+		public boolean isCommands() {
+			return this.commands;
+		}
+
+		public void setCommands(boolean commands) {
+			this.commands = commands;
+		}
+
+		@Override public String toString() {
+			return "Metrics{" +
+				"enabled=" + enabled +
+				", interval=" + interval +
+				", commands=" + commands +
+				'}';
+		}
+	}
+
+	public static class Proxy {
+
+		/**
+		 * Connect the application's client through a local proxy, which delays, throttles and resets connections.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Port of the proxy, a free port is used if not set.
+		 */
+		private Integer port;
+
+		/**
+		 * Added delay in each direction, so a round trip gets twice as slow.
+		 */
+		private Duration latency = Duration.ZERO;
+
+		/**
+		 * Maximum random delay added to the latency.
+		 */
+		private Duration jitter = Duration.ZERO;
+
+		/**
+		 * Bytes per second in each direction of a connection, unlimited if not set.
+		 */
+		private DataSize bandwidth;
+
+		/**
+		 * Probability that a connection is reset when forwarding a chunk of data.
+		 */
+		private double resetProbability;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Integer getPort() {
+			return this.port;
+		}
+
+		public void setPort(Integer port) {
+			this.port = port;
+		}
+
+		public Duration getLatency() {
+			return this.latency;
+		}
+
+		public void setLatency(Duration latency) {
+			this.latency = latency;
+		}
+
+		public Duration getJitter() {
+			return this.jitter;
+		}
+
+		public void setJitter(Duration jitter) {
+			this.jitter = jitter;
+		}
+
+		public DataSize getBandwidth() {
+			return this.bandwidth;
+		}
+
+		public void setBandwidth(DataSize bandwidth) {
+			this.bandwidth = bandwidth;
+		}
+
+		public double getResetProbability() {
+			return this.resetProbability;
+		}
+
+		public void setResetProbability(double resetProbability) {
+			this.resetProbability = resetProbability;
+		}
+
+		@Override public String toString() {
+			return "Proxy{" +
+				"enabled=" + enabled +
+				", port=" + port +
+				", latency=" + latency +
+				", jitter=" + jitter +
+				", bandwidth=" + bandwidth +
+				", resetProbability=" + resetProbability +
+				'}';
+		}
+	}
+
+	public static class Explain {
+
+		/**
+		 * Explain the queries of each test method and report collection scans, in-memory sorts and inefficient queries.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Fail the test instead of logging a warning.
+		 */
+		private boolean fail;
+
+		/**
+		 * Maximum ratio of examined documents to returned documents of a find or aggregate, not checked if 0.
+		 */
+		private double maxDocsExaminedRatio = 10;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public boolean isFail() {
+			return this.fail;
+		}
+
+		public void setFail(boolean fail) {
+			this.fail = fail;
+		}
+
+		public double getMaxDocsExaminedRatio() {
+			return this.maxDocsExaminedRatio;
+		}
+
+		public void setMaxDocsExaminedRatio(double maxDocsExaminedRatio) {
+			this.maxDocsExaminedRatio = maxDocsExaminedRatio;
+		}
+
+		@Override public String toString() {
+			return "Explain{" +
+				"enabled=" + enabled +
+				", fail=" + fail +
+				", maxDocsExaminedRatio=" + maxDocsExaminedRatio +
+				'}';
+		}
+	}
+
+	public static class Report {
+
+		/**
+		 * Write a report of unused indexes and the most used collections when the context is closed.
+		 */
+		private boolean enabled;
+
+		/**
+		 * File the report is written to, logged if not set.
+		 */
+		private String file;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getFile() {
+			return this.file;
+		}
+
+		public void setFile(String file) {
+			this.file = file;
+		}
+
+		@Override public String toString() {
+			return "Report{" +
+				"enabled=" + enabled +
+				", file='" + file + '\'' +
+				'}';
+		}
+	}
+
+	public static class Sharding {
+
+		/**
+		 * Start several servers and assign each test class to one of them, so test classes running in parallel
+		 * (junit.jupiter.execution.parallel.mode.classes.default=concurrent) don't share a server. Methods of one class
+		 * share its server. Sync driver only.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Number of servers including the default one, half of the available processors if not set.
+		 */
+		private Integer instances;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Integer getInstances() {
+			return this.instances;
+		}
+
+		public void setInstances(Integer instances) {
+			this.instances = instances;
+		}
+
+		@Override public String toString() {
+			return "Sharding{" +
+				"enabled=" + enabled +
+				", instances=" + instances +
+				'}';
+		}
+	}
+
+	public static class Launch {
+
+		/**
+		 * Cpus mongod is pinned to (taskset list format, e.g. 0-3,8).
+		 */
+		private String cpuSet;
+
+		/**
+		 * Nice level of the mongod process.
+		 */
+		private Integer nice;
+
+		/**
+		 * IO scheduling class of the mongod process (ionice -c: 1 realtime, 2 best-effort, 3 idle).
+		 */
+		private Integer ioClass;
+
+		/**
+		 * IO priority within the scheduling class (ionice -n: 0 highest - 7 lowest).
+		 */
+		private Integer ioPriority;
+
+		/**
+		 * Start mongod with numactl --interleave=all.
+		 */
+		private boolean numaInterleave;
+
+		/**
+		 * Writable cgroup (v2) directory, in which a cgroup for the mongod process is created.
+		 */
+		private String cgroup;
+
+		/**
+		 * Cpu quota of the cgroup in number of cpus.
+		 */
+		private Double cgroupCpus;
+
+		/**
+		 * Memory limit of the cgroup.
+		 */
+		private DataSize cgroupMemoryMax;
+
+		/**
+		 * IO limit of the cgroup in io.max format (e.g. '8:0 rbps=10485760 wbps=10485760').
+		 */
+		private String cgroupIoMax;
+
+		public boolean isConfigured() {
+			return cpuSet != null || nice != null || ioClass != null || ioPriority != null || numaInterleave
+				|| cgroup != null || hasCgroupLimits();
+		}
+
+		public boolean hasCgroupLimits() {
+			return cgroupCpus != null || cgroupMemoryMax != null || cgroupIoMax != null;
+		}
+
+		public String getCpuSet() {
+			return this.cpuSet;
+		}
+
+		public void setCpuSet(String cpuSet) {
+			this.cpuSet = cpuSet;
+		}
+
+		public Integer getNice() {
+			return this.nice;
+		}
+
+		public void setNice(Integer nice) {
+			this.nice = nice;
+		}
+
+		public Integer getIoClass() {
+			return this.ioClass;
+		}
+
+		public void setIoClass(Integer ioClass) {
+			this.ioClass = ioClass;
+		}
+
+		public Integer getIoPriority() {
+			return this.ioPriority;
+		}
+
+		public void setIoPriority(Integer ioPriority) {
+			this.ioPriority = ioPriority;
+		}
+
+		public boolean isNumaInterleave() {
+			return this.numaInterleave;
+		}
+
+		public void setNumaInterleave(boolean numaInterleave) {
+			this.numaInterleave = numaInterleave;
+		}
+
+		public String getCgroup() {
+			return this.cgroup;
+		}
+
+		public void setCgroup(String cgroup) {
+			this.cgroup = cgroup;
+		}
+
+		public Double getCgroupCpus() {
+			return this.cgroupCpus;
+		}
+
+		public void setCgroupCpus(Double cgroupCpus) {
+			this.cgroupCpus = cgroupCpus;
+		}
+
+		public DataSize getCgroupMemoryMax() {
+			return this.cgroupMemoryMax;
+		}
+
+		public void setCgroupMemoryMax(DataSize cgroupMemoryMax) {
+			this.cgroupMemoryMax = cgroupMemoryMax;
+		}
+
+		public String getCgroupIoMax() {
+			return this.cgroupIoMax;
+		}
+
+		public void setCgroupIoMax(String cgroupIoMax) {
+			this.cgroupIoMax = cgroupIoMax;
+		}
+
+		@Override public String toString() {
+			return "Launch{" +
+				"cpuSet='" + cpuSet + '\'' +
+				", nice=" + nice +
+				", ioClass=" + ioClass +
+				", ioPriority=" + ioPriority +
+				", numaInterleave=" + numaInterleave +
+				", cgroup='" + cgroup + '\'' +
+				", cgroupCpus=" + cgroupCpus +
+				", cgroupMemoryMax=" + cgroupMemoryMax +
+				", cgroupIoMax='" + cgroupIoMax + '\'' +
+				'}';
+		}
+	}
+
 }
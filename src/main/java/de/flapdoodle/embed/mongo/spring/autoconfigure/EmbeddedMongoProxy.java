@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * TCP proxy between the application's client and mongod, which adds latency and jitter, caps the bandwidth and resets
+ * connections. Loopback hides round trip costs, with added latency code with many round trips gets visible in tests.
+ * <p>
+ * Each direction of a connection has a reader and a writer thread, the reader queues each chunk with its due time,
+ * the writer waits until then and throttles to the configured bandwidth. Order is kept, jitter never reorders chunks.
+ */
+public class EmbeddedMongoProxy {
+	private static final Logger logger = LoggerFactory.getLogger(EmbeddedMongoProxy.class);
+
+	private static final int BUFFER_SIZE = 16 * 1024;
+	private static final byte[] END = new byte[0];
+
+	private final InetSocketAddress listen;
+	private final InetSocketAddress target;
+	private final EmbeddedMongoProperties.Proxy settings;
+
+	private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+	private volatile ServerSocket serverSocket;
+
+	public EmbeddedMongoProxy(InetSocketAddress listen, InetSocketAddress target, EmbeddedMongoProperties.Proxy settings) {
+		this.listen = listen;
+		this.target = target;
+		this.settings = settings;
+	}
+
+	public int port() {
+		return serverSocket.getLocalPort();
+	}
+
+	synchronized void start() throws IOException {
+		serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);
+		serverSocket.bind(listen);
+		logger.info("proxy {} -> {} with {}", serverSocket.getLocalSocketAddress(), target, settings);
+		daemon("embedded-mongo-proxy", this::accept).start();
+	}
+
+	synchronized void stop() {
+		closeQuietly(serverSocket);
+		sockets.forEach(EmbeddedMongoProxy::closeQuietly);
+		sockets.clear();
+	}
+
+	private void accept() {
+		ServerSocket server = serverSocket;
+		while (!server.isClosed()) {
+			try {
+				Socket client = server.accept();
+				Socket upstream = new Socket();
+				try {
+					upstream.connect(target);
+				}
+				catch (IOException iox) {
+					logger.warn("could not connect to {}", target, iox);
+					closeQuietly(client);
+					continue;
+				}
+				client.setTcpNoDelay(true);
+				upstream.setTcpNoDelay(true);
+				sockets.add(client);
+				sockets.add(upstream);
+
+				Connection connection = new Connection(client, upstream);
+				connection.forward(client, upstream, "up");
+				connection.forward(upstream, client, "down");
+			}
+			catch (IOException iox) {
+				if (!server.isClosed()) {
+					logger.warn("accept failed", iox);
+				}
+			}
+		}
+	}
+
+	private class Connection {
+		private final Socket client;
+		private final Socket upstream;
+
+		Connection(Socket client, Socket upstream) {
+			this.client = client;
+			this.upstream = upstream;
+		}
+
+		void forward(Socket from, Socket to, String direction) throws IOException {
+			BlockingQueue<Chunk> queue = new LinkedBlockingQueue<>();
+			InputStream in = from.getInputStream();
+			OutputStream out = to.getOutputStream();
+			String name = "embedded-mongo-proxy-" + from.getPort() + "-" + direction;
+
+			daemon(name + "-read", () -> read(in, queue)).start();
+			daemon(name + "-write", () -> write(queue, out)).start();
+		}
+
+		private void read(InputStream in, BlockingQueue<Chunk> queue) {
+			long lastDue = 0;
+			byte[] buffer = new byte[BUFFER_SIZE];
+			try {
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					// never earlier than the chunk before, so jitter does not reorder
+					lastDue = Math.max(lastDue, System.nanoTime() + delayNanos());
+					queue.add(new Chunk(lastDue, Arrays.copyOf(buffer, read)));
+				}
+			}
+			catch (IOException iox) {
+				// closed
+			}
+			queue.add(new Chunk(lastDue, END));
+		}
+
+		private void write(BlockingQueue<Chunk> queue, OutputStream out) {
+			long bytesPerSecond = settings.getBandwidth() != null ? settings.getBandwidth().toBytes() : 0;
+			long bandwidthStart = System.nanoTime();
+			long written = 0;
+			try {
+				while (true) {
+					Chunk chunk = queue.take();
+					if (chunk.data == END) {
+						break;
+					}
+					sleepUntil(chunk.due);
+
+					if (settings.getResetProbability() > 0 && ThreadLocalRandom.current().nextDouble() < settings.getResetProbability()) {
+						logger.info("reset connection {}", client.getRemoteSocketAddress());
+						reset();
+						return;
+					}
+
+					if (bytesPerSecond > 0) {
+						long now = System.nanoTime();
+						if (queue.isEmpty() && now - bandwidthStart > TimeUnit.SECONDS.toNanos(1)) {
+							// idle connections do not save up bandwidth
+							bandwidthStart = now;
+							written = 0;
+						}
+						written += chunk.data.length;
+						sleepUntil(bandwidthStart + written * 1_000_000_000L / bytesPerSecond);
+					}
+
+					out.write(chunk.data);
+					out.flush();
+				}
+			}
+			catch (IOException | InterruptedException ex) {
+				// closed
+			}
+			close();
+		}
+
+		private long delayNanos() {
+			long latency = settings.getLatency().toNanos();
+			long jitter = settings.getJitter().toNanos();
+			return latency + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+		}
+
+		private void reset() {
+			try {
+				// RST instead of FIN
+				client.setSoLinger(true, 0);
+				upstream.setSoLinger(true, 0);
+			}
+			catch (SocketException sx) {
+				// already closed
+			}
+			close();
+		}
+
+		private void close() {
+			closeQuietly(client);
+			closeQuietly(upstream);
+			sockets.remove(client);
+			sockets.remove(upstream);
+		}
+	}
+
+	private static final class Chunk {
+		private final long due;
+		private final byte[] data;
+
+		Chunk(long due, byte[] data) {
+			this.due = due;
+			this.data = data;
+		}
+	}
+
+	private static void sleepUntil(long nanoTime) {
+		long wait;
+		while ((wait = nanoTime - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(wait);
+		}
+	}
+
+	private static Thread daemon(String name, Runnable runnable) {
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	private static void closeQuietly(AutoCloseable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			}
+			catch (Exception ex) {
+				// ignore
+			}
+		}
+	}
+}
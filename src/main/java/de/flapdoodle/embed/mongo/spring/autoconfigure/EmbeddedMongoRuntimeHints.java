@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.springframework.aot.hint.ExecutableMode;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.boot.context.properties.bind.BindableRuntimeHintsRegistrar;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * {@link RuntimeHintsRegistrar} for {@link EmbeddedMongoAutoConfiguration}, so that
+ * the auto-configuration works in AOT-processed and native runs.
+ */
+public class EmbeddedMongoRuntimeHints implements RuntimeHintsRegistrar {
+
+	@Override
+	public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+		// MongoProperties are bound by hand in EmbeddedMongoAutoConfiguration.net()
+		BindableRuntimeHintsRegistrar.forTypes(MongoProperties.class, EmbeddedMongoProperties.class)
+			.registerHints(hints, classLoader);
+
+		// init and destroy methods are not public and invoked by name
+		registerMethod(hints, MongodWrapper.class, "start");
+		registerMethod(hints, MongodWrapper.class, "stop");
+		registerMethod(hints, EmbeddedMongoInstances.class, "start");
+		registerMethod(hints, EmbeddedMongoInstances.class, "stop");
+		registerMethod(hints, EmbeddedMongoProxy.class, "start");
+		registerMethod(hints, EmbeddedMongoProxy.class, "stop");
+
+		registerConstructors(hints, EmbeddedMongoAutoConfiguration.MongoPropertiesDependsOnBeanFactoryPostProcessor.class);
+		registerConstructors(hints, EmbeddedMongoAutoConfiguration.EmbeddedMongoClientDependsOnBeanFactoryPostProcessor.class);
+		registerConstructors(hints, EmbeddedMongoAutoConfiguration.EmbeddedReactiveStreamsMongoClientDependsOnBeanFactoryPostProcessor.class);
+		registerConstructors(hints, TypedBeanPostProcessor.class);
+	}
+
+	private static void registerMethod(RuntimeHints hints, Class<?> type, String name) {
+		Method method = ReflectionUtils.findMethod(type, name);
+		if (method != null) {
+			hints.reflection().registerMethod(method, ExecutableMode.INVOKE);
+		}
+	}
+
+	private static void registerConstructors(RuntimeHints hints, Class<?> type) {
+		hints.reflection().registerType(type, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+	}
+}
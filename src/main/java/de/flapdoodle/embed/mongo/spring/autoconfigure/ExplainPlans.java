@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+/**
+ * {@link CommandListener} which remembers the queries of the application and re-runs them with explain (executionStats)
+ * against the embedded server which ran them to find collection scans, in-memory sorts and queries which examine much more documents
+ * than they return.
+ */
+public class ExplainPlans implements CommandListener {
+	private static final Logger logger = LoggerFactory.getLogger(ExplainPlans.class);
+
+	private static final Set<String> EXPLAINED = new HashSet<>(Arrays.asList("find", "aggregate", "count", "distinct"));
+	private static final Set<String> NOT_EXPLAINABLE = new HashSet<>(Arrays.asList(
+		"$db", "lsid", "$clusterTime", "txnNumber", "autocommit", "startTransaction", "$readPreference", "readConcern",
+		"writeConcern", "apiVersion", "apiStrict", "apiDeprecationErrors"));
+	private static final Set<String> SYSTEM_DATABASES = new HashSet<>(Arrays.asList("admin", "config", "local"));
+	private static final Set<String> NOT_IN_WINNING_PLAN = new HashSet<>(Arrays.asList("rejectedPlans", "allPlansExecution"));
+
+	private final Function<ServerAddress, ServerClient> clientFactory;
+	private final double maxDocsExaminedRatio;
+	private final Queue<Query> queries = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * @param clientFactory client for the server a query was sent to
+	 */
+	public ExplainPlans(Function<ServerAddress, ServerClient> clientFactory, double maxDocsExaminedRatio) {
+		this.clientFactory = clientFactory;
+		this.maxDocsExaminedRatio = maxDocsExaminedRatio;
+	}
+
+	@Override
+	public void commandStarted(CommandStartedEvent event) {
+		String commandName = event.getCommandName();
+		if (!EXPLAINED.contains(commandName) || SYSTEM_DATABASES.contains(event.getDatabaseName())) {
+			return;
+		}
+		String collection = Commands.collection(commandName, event.getCommand());
+		if (collection.isEmpty() || collection.startsWith("system.") || writesOutput(event.getCommand())) {
+			return;
+		}
+
+		BsonDocument command = new BsonDocument();
+		event.getCommand().forEach((key, value) -> {
+			if (!NOT_EXPLAINABLE.contains(key)) {
+				command.append(key, value);
+			}
+		});
+		com.mongodb.ServerAddress server = event.getConnectionDescription().getServerAddress();
+		queries.add(new Query(ServerAddress.of(server.getHost(), server.getPort()), event.getDatabaseName(), commandName, collection, command));
+	}
+
+	/**
+	 * forget all queries seen so far
+	 */
+	public void clear() {
+		queries.clear();
+	}
+
+	/**
+	 * explain all queries seen since the last call, identical queries are explained only once
+	 *
+	 * @return one line for each query with a problematic plan
+	 */
+	public List<String> check() {
+		Map<ServerAddress, Map<String, Query>> distinctByServer = new LinkedHashMap<>();
+		Query query;
+		while ((query = queries.poll()) != null) {
+			distinctByServer.computeIfAbsent(query.server, key -> new LinkedHashMap<>())
+				.putIfAbsent(query.database + query.command.toJson(), query);
+		}
+
+		List<String> findings = new ArrayList<>();
+		distinctByServer.forEach((server, distinct) -> {
+			try (ServerClient client = clientFactory.apply(server)) {
+				for (Query it : distinct.values()) {
+					explain(client, it).ifPresent(findings::add);
+				}
+			}
+			catch (RuntimeException rx) {
+				logger.warn("could not explain queries sent to {}", server, rx);
+			}
+		});
+		return findings;
+	}
+
+	private Optional<String> explain(ServerClient client, Query query) {
+		try {
+			Document explain = client.runCommand(query.database, new Document("explain", document(query.command))
+				.append("verbosity", "executionStats"));
+			List<String> problems = problems(query.commandName, query.command, explain, maxDocsExaminedRatio);
+			if (!problems.isEmpty()) {
+				return Optional.of(query.commandName + " " + query.database + "." + query.collection + ": " + String.join(", ", problems)
+					+ "\n    " + query.command.toJson());
+			}
+		}
+		catch (RuntimeException rx) {
+			logger.debug("could not explain {}", query.command.toJson(), rx);
+		}
+		return Optional.empty();
+	}
+
+	static List<String> problems(String commandName, BsonDocument command, Document explain, double maxDocsExaminedRatio) {
+		Set<String> stages = new LinkedHashSet<>();
+		List<Document> executionStats = new ArrayList<>();
+		collect(explain, stages, executionStats);
+
+		List<String> problems = new ArrayList<>();
+		if (stages.contains("COLLSCAN") && filtered(commandName, command)) {
+			problems.add("COLLSCAN");
+		}
+		if (stages.contains("SORT")) {
+			problems.add("in-memory SORT");
+		}
+		if (maxDocsExaminedRatio > 0 && !executionStats.isEmpty() && ("find".equals(commandName) || "aggregate".equals(commandName))) {
+			Document stats = executionStats.get(0);
+			long docsExamined = number(stats, "totalDocsExamined");
+			long returned = number(stats, "nReturned");
+			if (docsExamined > maxDocsExaminedRatio * Math.max(1, returned)) {
+				problems.add("docsExamined/nReturned " + docsExamined + "/" + returned);
+			}
+		}
+		return problems;
+	}
+
+	private static void collect(Object value, Set<String> stages, List<Document> executionStats) {
+		if (value instanceof Document) {
+			Document document = (Document) value;
+			Object stage = document.get("stage");
+			if (stage instanceof String) {
+				stages.add(((String) stage).toUpperCase(Locale.ROOT));
+			}
+			if (document.containsKey("totalDocsExamined") && document.containsKey("nReturned")) {
+				executionStats.add(document);
+			}
+			document.forEach((key, child) -> {
+				if (!NOT_IN_WINNING_PLAN.contains(key)) {
+					collect(child, stages, executionStats);
+				}
+			});
+		}
+		if (value instanceof List) {
+			((List<?>) value).forEach(child -> collect(child, stages, executionStats));
+		}
+	}
+
+	/**
+	 * a scan of the whole collection is expected if the query does not filter
+	 */
+	private static boolean filtered(String commandName, BsonDocument command) {
+		switch (commandName) {
+			case "find":
+				return notEmpty(command.get("filter")) || notEmpty(command.get("sort"));
+			case "count":
+			case "distinct":
+				return notEmpty(command.get("query"));
+			case "aggregate":
+				BsonValue pipeline = command.get("pipeline");
+				if (pipeline != null && pipeline.isArray() && !pipeline.asArray().isEmpty()) {
+					BsonValue first = pipeline.asArray().get(0);
+					return first.isDocument() && (first.asDocument().containsKey("$match") || first.asDocument().containsKey("$sort"));
+				}
+				return false;
+			default:
+				return true;
+		}
+	}
+
+	private static boolean writesOutput(BsonDocument command) {
+		BsonValue pipeline = command.get("pipeline");
+		if (pipeline != null && pipeline.isArray()) {
+			BsonArray stages = pipeline.asArray();
+			for (BsonValue stage : stages) {
+				if (stage.isDocument() && (stage.asDocument().containsKey("$out") || stage.asDocument().containsKey("$merge"))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean notEmpty(BsonValue value) {
+		return value != null && value.isDocument() && !value.asDocument().isEmpty();
+	}
+
+	private static long number(Document document, String key) {
+		Object value = document.get(key);
+		return value instanceof Number
+			? ((Number) value).longValue()
+			: 0;
+	}
+
+	private static Document document(BsonDocument bson) {
+		return new DocumentCodec().decode(new BsonDocumentReader(bson), DecoderContext.builder().build());
+	}
+
+	private static final class Query {
+		private final ServerAddress server;
+		private final String database;
+		private final String commandName;
+		private final String collection;
+		private final BsonDocument command;
+
+		private Query(ServerAddress server, String database, String commandName, String collection, BsonDocument command) {
+			this.server = server;
+			this.database = database;
+			this.commandName = commandName;
+			this.collection = collection;
+			this.command = command;
+		}
+	}
+}
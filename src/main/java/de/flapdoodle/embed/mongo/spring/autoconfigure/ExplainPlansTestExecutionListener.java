@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Explains the queries of each test method, if de.flapdoodle.mongodb.embedded.explain.enabled is set. Problematic plans
+ * are logged or, if de.flapdoodle.mongodb.embedded.explain.fail is set, fail the test.
+ */
+public class ExplainPlansTestExecutionListener extends AbstractTestExecutionListener {
+	private static final Logger logger = LoggerFactory.getLogger(ExplainPlansTestExecutionListener.class);
+
+	@Override
+	public int getOrder() {
+		return LOWEST_PRECEDENCE;
+	}
+
+	@Override
+	public void beforeTestMethod(TestContext testContext) {
+		explainPlans(testContext).values().forEach(ExplainPlans::clear);
+	}
+
+	@Override
+	public void afterTestMethod(TestContext testContext) {
+		Map<String, ExplainPlans> explainPlans = explainPlans(testContext);
+		if (explainPlans.isEmpty()) {
+			return;
+		}
+		// a failed test should report its own error
+		if (testContext.getTestException() != null) {
+			explainPlans.values().forEach(ExplainPlans::clear);
+			return;
+		}
+
+		List<String> findings = new ArrayList<>();
+		explainPlans.values().forEach(it -> findings.addAll(it.check()));
+		if (findings.isEmpty()) {
+			return;
+		}
+
+		String message = testContext.getTestClass().getSimpleName() + "." + testContext.getTestMethod().getName()
+			+ " - queries with problematic plans:\n  " + String.join("\n  ", findings);
+		if (testContext.getApplicationContext().getEnvironment()
+			.getProperty("de.flapdoodle.mongodb.embedded.explain.fail", Boolean.class, false)) {
+			throw new AssertionError(message);
+		}
+		logger.warn(message);
+	}
+
+	private static Map<String, ExplainPlans> explainPlans(TestContext testContext) {
+		if (!testContext.hasApplicationContext()) {
+			return Collections.emptyMap();
+		}
+		ApplicationContext context = testContext.getApplicationContext();
+		return context.getBeansOfType(ExplainPlans.class);
+	}
+}
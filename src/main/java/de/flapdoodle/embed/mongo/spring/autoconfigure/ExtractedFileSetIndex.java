@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.process.archives.ExtractedFileSet;
+import de.flapdoodle.embed.process.config.store.Package;
+import de.flapdoodle.embed.process.io.directories.PersistentDir;
+import de.flapdoodle.embed.process.types.Archive;
+import de.flapdoodle.reflection.TypeInfo;
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.StateLookup;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.naming.HasLabel;
+import de.flapdoodle.types.Try;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of extracted binaries shared by all jvms on this machine. An entry is keyed by path, size and modification time
+ * of the downloaded archive and the package (url and file set) and points to the files in the extracted file set store.
+ * Every indexed file is recorded with its size, modification time and a hash of its first and last block. A warm start
+ * uses the entry only if all files still match, and skips hashing the archive and validating the store. Concurrent extractions of the same archive wait on a file lock, so only one of them extracts.
+ */
+public class ExtractedFileSetIndex {
+	private static final Logger logger = LoggerFactory.getLogger(ExtractedFileSetIndex.class);
+
+	static final String DIRECTORY = "extracted-index";
+
+	private static final int BLOCK_SIZE = 64 * 1024;
+
+	private static final ConcurrentMap<String, Object> monitors = new ConcurrentHashMap<>();
+
+	public Transition<ExtractedFileSet> wrap(Transition<ExtractedFileSet> extractPackage) {
+		return new IndexedExtractPackage(extractPackage);
+	}
+
+	static String key(Archive archive, Package distPackage) {
+		Path path = archive.value().toAbsolutePath();
+		String content = path + "\n"
+			+ Try.get(() -> Files.size(path)) + "\n"
+			+ Try.get(() -> Files.getLastModifiedTime(path).toMillis()) + "\n"
+			+ distPackage.url() + "\n"
+			+ distPackage.fileSet();
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest.digest(content.getBytes(StandardCharsets.UTF_8))) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		}
+		catch (NoSuchAlgorithmException nsax) {
+			throw new IllegalStateException(nsax);
+		}
+	}
+
+	static Optional<ExtractedFileSet> read(Path entry) {
+		if (!Files.isRegularFile(entry)) {
+			return Optional.empty();
+		}
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(entry)) {
+			properties.load(in);
+		}
+		catch (IOException iox) {
+			logger.warn("could not read {}", entry, iox);
+			return Optional.empty();
+		}
+
+		Path executable = Paths.get(properties.getProperty("executable"));
+		if (!Files.isExecutable(executable) || !matches(executable, properties.getProperty("executableFingerprint"))) {
+			return Optional.empty();
+		}
+
+		List<Path> libraryFiles = new ArrayList<>();
+		for (int i = 0; properties.containsKey("library." + i); i++) {
+			Path library = Paths.get(properties.getProperty("library." + i));
+			if (!matches(library, properties.getProperty("libraryFingerprint." + i))) {
+				return Optional.empty();
+			}
+			libraryFiles.add(library);
+		}
+
+		return Optional.of(ExtractedFileSet.builder(Paths.get(properties.getProperty("baseDir")))
+			.executable(executable)
+			.addAllLibraryFiles(libraryFiles)
+			.build());
+	}
+
+	static void write(Path entry, ExtractedFileSet fileSet) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("baseDir", fileSet.baseDir().toString());
+		properties.setProperty("executable", fileSet.executable().toString());
+		properties.setProperty("executableFingerprint", fingerprint(fileSet.executable()));
+		int i = 0;
+		for (Path library : fileSet.libraryFiles()) {
+			properties.setProperty("library." + i, library.toString());
+			properties.setProperty("libraryFingerprint." + i, fingerprint(library));
+			i++;
+		}
+
+		Path temp = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+		try (OutputStream out = Files.newOutputStream(temp)) {
+			properties.store(out, null);
+		}
+		Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static boolean matches(Path file, String fingerprint) {
+		if (fingerprint == null || !Files.isRegularFile(file)) {
+			return false;
+		}
+		try {
+			return fingerprint.equals(fingerprint(file));
+		}
+		catch (IOException iox) {
+			logger.warn("could not check {}", file, iox);
+			return false;
+		}
+	}
+
+	// size, modification time and a hash of the first and last block, cheap enough for every start
+	static String fingerprint(Path file) throws IOException {
+		MessageDigest digest = ImportCache.sha256();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			update(digest, channel, 0);
+			if (size > BLOCK_SIZE) {
+				update(digest, channel, Math.max(BLOCK_SIZE, size - BLOCK_SIZE));
+			}
+			return size + ":" + Files.getLastModifiedTime(file).toMillis() + ":" + ImportCache.hex(digest.digest());
+		}
+	}
+
+	private static void update(MessageDigest digest, FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+		while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+			// read until the block is full or the file ends
+		}
+		buffer.flip();
+		digest.update(buffer);
+	}
+
+	private static class IndexedExtractPackage implements Transition<ExtractedFileSet>, HasLabel {
+		private final Transition<ExtractedFileSet> delegate;
+		private final StateID<Archive> archive;
+		private final StateID<Package> distPackage;
+		private final StateID<PersistentDir> persistentDir = StateID.of(PersistentDir.class);
+
+		IndexedExtractPackage(Transition<ExtractedFileSet> delegate) {
+			this.delegate = delegate;
+			this.archive = source(delegate.sources(), Archive.class);
+			this.distPackage = source(delegate.sources(), Package.class);
+		}
+
+		@Override
+		public String transitionLabel() {
+			return "indexed extract package";
+		}
+
+		@Override
+		public StateID<ExtractedFileSet> destination() {
+			return delegate.destination();
+		}
+
+		@Override
+		public Set<StateID<?>> sources() {
+			Set<StateID<?>> sources = new LinkedHashSet<>(delegate.sources());
+			sources.add(persistentDir);
+			return sources;
+		}
+
+		@Override
+		public State<ExtractedFileSet> result(StateLookup lookup) {
+			String key = key(lookup.of(archive), lookup.of(distPackage));
+			Path directory = lookup.of(persistentDir).value().resolve(DIRECTORY);
+			Try.run(() -> Files.createDirectories(directory));
+			Path entry = directory.resolve(key + ".properties");
+
+			Optional<ExtractedFileSet> indexed = read(entry);
+			if (indexed.isPresent()) {
+				return State.of(indexed.get());
+			}
+
+			synchronized (monitors.computeIfAbsent(key, it -> new Object())) {
+				try (FileChannel channel = FileChannel.open(directory.resolve(key + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+					FileLock lock = channel.lock();
+					try {
+						// someone else may have extracted it while we were waiting
+						indexed = read(entry);
+						if (indexed.isPresent()) {
+							return State.of(indexed.get());
+						}
+
+						State<ExtractedFileSet> extracted = delegate.result(lookup);
+						// files without teardown are kept in the extracted file set store
+						if (!extracted.onTearDown().isPresent()) {
+							write(entry, extracted.value());
+						}
+						return extracted;
+					}
+					finally {
+						lock.release();
+					}
+				}
+				catch (IOException iox) {
+					throw new IllegalStateException("could not lock " + entry, iox);
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <T> StateID<T> source(Set<StateID<?>> sources, Class<T> type) {
+			return (StateID<T>) sources.stream()
+				.filter(it -> it.type().equals(TypeInfo.of(type)))
+				.findFirst()
+				.orElse(StateID.of(type));
+		}
+	}
+}
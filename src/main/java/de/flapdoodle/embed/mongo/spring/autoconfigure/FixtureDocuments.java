@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.github.luben.zstd.ZstdInputStream;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.json.JsonReader;
+import org.springframework.util.ClassUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams documents from json content, which is either an array of documents or a sequence of documents
+ * (as accepted by mongoimport with and without --jsonArray).
+ */
+public abstract class FixtureDocuments {
+
+	private static final int GZIP_MAGIC = 0x1f8b;
+	private static final int ZSTD_MAGIC = 0xfd2fb528;
+
+	private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+
+	private FixtureDocuments() {
+		// no instance
+	}
+
+	public static void read(InputStream inputStream, int batchSize, Consumer<List<Document>> onBatch) throws IOException {
+		try (Reader reader = new BufferedReader(new InputStreamReader(decompress(inputStream), StandardCharsets.UTF_8))) {
+			JsonReader jsonReader = new JsonReader(reader);
+			List<Document> batch = new ArrayList<>(batchSize);
+
+			BsonType type;
+			while ((type = jsonReader.readBsonType()) != BsonType.END_OF_DOCUMENT) {
+				if (type == BsonType.ARRAY) {
+					jsonReader.readStartArray();
+					while (jsonReader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+						batch = add(batch, decode(jsonReader), batchSize, onBatch);
+					}
+					jsonReader.readEndArray();
+				} else if (type == BsonType.DOCUMENT) {
+					batch = add(batch, decode(jsonReader), batchSize, onBatch);
+				} else {
+					throw new IllegalArgumentException("expected document or array of documents, got " + type);
+				}
+			}
+
+			if (!batch.isEmpty()) {
+				onBatch.accept(batch);
+			}
+		}
+	}
+
+	private static Document decode(JsonReader jsonReader) {
+		return DOCUMENT_CODEC.decode(jsonReader, DecoderContext.builder().build());
+	}
+
+	private static List<Document> add(List<Document> batch, Document document, int batchSize, Consumer<List<Document>> onBatch) {
+		batch.add(document);
+		if (batch.size() >= batchSize) {
+			onBatch.accept(batch);
+			return new ArrayList<>(batchSize);
+		}
+		return batch;
+	}
+
+	static InputStream decompress(InputStream inputStream) throws IOException {
+		BufferedInputStream buffered = new BufferedInputStream(inputStream);
+		buffered.mark(4);
+		byte[] magic = new byte[4];
+		int read = readFully(buffered, magic);
+		buffered.reset();
+
+		if (read >= 2 && (((magic[0] & 0xff) << 8) | (magic[1] & 0xff)) == GZIP_MAGIC) {
+			return new GZIPInputStream(buffered);
+		}
+		// zstd frames start with a little endian magic number
+		if (read == 4 && ((magic[3] & 0xff) << 24 | (magic[2] & 0xff) << 16 | (magic[1] & 0xff) << 8 | (magic[0] & 0xff)) == ZSTD_MAGIC) {
+			if (!ClassUtils.isPresent("com.github.luben.zstd.ZstdInputStream", FixtureDocuments.class.getClassLoader())) {
+				throw new IllegalStateException("zstd compressed fixture, but com.github.luben:zstd-jni is not on the classpath");
+			}
+			return Zstd.decompress(buffered);
+		}
+		return buffered;
+	}
+
+	// a single read may return less than requested, even if the stream has more
+	private static int readFully(InputStream inputStream, byte[] buffer) throws IOException {
+		int read = 0;
+		while (read < buffer.length) {
+			int count = inputStream.read(buffer, read, buffer.length - read);
+			if (count == -1) {
+				break;
+			}
+			read += count;
+		}
+		return read;
+	}
+
+	private static class Zstd {
+		static InputStream decompress(InputStream inputStream) throws IOException {
+			return new ZstdInputStream(inputStream);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.commands.MongoImportArguments;
+import de.flapdoodle.embed.mongo.commands.MongoRestoreArguments;
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Hashes of the data sources of one server, computed at most once and in the background, so reading fixture files
+ * never blocks the launch of mongod. The import cache entry, the warm restart marker and the DevTools restart key
+ * share the same result.
+ */
+final class FixtureKeys {
+	private final IFeatureAwareVersion version;
+	private final List<MongoRestoreArguments> mongoRestoreArguments;
+	private final List<MongoImportArguments> mongoImportArguments;
+	private final List<CollectionFixture> collectionFixtures;
+	private CompletableFuture<Optional<String>> importKey = null;
+	private CompletableFuture<Optional<String>> dataKey = null;
+
+	FixtureKeys(
+		IFeatureAwareVersion version,
+		List<MongoRestoreArguments> mongoRestoreArguments,
+		List<MongoImportArguments> mongoImportArguments,
+		List<CollectionFixture> collectionFixtures
+	) {
+		this.version = version;
+		this.mongoRestoreArguments = mongoRestoreArguments;
+		this.mongoImportArguments = mongoImportArguments;
+		this.collectionFixtures = collectionFixtures;
+	}
+
+	boolean noData() {
+		return mongoRestoreArguments.isEmpty() && mongoImportArguments.isEmpty() && collectionFixtures.isEmpty();
+	}
+
+	/**
+	 * @see ImportCache#key(IFeatureAwareVersion, List)
+	 */
+	synchronized CompletableFuture<Optional<String>> importKey() {
+		if (importKey == null) {
+			importKey = mongoImportArguments.isEmpty()
+				? CompletableFuture.completedFuture(Optional.empty())
+				: CompletableFuture.supplyAsync(() -> ImportCache.key(version, mongoImportArguments));
+		}
+		return importKey;
+	}
+
+	/**
+	 * @see WarmRestart#dataKey(List, List, Optional, List)
+	 */
+	synchronized CompletableFuture<Optional<String>> dataKey() {
+		if (dataKey == null) {
+			dataKey = noData()
+				? CompletableFuture.completedFuture(Optional.empty())
+				: importKey().thenApplyAsync(key -> WarmRestart.dataKey(mongoRestoreArguments, mongoImportArguments, key, collectionFixtures));
+		}
+		return dataKey;
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.commands.ImmutableMongoImportArguments;
+import de.flapdoodle.embed.mongo.commands.MongoImportArguments;
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.mongo.packageresolver.HasMongotoolsPackage;
+import de.flapdoodle.types.Try;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of imported fixtures. Each entry is a directory of mongodump archives (one per imported collection,
+ * so data loaded by other setup steps is not captured), keyed by a hash of the server version, the import arguments and the content of every import file, but not its location.
+ */
+public class ImportCache {
+	private static final Logger logger = LoggerFactory.getLogger(ImportCache.class);
+
+	static final String ARCHIVE_SUFFIX = ".archive.gz";
+
+	// layout of an entry, part of the key so entries of another layout are not used
+	private static final String LAYOUT = "archive per collection";
+
+	private final Path directory;
+
+	public ImportCache(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return directory of the cache entry for a key computed by {@link #key(IFeatureAwareVersion, List)}
+	 */
+	Path entry(String key) {
+		return directory.resolve(key);
+	}
+
+	public static boolean isComplete(Path entry) {
+		return Files.isDirectory(entry);
+	}
+
+	/**
+	 * @return archive of one imported collection in the entry
+	 */
+	public static Path archive(Path entry, String databaseName, String collectionName) {
+		return entry.resolve(databaseName + "." + collectionName + ARCHIVE_SUFFIX);
+	}
+
+	/**
+	 * @return database and collection name the import writes to, mongoimport falls back to 'test' and the name of the
+	 * import file without extension
+	 */
+	static List<String> namespace(MongoImportArguments arguments) {
+		String collectionName = arguments.collectionName().orElseGet(() -> {
+			String fileName = Paths.get(arguments.importFile()
+				.orElseThrow(() -> new IllegalArgumentException("neither collection nor import file: " + arguments)))
+				.getFileName().toString();
+			int extension = fileName.lastIndexOf('.');
+			return extension > 0 ? fileName.substring(0, extension) : fileName;
+		});
+		return Arrays.asList(arguments.databaseName().orElse("test"), collectionName);
+	}
+
+	/**
+	 * creates a temporary directory next to the entry, which is moved in place by {@link #commit(Path, Path)}
+	 */
+	public Path prepare(Path entry) {
+		return Try.get(() -> {
+			Files.createDirectories(directory);
+			return Files.createTempDirectory(directory, entry.getFileName().toString() + "-");
+		});
+	}
+
+	public void commit(Path entryInProgress, Path entry) {
+		try {
+			Files.move(entryInProgress, entry, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException iox) {
+			// another process was faster
+			logger.debug("could not move {} to {}", entryInProgress, entry, iox);
+			delete(entryInProgress);
+		}
+	}
+
+	public static void delete(Path path) {
+		if (Files.exists(path)) {
+			try (Stream<Path> files = Files.walk(path)) {
+				files.sorted(Comparator.reverseOrder())
+					.forEach(it -> Try.run(() -> Files.deleteIfExists(it)));
+			}
+			catch (IOException iox) {
+				logger.warn("could not delete {}", path, iox);
+			}
+		}
+	}
+
+	static Optional<String> key(IFeatureAwareVersion version, List<MongoImportArguments> mongoImportArguments) {
+		MessageDigest digest = sha256();
+		update(digest, LAYOUT);
+		update(digest, version.asInDownloadPath());
+		if (version instanceof HasMongotoolsPackage) {
+			((HasMongotoolsPackage) version).mongotoolsVersion()
+				.ifPresent(toolsVersion -> update(digest, toolsVersion.asInDownloadPath()));
+		}
+
+		for (MongoImportArguments arguments : mongoImportArguments) {
+			if (!arguments.importFile().isPresent()) {
+				return Optional.empty();
+			}
+			Path importFile = Paths.get(arguments.importFile().get());
+			// content instead of location, so that checkouts in other directories share the entry
+			update(digest, ImmutableMongoImportArguments.copyOf(arguments).withImportFile(Optional.empty()).toString());
+			if (!Files.isRegularFile(importFile)) {
+				return Optional.empty();
+			}
+			Try.run(() -> {
+				try (InputStream in = Files.newInputStream(importFile)) {
+					update(digest, in);
+				}
+			});
+		}
+		return Optional.of(hex(digest.digest()));
+	}
+
+	static void update(MessageDigest digest, String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	static void update(MessageDigest digest, InputStream in) throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			digest.update(buffer, 0, read);
+		}
+	}
+
+	static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static String hex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+}
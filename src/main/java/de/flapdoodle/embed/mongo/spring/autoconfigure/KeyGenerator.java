@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses existing keys with a {@link Workload.KeyDistribution}, the zipfian generator follows YCSB
+ * (Gray et al., "Quickly Generating Billion-Record Synthetic Databases").
+ */
+final class KeyGenerator {
+	private static final double ZIPFIAN_CONSTANT = 0.99;
+
+	private final Workload.KeyDistribution distribution;
+	private final AtomicLong keyCount;
+	private final long zipfianItems;
+	private final double zetan;
+	private final double alpha;
+	private final double eta;
+	private final double zeta2theta;
+
+	KeyGenerator(Workload.KeyDistribution distribution, AtomicLong keyCount) {
+		this.distribution = distribution;
+		this.keyCount = keyCount;
+		this.zipfianItems = keyCount.get();
+		this.zeta2theta = zeta(2, ZIPFIAN_CONSTANT);
+		this.zetan = zeta(zipfianItems, ZIPFIAN_CONSTANT);
+		this.alpha = 1.0 / (1.0 - ZIPFIAN_CONSTANT);
+		this.eta = (1 - Math.pow(2.0 / zipfianItems, 1 - ZIPFIAN_CONSTANT)) / (1 - zeta2theta / zetan);
+	}
+
+	long next(SplittableRandom random) {
+		long count = keyCount.get();
+		switch (distribution) {
+			case ZIPFIAN:
+				// scatter popular keys, so they are not all at the start
+				return Math.floorMod(fnvHash(zipfian(random)), count);
+			case LATEST:
+				return Math.max(0, count - 1 - zipfian(random));
+			default:
+				return random.nextLong(count);
+		}
+	}
+
+	private long zipfian(SplittableRandom random) {
+		double u = random.nextDouble();
+		double uz = u * zetan;
+		if (uz < 1.0) {
+			return 0;
+		}
+		if (uz < 1.0 + Math.pow(0.5, ZIPFIAN_CONSTANT)) {
+			return 1;
+		}
+		return (long) (zipfianItems * Math.pow(eta * u - eta + 1, alpha));
+	}
+
+	private static double zeta(long n, double theta) {
+		double sum = 0;
+		for (long i = 0; i < n; i++) {
+			sum += 1 / Math.pow(i + 1, theta);
+		}
+		return sum;
+	}
+
+	private static long fnvHash(long value) {
+		long hash = 0xCBF29CE484222325L;
+		for (int i = 0; i < 8; i++) {
+			hash ^= value & 0xff;
+			hash *= 1099511628211L;
+			value >>= 8;
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.Listener;
+import de.flapdoodle.reverse.StateID;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Combinators for transition {@link Listener}s.
+ */
+abstract class Listeners {
+
+	private static final StateID<RunningMongodProcess> RUNNING = StateID.of(RunningMongodProcess.class);
+
+	private Listeners() {
+		// no instance
+	}
+
+	/**
+	 * @return listener which passes every state change to all listeners in order
+	 */
+	static Listener all(Listener... listeners) {
+		return Listener.of(
+			(stateID, value) -> Arrays.stream(listeners).forEach(listener -> reached(listener, stateID, value)),
+			(stateID, value) -> Arrays.stream(listeners).forEach(listener -> tornDown(listener, stateID, value)));
+	}
+
+	/**
+	 * runs {@code action} with the running process and the delegate as callback instead of calling the delegate,
+	 * any other state change is passed through
+	 */
+	static Listener onRunning(Listener delegate, BiConsumer<RunningMongodProcess, Runnable> action) {
+		return Listener.of(
+			(stateID, value) -> {
+				if (RUNNING.equals(stateID)) {
+					action.accept((RunningMongodProcess) value, () -> reached(delegate, stateID, value));
+				} else {
+					reached(delegate, stateID, value);
+				}
+			},
+			(stateID, value) -> tornDown(delegate, stateID, value));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void reached(Listener listener, StateID<T> stateID, Object value) {
+		listener.onStateReached(stateID, (T) value);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void tornDown(Listener listener, StateID<T> stateID, Object value) {
+		listener.onStateTearDown(stateID, (T) value);
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.*;
+
+/**
+ * Fails a test if the application's client sends more commands, needs more round trips or more time than allowed.
+ * Negative values are not checked. Put on a test class to apply it to each test method.
+ * <p>
+ * Commands do not count handshake and authentication, round trips also count getMore and killCursors.
+ */
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+@ExtendWith(MongoQueryBudgetExtension.class)
+public @interface MongoQueryBudget {
+
+	int maxCommands() default -1;
+
+	int maxRoundTrips() default -1;
+
+	/**
+	 * sum of the elapsed time of all commands, measured by the client (round trip included)
+	 */
+	long maxTotalTimeMs() default -1;
+
+	/**
+	 * each operation running longer on the server is killed, like a query with maxTimeMS, so a runaway query fails fast
+	 * instead of blocking the test
+	 */
+	long maxOperationTimeMs() default -1;
+}
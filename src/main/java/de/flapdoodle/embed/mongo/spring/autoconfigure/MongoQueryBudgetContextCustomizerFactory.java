@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.annotation.MergedAnnotations;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.test.context.ContextConfigurationAttributes;
+import org.springframework.test.context.ContextCustomizer;
+import org.springframework.test.context.ContextCustomizerFactory;
+import org.springframework.test.context.MergedContextConfiguration;
+import org.springframework.test.context.TestContextAnnotationUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Enables {@link CommandBudgets} for test classes using {@link MongoQueryBudget} on the class or on a test method,
+ * so the command listener is only added to contexts of such tests.
+ */
+public class MongoQueryBudgetContextCustomizerFactory implements ContextCustomizerFactory {
+
+	static final String PROPERTY = "de.flapdoodle.mongodb.embedded.query-budget.enabled";
+
+	@Override
+	public ContextCustomizer createContextCustomizer(Class<?> testClass, List<ContextConfigurationAttributes> configAttributes) {
+		return usesQueryBudget(testClass)
+			? new EnableCommandBudgets()
+			: null;
+	}
+
+	static boolean usesQueryBudget(Class<?> testClass) {
+		return TestContextAnnotationUtils.hasAnnotation(testClass, MongoQueryBudget.class)
+			|| Arrays.stream(ReflectionUtils.getUniqueDeclaredMethods(testClass))
+			.anyMatch(method -> MergedAnnotations.from(method).isPresent(MongoQueryBudget.class));
+	}
+
+	private static final class EnableCommandBudgets implements ContextCustomizer {
+
+		@Override
+		public void customizeContext(ConfigurableApplicationContext context, MergedContextConfiguration mergedConfig) {
+			context.getEnvironment().getPropertySources()
+				.addFirst(new MapPropertySource("mongoQueryBudget", Collections.singletonMap(PROPERTY, "true")));
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other != null && other.getClass() == getClass();
+		}
+
+		@Override
+		public int hashCode() {
+			return getClass().hashCode();
+		}
+	}
+}
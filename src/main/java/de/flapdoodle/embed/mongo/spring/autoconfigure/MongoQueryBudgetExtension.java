@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.types.Try;
+import org.bson.Document;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JUnit 5 extension for {@link MongoQueryBudget}, needs a spring test context with embedded mongo auto-configuration.
+ */
+public class MongoQueryBudgetExtension implements BeforeEachCallback, AfterEachCallback {
+	private static final Logger logger = LoggerFactory.getLogger(MongoQueryBudgetExtension.class);
+
+	private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(MongoQueryBudgetExtension.class);
+
+	@Override
+	public void beforeEach(ExtensionContext context) {
+		Optional<MongoQueryBudget> budget = budget(context);
+		if (!budget.isPresent()) {
+			return;
+		}
+
+		ApplicationContext applicationContext = SpringExtension.getApplicationContext(context);
+		CommandBudgets commandBudgets = applicationContext.getBeanProvider(CommandBudgets.class).getIfAvailable(() -> {
+			throw new IllegalStateException("no " + CommandBudgets.class.getSimpleName() + " in the application context, set "
+				+ MongoQueryBudgetContextCustomizerFactory.PROPERTY + "=true if the context is not created for this test class");
+		});
+		ExtensionContext.Store store = context.getStore(NAMESPACE);
+		store.put(CommandBudgets.class, commandBudgets);
+		store.put(CommandBudgets.Tracking.class, commandBudgets.start());
+
+		if (budget.get().maxOperationTimeMs() > 0) {
+			store.put(Watchdog.class, new Watchdog(applicationContext.getBeansOfType(MongodWrapper.class).values(),
+				budget.get().maxOperationTimeMs()));
+		}
+	}
+
+	@Override
+	public void afterEach(ExtensionContext context) {
+		ExtensionContext.Store store = context.getStore(NAMESPACE);
+		CommandBudgets commandBudgets = store.remove(CommandBudgets.class, CommandBudgets.class);
+		CommandBudgets.Tracking tracking = store.remove(CommandBudgets.Tracking.class, CommandBudgets.Tracking.class);
+		Watchdog watchdog = store.remove(Watchdog.class, Watchdog.class);
+		if (watchdog != null) {
+			watchdog.close();
+		}
+		if (commandBudgets == null || tracking == null) {
+			return;
+		}
+		commandBudgets.stop(tracking);
+
+		// a failed test should report its own error
+		if (!context.getExecutionException().isPresent()) {
+			budget(context).ifPresent(budget -> check(budget, tracking));
+		}
+	}
+
+	static void check(MongoQueryBudget budget, CommandBudgets.Tracking tracking) {
+		List<String> commands = tracking.commands();
+		List<String> exceeded = new ArrayList<>();
+		if (budget.maxCommands() >= 0 && commands.size() > budget.maxCommands()) {
+			exceeded.add(commands.size() + " commands (max " + budget.maxCommands() + ")");
+		}
+		if (budget.maxRoundTrips() >= 0 && tracking.roundTrips() > budget.maxRoundTrips()) {
+			exceeded.add(tracking.roundTrips() + " round trips (max " + budget.maxRoundTrips() + ")");
+		}
+		if (budget.maxTotalTimeMs() >= 0 && tracking.timeMs() > budget.maxTotalTimeMs()) {
+			exceeded.add(tracking.timeMs() + "ms total command time (max " + budget.maxTotalTimeMs() + "ms)");
+		}
+		if (!exceeded.isEmpty()) {
+			throw new AssertionError("mongo query budget exceeded: " + String.join(", ", exceeded) + "\ncommands:\n  "
+				+ String.join("\n  ", commands));
+		}
+	}
+
+	private static Optional<MongoQueryBudget> budget(ExtensionContext context) {
+		Optional<MongoQueryBudget> onMethod = context.getTestMethod()
+			.flatMap(method -> AnnotationSupport.findAnnotation(method, MongoQueryBudget.class));
+		return onMethod.isPresent()
+			? onMethod
+			: context.getTestClass().flatMap(type -> AnnotationSupport.findAnnotation(type, MongoQueryBudget.class));
+	}
+
+	/**
+	 * kills slow operations with one client per server, created once per test, whose commands are not counted
+	 */
+	private static final class Watchdog implements AutoCloseable {
+		private final List<ServerClient> clients = new ArrayList<>();
+		private final ScheduledExecutorService executor;
+
+		Watchdog(Collection<MongodWrapper> wrappers, long maxTimeMs) {
+			wrappers.forEach(wrapper -> clients.add(wrapper.client()));
+			executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "mongo-query-budget-watchdog");
+				thread.setDaemon(true);
+				return thread;
+			});
+			long period = Math.max(10, maxTimeMs / 2);
+			executor.scheduleWithFixedDelay(() -> clients.forEach(client -> killSlowOperations(client, maxTimeMs)), period, period,
+				TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public void close() {
+			executor.shutdownNow();
+			Try.run(() -> executor.awaitTermination(1, TimeUnit.SECONDS));
+			clients.forEach(ServerClient::close);
+		}
+	}
+
+	private static void killSlowOperations(ServerClient client, long maxTimeMs) {
+		try {
+			Document currentOp = client.runCommand("admin", new Document("currentOp", 1)
+				.append("active", true)
+				.append("microsecs_running", new Document("$gt", maxTimeMs * 1000))
+				.append("ns", new Document("$not", new Document("$regex", "^(admin|config|local)\\."))));
+
+			for (Document operation : currentOp.getList("inprog", Document.class)) {
+				Object opid = operation.get("opid");
+				if (opid != null) {
+					logger.warn("kill operation running longer than {}ms: {}", maxTimeMs, operation.get("command"));
+					client.runCommand("admin", new Document("killOp", 1).append("op", opid));
+				}
+			}
+		}
+		catch (RuntimeException rx) {
+			logger.debug("could not kill slow operations", rx);
+		}
+	}
+}
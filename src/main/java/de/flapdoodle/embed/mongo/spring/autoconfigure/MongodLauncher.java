@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.process.archives.ExtractedFileSet;
+import de.flapdoodle.embed.process.archives.ImmutableExtractedFileSet;
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.StateLookup;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.naming.HasLabel;
+import de.flapdoodle.types.Try;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Launches mongod through a generated shell script, which pins it to a cpu set, sets nice and ionice levels,
+ * applies a numa policy and moves it into a cgroup (v2) with cpu, memory and io limits before it execs mongod.
+ * As the script execs mongod, the process id does not change. Linux only.
+ */
+public class MongodLauncher {
+	private static final Logger logger = LoggerFactory.getLogger(MongodLauncher.class);
+
+	private static final long CPU_PERIOD_MICROS = 100_000;
+
+	private final EmbeddedMongoProperties.Launch launch;
+
+	MongodLauncher(EmbeddedMongoProperties.Launch launch) {
+		this.launch = launch;
+	}
+
+	public static Optional<MongodLauncher> of(EmbeddedMongoProperties.Launch launch) {
+		if (!launch.isConfigured()) {
+			return Optional.empty();
+		}
+		if (launch.hasCgroupLimits() && launch.getCgroup() == null) {
+			throw new IllegalArgumentException("cgroup limits need a cgroup directory (de.flapdoodle.mongodb.embedded.launch.cgroup): " + launch);
+		}
+		if (!System.getProperty("os.name", "").toLowerCase().startsWith("linux")) {
+			logger.warn("launch settings are only supported on linux, ignoring {}", launch);
+			return Optional.empty();
+		}
+		return Optional.of(new MongodLauncher(launch));
+	}
+
+	public Transition<ExtractedFileSet> wrap(Transition<ExtractedFileSet> extractPackage) {
+		return new WrapExecutable(extractPackage);
+	}
+
+	List<String> commandPrefix() {
+		List<String> prefix = new ArrayList<>();
+		if (launch.getCpuSet() != null) {
+			prefix.add("taskset");
+			prefix.add("-c");
+			prefix.add(launch.getCpuSet());
+		}
+		if (launch.getNice() != null) {
+			prefix.add("nice");
+			prefix.add("-n");
+			prefix.add(String.valueOf(launch.getNice()));
+		}
+		if (launch.getIoClass() != null || launch.getIoPriority() != null) {
+			prefix.add("ionice");
+			// ionice uses the best-effort class, if only the priority is set
+			if (launch.getIoClass() != null) {
+				prefix.add("-c");
+				prefix.add(String.valueOf(launch.getIoClass()));
+			}
+			if (launch.getIoPriority() != null) {
+				prefix.add("-n");
+				prefix.add(String.valueOf(launch.getIoPriority()));
+			}
+		}
+		if (launch.isNumaInterleave()) {
+			prefix.add("numactl");
+			prefix.add("--interleave=all");
+		}
+		return prefix;
+	}
+
+	String script(Path executable, Optional<Path> cgroup) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("#!/bin/sh\n");
+
+		cgroup.ifPresent(dir -> {
+			String quotedDir = quote(dir.toString());
+			sb.append("if mkdir -p ").append(quotedDir).append(" 2>/dev/null && [ -w ").append(quote(dir.resolve("cgroup.procs").toString())).append(" ]; then\n");
+			if (launch.getCgroupCpus() != null) {
+				long quota = Math.round(launch.getCgroupCpus() * CPU_PERIOD_MICROS);
+				limit(sb, dir, "cpu.max", quota + " " + CPU_PERIOD_MICROS);
+			}
+			if (launch.getCgroupMemoryMax() != null) {
+				limit(sb, dir, "memory.max", String.valueOf(launch.getCgroupMemoryMax().toBytes()));
+			}
+			if (launch.getCgroupIoMax() != null) {
+				limit(sb, dir, "io.max", launch.getCgroupIoMax());
+			}
+			sb.append("  echo $$ > ").append(quote(dir.resolve("cgroup.procs").toString())).append("\n");
+			sb.append("else\n");
+			sb.append("  echo ").append(quote("cgroup " + dir.getParent() + " is not writable, limits are not applied")).append(" >&2\n");
+			sb.append("fi\n");
+		});
+
+		sb.append("exec");
+		for (String part : commandPrefix()) {
+			sb.append(' ').append(quote(part));
+		}
+		sb.append(' ').append(quote(executable.toString())).append(" \"$@\"\n");
+		return sb.toString();
+	}
+
+	private static void limit(StringBuilder sb, Path cgroup, String file, String value) {
+		sb.append("  echo ").append(quote(value)).append(" > ").append(quote(cgroup.resolve(file).toString())).append("\n");
+	}
+
+	private static String quote(String value) {
+		return "'" + value.replace("'", "'\\''") + "'";
+	}
+
+	private class WrapExecutable implements Transition<ExtractedFileSet>, HasLabel {
+		private final Transition<ExtractedFileSet> delegate;
+
+		WrapExecutable(Transition<ExtractedFileSet> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public String transitionLabel() {
+			return "wrap mongod executable";
+		}
+
+		@Override
+		public StateID<ExtractedFileSet> destination() {
+			return delegate.destination();
+		}
+
+		@Override
+		public Set<StateID<?>> sources() {
+			return delegate.sources();
+		}
+
+		@Override
+		public State<ExtractedFileSet> result(StateLookup lookup) {
+			State<ExtractedFileSet> extracted = delegate.result(lookup);
+			Optional<Path> cgroup = Optional.ofNullable(launch.getCgroup())
+				.map(parent -> Paths.get(parent).resolve("embedded-mongod-" + UUID.randomUUID()));
+
+			Path script = Try.get(() -> {
+				Path file = Files.createTempFile("mongod-launcher", ".sh");
+				Files.write(file, script(extracted.value().executable(), cgroup).getBytes(StandardCharsets.UTF_8));
+				Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwx------"));
+				return file;
+			});
+
+			return State.of(ImmutableExtractedFileSet.copyOf(extracted.value()).withExecutable(script), fileSet -> {
+				Try.run(() -> Files.deleteIfExists(script));
+				// the cgroup can be removed as soon as mongod is gone
+				cgroup.ifPresent(dir -> Try.run(() -> Files.deleteIfExists(dir)));
+				State.tearDown(extracted);
+			});
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Exposes cpu time, resident memory, io and thread count of each mongod process as micrometer meters, tagged by
+ * instance like {@link EmbeddedMongoMetrics}. Values are read from /proc, so on other platforms no values are reported.
+ */
+public class MongodProcessMetrics implements MeterBinder {
+
+	private final Supplier<Map<String, MongodWrapper>> mongodWrappers;
+	private final Function<String, IFeatureAwareVersion> versions;
+
+	public MongodProcessMetrics(MongodWrapper mongodWrapper, IFeatureAwareVersion version) {
+		this(() -> Collections.singletonMap(MongodWrappers.DEFAULT, mongodWrapper), name -> version);
+	}
+
+	/**
+	 * @param mongodWrappers servers by instance name, resolved on each bind
+	 * @param versions version by instance name
+	 */
+	public MongodProcessMetrics(Supplier<Map<String, MongodWrapper>> mongodWrappers, Function<String, IFeatureAwareVersion> versions) {
+		this.mongodWrappers = mongodWrappers;
+		this.versions = versions;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		mongodWrappers.get().forEach((name, wrapper) -> {
+			Tags tags = Tags.of("port", String.valueOf(wrapper.serverAddress().getPort()),
+				"version", versions.apply(name).asInDownloadPath(), "instance", name);
+			bindTo(registry, wrapper, tags);
+		});
+	}
+
+	private static void bindTo(MeterRegistry registry, MongodWrapper wrapper, Tags tags) {
+		FunctionCounter.builder(EmbeddedMongoMetrics.PREFIX + "process.cpu.time", wrapper, value(stats -> stats.cpuTime().toMillis() / 1000.0))
+			.tags(tags).baseUnit("seconds").register(registry);
+		FunctionCounter.builder(EmbeddedMongoMetrics.PREFIX + "process.io.read", wrapper, value(ProcessStats::readBytes))
+			.tags(tags).baseUnit("bytes").register(registry);
+		FunctionCounter.builder(EmbeddedMongoMetrics.PREFIX + "process.io.written", wrapper, value(ProcessStats::writtenBytes))
+			.tags(tags).baseUnit("bytes").register(registry);
+		Gauge.builder(EmbeddedMongoMetrics.PREFIX + "process.memory.resident", wrapper, value(ProcessStats::residentBytes))
+			.tags(tags).baseUnit("bytes").register(registry);
+		Gauge.builder(EmbeddedMongoMetrics.PREFIX + "process.threads", wrapper, value(ProcessStats::threads))
+			.tags(tags).register(registry);
+	}
+
+	private static ToDoubleFunction<MongodWrapper> value(ToDoubleFunction<ProcessStats> value) {
+		return it -> it.processStats()
+			.map(value::applyAsDouble)
+			.orElse(Double.NaN);
+	}
+}
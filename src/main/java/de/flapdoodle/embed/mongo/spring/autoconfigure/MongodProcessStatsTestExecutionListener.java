@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Logs the resources used by each mongod process during a test class, if
+ * de.flapdoodle.mongodb.embedded.metrics.enabled is set.
+ */
+public class MongodProcessStatsTestExecutionListener extends AbstractTestExecutionListener {
+	private static final Logger logger = LoggerFactory.getLogger(MongodProcessStatsTestExecutionListener.class);
+
+	private static final Map<MongodWrapper, ProcessStats> lastSeen = new WeakHashMap<>();
+
+	@Override
+	public int getOrder() {
+		return LOWEST_PRECEDENCE;
+	}
+
+	@Override
+	public void afterTestClass(TestContext testContext) {
+		if (!testContext.hasApplicationContext()) {
+			return;
+		}
+		ApplicationContext context = testContext.getApplicationContext();
+		if (!context.getEnvironment().getProperty("de.flapdoodle.mongodb.embedded.metrics.enabled", Boolean.class, false)) {
+			return;
+		}
+
+		context.getBeansOfType(MongodWrapper.class).forEach((name, wrapper) -> {
+			try {
+				wrapper.processStats().ifPresent(current -> {
+					ProcessStats previous;
+					synchronized (lastSeen) {
+						previous = lastSeen.put(wrapper, current);
+					}
+					ProcessStats used = current.since(previous != null ? previous : ProcessStats.empty());
+					logger.info("{} - mongod({}, pid {}): cpu {}ms, read {} bytes, written {} bytes, rss {} bytes, threads {}",
+						testContext.getTestClass().getSimpleName(), name, wrapper.processId(), used.cpuTime().toMillis(),
+						used.readBytes(), used.writtenBytes(), used.residentBytes(), used.threads());
+				});
+			}
+			catch (RuntimeException rx) {
+				logger.debug("could not read process stats of {}", name, rx);
+			}
+		});
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.commands.MongoImportArguments;
+import de.flapdoodle.embed.mongo.commands.MongoRestoreArguments;
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.mongo.transitions.ImmutableMongod;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.reverse.transitions.Start;
+import de.flapdoodle.types.Try;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Additional embedded servers with the same version, arguments and fixtures as the default server, so parallel
+ * tests can be spread over several servers by {@link ShardedMongoDatabaseFactory}. The default server is the
+ * first shard, each additional server gets a free port and its own temporary database directory.
+ */
+public class MongodShards {
+	private static final Logger logger = LoggerFactory.getLogger(MongodShards.class);
+
+	private final IFeatureAwareVersion version;
+	private final MongoProperties properties;
+	private final MongoClientSettings clientSettings;
+	private final Mongod mongod;
+	private final Net net;
+	private final MongodArguments mongodArguments;
+	private final List<MongoRestoreArguments> mongoRestoreArguments;
+	private final List<MongoImportArguments> mongoImportArguments;
+	private final List<CollectionFixture> collectionFixtures;
+	private final Optional<ImportCache> importCache;
+	private final int additional;
+
+	private final List<MongodWrapper> wrappers = new ArrayList<>();
+	private final List<MongoClient> clients = new ArrayList<>();
+
+	MongodShards(
+		IFeatureAwareVersion version,
+		MongoProperties properties,
+		MongoClientSettings clientSettings,
+		Mongod mongod,
+		Net net,
+		MongodArguments mongodArguments,
+		List<MongoRestoreArguments> mongoRestoreArguments,
+		List<MongoImportArguments> mongoImportArguments,
+		List<CollectionFixture> collectionFixtures,
+		Optional<ImportCache> importCache,
+		int shards
+	) {
+		this.version = version;
+		this.properties = properties;
+		this.clientSettings = clientSettings;
+		this.mongod = mongod;
+		this.net = net;
+		this.mongodArguments = mongodArguments;
+		this.mongoRestoreArguments = mongoRestoreArguments;
+		this.mongoImportArguments = mongoImportArguments;
+		this.collectionFixtures = collectionFixtures;
+		this.importCache = importCache;
+		this.additional = Math.max(0, shards - 1);
+	}
+
+	/**
+	 * default number of shards, half of the available processors
+	 */
+	static int defaultShards() {
+		return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	}
+
+	/**
+	 * @return clients for the additional servers, without the default server
+	 */
+	public synchronized List<MongoClient> clients() {
+		return Collections.unmodifiableList(new ArrayList<>(clients));
+	}
+
+	/**
+	 * @return the additional servers, without the default server
+	 */
+	public synchronized List<MongodWrapper> wrappers() {
+		return Collections.unmodifiableList(new ArrayList<>(wrappers));
+	}
+
+	synchronized void start() {
+		if (additional == 0) {
+			return;
+		}
+
+		SyncClientServerFactory factory = new SyncClientServerFactory(properties, clientSettings);
+		List<MongodWrapper> created = new ArrayList<>();
+		for (int i = 0; i < additional; i++) {
+			Net shardNet = net.withPort(Try.get(() -> de.flapdoodle.net.Net.freeServerPort(net.getServerAddress())));
+			ImmutableMongod shardMongod = ImmutableMongod.copyOf(mongod)
+				.withNet(Start.to(Net.class).initializedWith(shardNet))
+				// never share a persistent database directory
+				.withDatabaseDir(Mongod.builder().build().databaseDir());
+			created.add(factory.createWrapper(version, shardMongod, mongodArguments, mongoRestoreArguments, mongoImportArguments,
+				collectionFixtures, importCache));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(created.size());
+		try {
+			List<CompletableFuture<Void>> started = new ArrayList<>();
+			for (MongodWrapper wrapper : created) {
+				started.add(CompletableFuture.runAsync(wrapper::start, executor));
+			}
+
+			RuntimeException failure = null;
+			for (int i = 0; i < created.size(); i++) {
+				try {
+					started.get(i).join();
+					wrappers.add(created.get(i));
+				}
+				catch (CompletionException cx) {
+					RuntimeException cause = cx.getCause() instanceof RuntimeException
+						? (RuntimeException) cx.getCause()
+						: new IllegalStateException("could not start shard " + (i + 1), cx.getCause());
+					if (failure == null) {
+						failure = cause;
+					} else {
+						failure.addSuppressed(cause);
+					}
+				}
+			}
+
+			if (failure != null) {
+				stop();
+				throw failure;
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		for (MongodWrapper wrapper : wrappers) {
+			ServerAddress serverAddress = wrapper.serverAddress();
+			clients.add(MongoClients.create(factory.clientSettings(clientSettings, serverAddress)));
+			logger.info("shard started on port {}", serverAddress.getPort());
+		}
+	}
+
+	synchronized void stop() {
+		clients.forEach(MongoClient::close);
+		clients.clear();
+
+		List<MongodWrapper> reversed = new ArrayList<>(wrappers);
+		Collections.reverse(reversed);
+		for (MongodWrapper wrapper : reversed) {
+			try {
+				wrapper.stop();
+			}
+			catch (RuntimeException rx) {
+				logger.warn("could not stop shard", rx);
+			}
+		}
+		wrappers.clear();
+	}
+}
@@ -21,32 +21,219 @@
 package de.flapdoodle.embed.mongo.spring.autoconfigure;
 
 import de.flapdoodle.checks.Preconditions;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.config.Net;
 import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.embed.process.archives.ExtractedFileSet;
+import de.flapdoodle.embed.process.io.ProcessOutput;
+import de.flapdoodle.embed.process.types.ProcessWorkingDir;
+import de.flapdoodle.embed.process.types.RunningProcess;
 import de.flapdoodle.reverse.Listener;
 import de.flapdoodle.reverse.StateID;
 import de.flapdoodle.reverse.TransitionWalker;
 import de.flapdoodle.reverse.Transitions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
-import java.util.List;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class MongodWrapper {
+	private static final Logger logger = LoggerFactory.getLogger(MongodWrapper.class);
+
+	// process ids by server, a server may outlive its wrapper (standby, devtools restart)
+	private static final Map<RunningMongodProcess, Long> processIds = Collections.synchronizedMap(new WeakHashMap<>());
 
 	private final Transitions transitions;
-	private final List<Listener> stateChangeListeners;
+	private final Function<ServerAddress, ServerClient> clientFactory;
+	private final Supplier<List<Listener>> stateChangeListeners;
 	private TransitionWalker.ReachedState<RunningMongodProcess> runningMongo = null;
+	private boolean fastShutdown = false;
+	private Supplier<Optional<String>> standbyKeySource = null;
+	private String standbyKey = null;
+	private Net standbyNet = null;
+	private int standbySize = 0;
+	private Supplier<Optional<String>> devToolsKeySource = null;
+	private String devToolsKey = null;
+	private int devToolsPort = 0;
+	private DevToolsRestart.Server devToolsServer = null;
 
 	public MongodWrapper(Transitions transitions, Listener ... stateChangeListeners) {
+		this(transitions, serverAddress -> {
+			throw new IllegalStateException("no client factory configured");
+		}, stateChangeListeners);
+	}
+
+	public MongodWrapper(Transitions transitions, Function<ServerAddress, ServerClient> clientFactory, Listener ... stateChangeListeners) {
+		this(transitions, clientFactory, () -> Arrays.asList(stateChangeListeners));
+	}
+
+	/**
+	 * @param stateChangeListeners called for each walk, so concurrent walks (standbys) do not share listener state
+	 */
+	MongodWrapper(Transitions transitions, Function<ServerAddress, ServerClient> clientFactory, Supplier<List<Listener>> stateChangeListeners) {
 		this.transitions = transitions;
-		this.stateChangeListeners = Arrays.asList(stateChangeListeners);
+		this.clientFactory = clientFactory;
+		this.stateChangeListeners = stateChangeListeners;
+	}
+
+	/**
+	 * kill the process on stop and clean up in the background, only for throw-away data
+	 */
+	public void setFastShutdown(boolean fastShutdown) {
+		this.fastShutdown = fastShutdown;
+	}
+
+	/**
+	 * take a pre-started server on start if one was started with the same key, and keep {@code size} servers started
+	 * and set up in the background for the next wrapper; the key is resolved on start, no standby is used if it is empty
+	 */
+	public void setStandby(Supplier<Optional<String>> key, Net net, int size) {
+		this.standbyKeySource = key;
+		this.standbyNet = net;
+		this.standbySize = size;
+	}
+
+	/**
+	 * keep the server running across DevTools restarts, the next context takes it if started with the same key,
+	 * resolved on start, never kept if the key is empty
+	 */
+	public void setDevToolsRestart(Supplier<Optional<String>> key, Net net) {
+		this.devToolsKeySource = key;
+		this.devToolsPort = net.getPort();
+	}
+
+	public ServerAddress serverAddress() {
+		Preconditions.checkNotNull(runningMongo, "not started");
+		return runningMongo.current().getServerAddress();
+	}
+
+	/**
+	 * @return process id of the running server
+	 */
+	public long processId() {
+		return Preconditions.checkNotNull(processIdOf(), "process id of %s unknown", serverAddress());
+	}
+
+	private Long processIdOf() {
+		Preconditions.checkNotNull(runningMongo, "not started");
+		return processIds.get(runningMongo.current());
+	}
+
+	/**
+	 * @return time from process start until mongod was ready, if started with {@link ReadinessProbe}
+	 */
+	public Optional<Duration> readinessLatency() {
+		Preconditions.checkNotNull(runningMongo, "not started");
+		RunningMongodProcess running = runningMongo.current();
+		return running instanceof ReadinessProbe.ReadyMongodProcess
+			? Optional.of(((ReadinessProbe.ReadyMongodProcess) running).readyAfter())
+			: Optional.empty();
+	}
+
+	public Optional<ProcessStats> processStats() {
+		return Optional.ofNullable(processIdOf()).flatMap(ProcessStats::of);
+	}
+
+	/**
+	 * @return a new client for the running server, must be closed by the caller
+	 */
+	public ServerClient client() {
+		return clientFactory.apply(serverAddress());
+	}
+
+	void start() {
+		devToolsKey = devToolsKeySource != null
+			? devToolsKeySource.get().orElse(null)
+			: null;
+		if (devToolsKey != null) {
+			// already set up by the previous context if parked, a standby would be walked with the listeners of another context
+			devToolsServer = DevToolsRestart.take(devToolsKey, devToolsPort, processOutput())
+				.orElseGet(() -> DevToolsRestart.start(transitions, listeners()));
+			runningMongo = devToolsServer.running();
+			return;
+		}
+
+		standbyKey = standbyKeySource != null
+			? standbyKeySource.get().orElse(null)
+			: null;
+		Optional<TransitionWalker.ReachedState<RunningMongodProcess>> standby = standbyKey != null
+			? StandbyPool.take(standbyKey, standbyNet.getPort())
+			: Optional.empty();
+		// a standby is already set up
+		runningMongo = standby.isPresent()
+			? standby.get()
+			: transitions.walker().initState(StateID.of(RunningMongodProcess.class), listeners());
+
+		if (standbyKey != null) {
+			StandbyPool.replenish(standbyKey, transitions, standbyNet, standbySize, this::listeners);
+		}
+	}
+
+	private ProcessOutput processOutput() {
+		try (TransitionWalker.ReachedState<ProcessOutput> processOutput = transitions.walker().initState(StateID.of(ProcessOutput.class))) {
+			return processOutput.current();
+		}
+	}
+
+	private List<Listener> listeners() {
+		List<Listener> listeners = new ArrayList<>(stateChangeListeners.get());
+		listeners.add(processIdListener());
+		return listeners;
 	}
 
-	private void start() {
-		runningMongo = transitions.walker().initState(StateID.of(RunningMongodProcess.class), stateChangeListeners.toArray(new Listener[0]));
+	/**
+	 * reads the pid file the process was started with, so no connection is needed to find the process
+	 */
+	private static Listener processIdListener() {
+		AtomicReference<Path> workingDir = new AtomicReference<>();
+		AtomicReference<Path> executable = new AtomicReference<>();
+		return Listener.typedBuilder()
+			.onStateReached(StateID.of(ProcessWorkingDir.class), it -> workingDir.set(it.value()))
+			.onStateReached(StateID.of(ExtractedFileSet.class), it -> executable.set(it.executable()))
+			.onStateReached(StateID.of(RunningMongodProcess.class), running -> {
+				if (workingDir.get() != null && executable.get() != null) {
+					Path pidFile = RunningProcess.pidFile(workingDir.get(), executable.get());
+					try {
+						processIds.put(running, Long.parseLong(new String(Files.readAllBytes(pidFile), StandardCharsets.UTF_8).trim()));
+					}
+					catch (IOException | NumberFormatException ex) {
+						logger.debug("could not read process id from {}", pidFile, ex);
+					}
+				}
+			})
+			.build();
 	}
 
-	private void stop() {
+	void stop() {
 		Preconditions.checkNotNull(runningMongo, "stop called, but runningMongo is null");
-		runningMongo.close();
+		if (devToolsKey != null && DevToolsRestart.park(devToolsKey, devToolsPort, devToolsServer)) {
+			return;
+		}
+		Long processId = processIdOf();
+		Optional<ProcessHandle> process = processId != null ? ProcessHandle.of(processId) : Optional.empty();
+		if (fastShutdown && process.isPresent()) {
+			TransitionWalker.ReachedState<RunningMongodProcess> running = runningMongo;
+			running.current().shutDownCommandAlreadyExecuted();
+			// SIGKILL, no graceful shutdown
+			process.get().destroyForcibly();
+			BackgroundCleanup.submit(() -> {
+				// only temp files are left as soon as the process is gone
+				process.get().onExit().join();
+				running.close();
+			});
+		} else if (standbyKey != null) {
+			// the next context uses a standby, so nobody waits for this one
+			BackgroundCleanup.submit(runningMongo::close);
+		} else {
+			runningMongo.close();
+		}
 	}
 }
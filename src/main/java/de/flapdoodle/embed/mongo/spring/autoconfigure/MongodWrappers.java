@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * All embedded servers of a context by name: the default server, the named instances and the additional shards.
+ */
+abstract class MongodWrappers {
+
+	static final String DEFAULT = "default";
+	static final String SHARD_PREFIX = "shard-";
+
+	private MongodWrappers() {
+		// no instance
+	}
+
+	static Map<String, MongodWrapper> of(MongodWrapper defaultWrapper, Optional<EmbeddedMongoInstances> instances,
+		Optional<MongodShards> shards) {
+		Map<String, MongodWrapper> wrappers = new LinkedHashMap<>();
+		wrappers.put(DEFAULT, defaultWrapper);
+		instances.ifPresent(it -> it.names().forEach(name -> wrappers.put(name, it.wrapper(name))));
+		shards.ifPresent(it -> {
+			List<MongodWrapper> additional = it.wrappers();
+			// the default server is the first shard
+			for (int i = 0; i < additional.size(); i++) {
+				wrappers.put(SHARD_PREFIX + (i + 1), additional.get(i));
+			}
+		});
+		return wrappers;
+	}
+
+	/**
+	 * @return version by server name, shards use the version of the default server
+	 */
+	static Function<String, IFeatureAwareVersion> versions(IFeatureAwareVersion defaultVersion, Optional<EmbeddedMongoInstances> instances) {
+		return name -> instances
+			.filter(it -> it.names().contains(name))
+			.map(it -> it.version(name))
+			.orElse(defaultVersion);
+	}
+
+	/**
+	 * @return the server listening on {@code port}, matched by port only, because the host may be a name or an address
+	 */
+	static Optional<MongodWrapper> byPort(Collection<MongodWrapper> wrappers, int port) {
+		return wrappers.stream()
+			.filter(it -> it.serverAddress().getPort() == port)
+			.findFirst();
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Matches if at least one instance is configured with {@code de.flapdoodle.mongodb.embedded.instances.<name>.*}.
+ */
+class OnEmbeddedMongoInstancesCondition extends SpringBootCondition {
+
+	@Override
+	public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+		Map<String, EmbeddedMongoProperties.Instance> instances = Binder.get(context.getEnvironment())
+			.bind(EmbeddedMongoInstancesRegistrar.PREFIX, Bindable.mapOf(String.class, EmbeddedMongoProperties.Instance.class))
+			.orElse(Collections.emptyMap());
+
+		return instances.isEmpty()
+			? ConditionOutcome.noMatch("no instances configured with " + EmbeddedMongoInstancesRegistrar.PREFIX)
+			: ConditionOutcome.match("instances " + instances.keySet() + " configured with " + EmbeddedMongoInstancesRegistrar.PREFIX);
+	}
+}
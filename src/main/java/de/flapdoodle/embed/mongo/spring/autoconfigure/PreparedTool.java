@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.process.archives.ExtractedFileSet;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.Transitions;
+import de.flapdoodle.reverse.transitions.Start;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Downloads and extracts a mongotools executable in the background, so it is ready when mongod accepts connections.
+ * Every walk of the tool transitions passed to {@link #apply(Transitions)} reuses the extracted file set.
+ * If the preparation fails the transitions are returned unchanged and the tool is resolved as before.
+ */
+final class PreparedTool implements AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(PreparedTool.class);
+
+	// downloads and extraction block, so they must not run in the common pool
+	private static final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "embedded-mongo-prepare-tool");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final String name;
+	private final Transitions toolTransitions;
+	private CompletableFuture<TransitionWalker.ReachedState<ExtractedFileSet>> prepared = null;
+
+	PreparedTool(String name, Transitions toolTransitions) {
+		this.name = name;
+		this.toolTransitions = toolTransitions;
+	}
+
+	synchronized void prepare() {
+		if (prepared == null) {
+			prepared = CompletableFuture.supplyAsync(() -> toolTransitions.walker().initState(StateID.of(ExtractedFileSet.class)),
+				executor);
+		}
+	}
+
+	synchronized Transitions apply(Transitions transitions) {
+		if (prepared != null) {
+			try {
+				ExtractedFileSet fileSet = prepared.join().current();
+				return transitions.replace(Start.to(ExtractedFileSet.class).initializedWith(fileSet));
+			}
+			catch (CompletionException cx) {
+				logger.warn("could not prepare {}, resolve it again", name, cx.getCause());
+			}
+		}
+		return transitions;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (prepared != null) {
+			prepared.thenAccept(TransitionWalker.ReachedState::close);
+			prepared = null;
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.immutables.value.Value;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resource usage of a process, read from /proc (linux only).
+ */
+@Value.Immutable
+public abstract class ProcessStats {
+
+	public abstract Duration cpuTime();
+
+	public abstract long residentBytes();
+
+	public abstract long readBytes();
+
+	public abstract long writtenBytes();
+
+	public abstract int threads();
+
+	/**
+	 * difference of the cumulative values, current values for resident memory and threads
+	 */
+	public ProcessStats since(ProcessStats previous) {
+		return builder()
+			.cpuTime(cpuTime().minus(previous.cpuTime()))
+			.residentBytes(residentBytes())
+			.readBytes(readBytes() - previous.readBytes())
+			.writtenBytes(writtenBytes() - previous.writtenBytes())
+			.threads(threads())
+			.build();
+	}
+
+	public static ImmutableProcessStats.Builder builder() {
+		return ImmutableProcessStats.builder();
+	}
+
+	public static ProcessStats empty() {
+		return builder()
+			.cpuTime(Duration.ZERO)
+			.residentBytes(0)
+			.readBytes(0)
+			.writtenBytes(0)
+			.threads(0)
+			.build();
+	}
+
+	public static Optional<ProcessStats> of(long pid) {
+		return of(Paths.get("/proc", String.valueOf(pid)), ClockTicks.PER_SECOND);
+	}
+
+	static Optional<ProcessStats> of(Path procDir, long clockTicksPerSecond) {
+		if (!Files.isDirectory(procDir)) {
+			return Optional.empty();
+		}
+		try {
+			String stat = new String(Files.readAllBytes(procDir.resolve("stat")), StandardCharsets.UTF_8);
+			List<String> status = Files.readAllLines(procDir.resolve("status"), StandardCharsets.UTF_8);
+			Path ioFile = procDir.resolve("io");
+			List<String> io = Files.isReadable(ioFile)
+				? Files.readAllLines(ioFile, StandardCharsets.UTF_8)
+				: Collections.emptyList();
+
+			// the command name in braces may contain spaces, fields are counted from the closing brace
+			String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split("\\s+");
+			long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+
+			return Optional.of(builder()
+				.cpuTime(Duration.ofMillis(ticks * 1000 / clockTicksPerSecond))
+				.residentBytes(valueOf(status, "VmRSS:") * 1024)
+				.threads((int) valueOf(status, "Threads:"))
+				.readBytes(valueOf(io, "read_bytes:"))
+				.writtenBytes(valueOf(io, "write_bytes:"))
+				.build());
+		}
+		catch (IOException | RuntimeException ex) {
+			// process is gone or the format is unknown
+			return Optional.empty();
+		}
+	}
+
+	static long clockTicksPerSecond(String getconfOutput) {
+		try {
+			long value = Long.parseLong(getconfOutput.trim());
+			return value > 0 ? value : ClockTicks.DEFAULT;
+		}
+		catch (NumberFormatException ex) {
+			return ClockTicks.DEFAULT;
+		}
+	}
+
+	private static long valueOf(List<String> lines, String key) {
+		for (String line : lines) {
+			if (line.startsWith(key)) {
+				return Long.parseLong(line.substring(key.length()).trim().split("\\s+")[0]);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * USER_HZ, read once with {@code getconf CLK_TCK}, 100 if it can not be read
+	 */
+	private static final class ClockTicks {
+		private static final long DEFAULT = 100;
+		private static final long PER_SECOND = read();
+
+		private static long read() {
+			try {
+				Process process = new ProcessBuilder("getconf", "CLK_TCK")
+					.redirectErrorStream(true)
+					.start();
+				try (InputStream output = process.getInputStream()) {
+					String value = new String(readAll(output), StandardCharsets.UTF_8);
+					return process.waitFor(5, TimeUnit.SECONDS) && process.exitValue() == 0
+						? clockTicksPerSecond(value)
+						: DEFAULT;
+				}
+				finally {
+					process.destroy();
+				}
+			}
+			catch (IOException ex) {
+				return DEFAULT;
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return DEFAULT;
+			}
+		}
+
+		private static byte[] readAll(InputStream input) throws IOException {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			byte[] chunk = new byte[256];
+			int read;
+			while ((read = input.read(chunk)) != -1) {
+				buffer.write(chunk, 0, read);
+			}
+			return buffer.toByteArray();
+		}
+	}
+}
@@ -21,17 +21,90 @@
 package de.flapdoodle.embed.mongo.spring.autoconfigure;
 
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCredential;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.InsertManyOptions;
 import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
 import de.flapdoodle.embed.mongo.client.ReactiveClientAdapter;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import org.bson.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
 
 public class ReactiveClientServerFactory extends AbstractServerFactory<MongoClient> {
 	private static Logger logger = LoggerFactory.getLogger(ReactiveClientServerFactory.class);
 
+	private final MongoClientSettings clientSettings;
+
 	ReactiveClientServerFactory(MongoProperties properties, MongoClientSettings clientSettings) {
-		super(properties, new ReactiveClientAdapter(clientSettings));
+		this(properties, withoutCommandListeners(clientSettings), new SetupSession<>(MongoClient.class));
+	}
+
+	private ReactiveClientServerFactory(MongoProperties properties, MongoClientSettings clientSettings, SetupSession<MongoClient> session) {
+		super(properties, new SessionClientAdapter(clientSettings, session), session);
+		this.clientSettings = clientSettings;
 		logger.info("reactive server factory");
 	}
+
+	@Override
+	protected MongoClient client(ServerAddress serverAddress) {
+		return MongoClients.create(clientSettings(clientSettings, serverAddress));
+	}
+
+	@Override
+	protected ServerClient serverClient(MongoClient client) {
+		return new ServerClient() {
+			@Override
+			public Document runCommand(String databaseName, Document command) {
+				return Mono.from(client.getDatabase(databaseName).runCommand(command)).block();
+			}
+
+			@Override
+			public void drop(String databaseName, String collectionName) {
+				Mono.from(client.getDatabase(databaseName).getCollection(collectionName).drop()).block();
+			}
+
+			@Override
+			public void insertMany(String databaseName, String collectionName, List<Document> documents) {
+				Mono.from(client.getDatabase(databaseName).getCollection(collectionName)
+					.insertMany(documents, new InsertManyOptions().ordered(false))).block();
+			}
+
+			@Override
+			public void createIndexes(String databaseName, String collectionName, List<IndexModel> indexes) {
+				Flux.from(client.getDatabase(databaseName).getCollection(collectionName).createIndexes(indexes)).blockLast();
+			}
+
+			@Override
+			public void close() {
+				client.close();
+			}
+		};
+	}
+
+	private static class SessionClientAdapter extends ReactiveClientAdapter {
+		private final SetupSession<MongoClient> session;
+
+		SessionClientAdapter(MongoClientSettings clientSettings, SetupSession<MongoClient> session) {
+			super(clientSettings);
+			this.session = session;
+		}
+
+		@Override
+		protected MongoClient client(ServerAddress serverAddress) {
+			return session.client(serverAddress, Optional.empty(), () -> super.client(serverAddress));
+		}
+
+		@Override
+		protected MongoClient client(ServerAddress serverAddress, MongoCredential credential) {
+			return session.client(serverAddress, Optional.of(credential), () -> super.client(serverAddress, credential));
+		}
+	}
 }
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.runtime.Mongod;
+import de.flapdoodle.embed.mongo.transitions.MongodStarter;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.embed.process.config.SupportConfig;
+import de.flapdoodle.embed.process.io.*;
+import de.flapdoodle.embed.process.runtime.ProcessControl;
+import de.flapdoodle.embed.process.types.RunningProcessFactory;
+import de.flapdoodle.os.Platform;
+import de.flapdoodle.types.Try;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Starts mongod and waits until it is ready, whichever comes first: the log message mongod prints when it accepts
+ * connections, or an answer to a hello command sent to its port (which also works if mongod does not log to stdout).
+ * If the process dies before it is ready, the start fails at once with its exit code and output instead of waiting
+ * for the start timeout.
+ */
+public abstract class ReadinessProbe {
+	private static final Logger logger = LoggerFactory.getLogger(ReadinessProbe.class);
+
+	private static final long PROBE_INTERVAL_MS = 10;
+	private static final int PROBE_TIMEOUT_MS = 250;
+	private static final int OP_MSG = 2013;
+	private static final int OP_REPLY = 1;
+
+	// same messages as RunningMongoProcess, which does not expose them, ReadinessProbeTest fails if they diverge
+	static final List<String> SUCCESS_MESSAGES = Arrays.asList("aiting for connections");
+	static final List<String> FAILURE_MESSAGES = Arrays.asList(
+		"(?<error>failed errno)",
+		"ERROR:(?<error>.*)",
+		"(?<error>error command line)",
+		"(?<error>Error parsing command line:.*)",
+		"(?<error>Address already in use)",
+		"(?<error>error while loading shared libraries:.*)",
+		"(?<error>SSLEAY32\\.dll was not found)",
+		"(?<error>LIBEAY32\\.dll was not found)",
+		"(?<error>the code execution cannot proceed because.*)",
+		"(?<error>An attempt was made to access a socket in a way forbidden by its access permissions)");
+
+	private ReadinessProbe() {
+		// no instance
+	}
+
+	public static MongodStarter mongodStarter() {
+		return new MongodStarter() {
+			@Override
+			protected RunningProcessFactory<RunningMongodProcess> factory(long startTimeout, SupportConfig supportConfig, Platform platform, Net net) {
+				return ReadinessProbe.factory(startTimeout, supportConfig, platform, net);
+			}
+		};
+	}
+
+	static RunningProcessFactory<RunningMongodProcess> factory(long startTimeout, SupportConfig supportConfig, Platform platform, Net net) {
+		return (processControl, processOutput, pidFile, stopTimeout) -> {
+			long started = System.nanoTime();
+			CompletableFuture<String> ready = new CompletableFuture<>();
+
+			SuccessMessageLineListener logWatch = SuccessMessageLineListener.of(SUCCESS_MESSAGES, FAILURE_MESSAGES, "error");
+			Consumer<String> inspect = line -> {
+				logWatch.inspect(line);
+				if (logWatch.successMessageFound()) {
+					ready.complete("log");
+				}
+				logWatch.errorMessage().ifPresent(error -> ready.completeExceptionally(new IllegalStateException(error)));
+			};
+
+			ReaderProcessor output = Processors.connect(processControl.getReader(),
+				new ListeningStreamProcessor(StreamToLineProcessor.wrap(processOutput.output()), inspect));
+			ReaderProcessor error = Processors.connect(processControl.getError(),
+				new ListeningStreamProcessor(StreamToLineProcessor.wrap(processOutput.error()), inspect));
+			Runnable onStop = () -> ReaderProcessor.abortAll(output, error);
+
+			InetSocketAddress address = new InetSocketAddress(Try.get(net::getServerAddress), net.getPort());
+			Thread probe = new Thread(() -> probe(address, processControl, ready), "mongod-readiness-probe");
+			probe.setDaemon(true);
+			probe.start();
+
+			String readyBy;
+			try {
+				readyBy = ready.get(startTimeout, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException ix) {
+				Thread.currentThread().interrupt();
+				throw failed(processControl, stopTimeout, onStop, ready, "interrupted", logWatch);
+			}
+			catch (TimeoutException tx) {
+				throw failed(processControl, stopTimeout, onStop, ready, "not ready after " + startTimeout + "ms", logWatch);
+			}
+			catch (ExecutionException ex) {
+				// give the readers a moment to collect the last lines of a dying process
+				join(output, error);
+				throw failed(processControl, stopTimeout, onStop, ready, ex.getCause().getMessage(), logWatch);
+			}
+
+			Duration readyAfter = Duration.ofNanos(System.nanoTime() - started);
+			logger.info("mongod on port {} ready after {}ms (by {})", net.getPort(), readyAfter.toMillis(), readyBy);
+
+			int processId = Mongod.getMongodProcessId(logWatch.allLines(), -1);
+			if (processId <= 0 && processControl.getPid() != null) {
+				processId = processControl.getPid().intValue();
+			}
+			return new ReadyMongodProcess(processControl, pidFile, stopTimeout, onStop, supportConfig, platform, net, processOutput.commands(),
+				processId, readyAfter, readyBy);
+		};
+	}
+
+	private static void probe(InetSocketAddress address, ProcessControl processControl, CompletableFuture<String> ready) {
+		while (!ready.isDone()) {
+			if (!processControl.isAlive()) {
+				ready.completeExceptionally(new IllegalStateException("process exited before it was ready"));
+				return;
+			}
+			if (hello(address, PROBE_TIMEOUT_MS)) {
+				ready.complete("hello");
+				return;
+			}
+			try {
+				Thread.sleep(PROBE_INTERVAL_MS);
+			}
+			catch (InterruptedException ix) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * sends a hello command as OP_MSG, any reply (even an error for an unknown command) means the server is ready
+	 */
+	static boolean hello(InetSocketAddress address, int timeoutMs) {
+		byte[] command = bytes(new BsonDocument("hello", new BsonInt32(1)).append("$db", new BsonString("admin")));
+		int requestId = ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE);
+
+		ByteBuffer message = ByteBuffer.allocate(16 + 4 + 1 + command.length).order(ByteOrder.LITTLE_ENDIAN);
+		message.putInt(message.capacity()).putInt(requestId).putInt(0).putInt(OP_MSG);
+		message.putInt(0).put((byte) 0).put(command);
+
+		try (Socket socket = new Socket()) {
+			socket.connect(address, timeoutMs);
+			socket.setSoTimeout(timeoutMs);
+			socket.setTcpNoDelay(true);
+			OutputStream out = socket.getOutputStream();
+			out.write(message.array());
+			out.flush();
+
+			InputStream in = socket.getInputStream();
+			byte[] header = new byte[16];
+			new DataInputStream(in).readFully(header);
+			ByteBuffer reply = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+			int length = reply.getInt();
+			reply.getInt();
+			int responseTo = reply.getInt();
+			int opCode = reply.getInt();
+			return length > 16 && responseTo == requestId && (opCode == OP_MSG || opCode == OP_REPLY);
+		}
+		catch (IOException iox) {
+			return false;
+		}
+	}
+
+	private static byte[] bytes(BsonDocument document) {
+		ByteBuffer buffer = new RawBsonDocument(document, new BsonDocumentCodec()).getByteBuffer().asNIO();
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	private static void join(ReaderProcessor... readers) {
+		for (ReaderProcessor reader : readers) {
+			try {
+				reader.join(200);
+			}
+			catch (InterruptedException ix) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private static RuntimeException failed(ProcessControl processControl, long stopTimeout, Runnable onStop,
+		CompletableFuture<String> ready, String reason, SuccessMessageLineListener logWatch) {
+		// stops the probe
+		ready.cancel(false);
+		try {
+			processControl.stop(stopTimeout);
+		}
+		finally {
+			onStop.run();
+		}
+		return new RuntimeException("mongod failed to start: " + reason
+			+ "\n- 8<- - - - - - - - - -\n" + logWatch.allLines() + "\n- >8- - - - - - - - - -\n");
+	}
+
+	/**
+	 * running mongod which remembers how long it took until it was ready
+	 */
+	public static class ReadyMongodProcess extends RunningMongodProcess {
+		private final Duration readyAfter;
+		private final String readyBy;
+
+		ReadyMongodProcess(ProcessControl process, Path pidFile, long timeout, Runnable onStop, SupportConfig supportConfig,
+			Platform platform, Net net, StreamProcessor commandOutput, int mongodProcessId, Duration readyAfter, String readyBy) {
+			super(process, pidFile, timeout, onStop, supportConfig, platform, net, commandOutput, mongodProcessId);
+			this.readyAfter = readyAfter;
+			this.readyBy = readyBy;
+		}
+
+		public Duration readyAfter() {
+			return readyAfter;
+		}
+
+		/**
+		 * @return "log" or "hello", whichever detected readiness first
+		 */
+		public String readyBy() {
+			return readyBy;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Remembers the outermost Spring Data repository method called on the current thread, so that
+ * {@link CommandLatencies} can attribute commands to it. Works with blocking repositories, reactive ones
+ * send their commands from other threads.
+ */
+public final class RepositoryMethodCaller implements MethodInterceptor {
+
+	private static final ThreadLocal<String> current = new ThreadLocal<>();
+
+	private final Class<?> repositoryInterface;
+
+	RepositoryMethodCaller(Class<?> repositoryInterface) {
+		this.repositoryInterface = repositoryInterface;
+	}
+
+	/**
+	 * @return repository method (Interface.method) called on this thread, empty if none
+	 */
+	public static String current() {
+		String caller = current.get();
+		return caller != null ? caller : "";
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		if (current.get() != null) {
+			return invocation.proceed();
+		}
+		current.set(repositoryInterface.getSimpleName() + "." + invocation.getMethod().getName());
+		try {
+			return invocation.proceed();
+		}
+		finally {
+			current.remove();
+		}
+	}
+
+	/**
+	 * adds the interceptor to every repository created by a {@link RepositoryFactoryBeanSupport}
+	 */
+	static BeanPostProcessor beanPostProcessor() {
+		return TypedBeanPostProcessor.applyBeforeInitialization(RepositoryFactoryBeanSupport.class, factoryBean -> {
+			factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+				(proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(new RepositoryMethodCaller(repositoryInformation.getRepositoryInterface()))));
+			return factoryBean;
+		});
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.client.model.IndexModel;
+import org.bson.Document;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * Client for the embedded server, independent of the used driver (sync or reactive).
+ */
+public interface ServerClient extends Closeable {
+
+	Document runCommand(String databaseName, Document command);
+
+	void drop(String databaseName, String collectionName);
+
+	void insertMany(String databaseName, String collectionName, List<Document> documents);
+
+	void createIndexes(String databaseName, String collectionName, List<IndexModel> indexes);
+
+	@Override
+	void close();
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.MongoCredential;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.reverse.Listener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Clients for the setup steps after a start (auth, replica set, data). While the session of a server is open,
+ * all steps share one client per credential instead of creating and closing a client (with its own pool,
+ * monitor threads and handshake) for each action. The clients are closed when the last step is done.
+ */
+class SetupSession<C extends Closeable> {
+	private static final Logger logger = LoggerFactory.getLogger(SetupSession.class);
+
+	private final Class<C> type;
+	private final Set<ServerAddress> open = ConcurrentHashMap.newKeySet();
+	private final Map<List<Object>, C> clients = new ConcurrentHashMap<>();
+
+	SetupSession(Class<C> type) {
+		this.type = type;
+	}
+
+	/**
+	 * @return session which creates a new client for each action, if the client type is not known
+	 */
+	static <C extends Closeable> SetupSession<C> unshared() {
+		return new SetupSession<>(null);
+	}
+
+	/**
+	 * @return the shared client of the open session, which ignores close, or a new client if no session is open
+	 */
+	C client(ServerAddress serverAddress, Optional<MongoCredential> credential, Supplier<C> factory) {
+		if (type == null || !open.contains(serverAddress)) {
+			return factory.get();
+		}
+		return unclosable(clients.computeIfAbsent(Arrays.asList(serverAddress, credential.orElse(null)), key -> factory.get()));
+	}
+
+	/**
+	 * @return listener which runs all steps in one session when the server is started
+	 */
+	Listener around(Listener... steps) {
+		return Listeners.onRunning(Listeners.all(steps), (running, setup) -> {
+			ServerAddress serverAddress = running.getServerAddress();
+			open(serverAddress);
+			try {
+				setup.run();
+			}
+			finally {
+				close(serverAddress);
+			}
+		});
+	}
+
+	void open(ServerAddress serverAddress) {
+		open.add(serverAddress);
+	}
+
+	void close(ServerAddress serverAddress) {
+		open.remove(serverAddress);
+		Iterator<Map.Entry<List<Object>, C>> entries = clients.entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry<List<Object>, C> entry = entries.next();
+			if (entry.getKey().get(0).equals(serverAddress)) {
+				entries.remove();
+				try {
+					entry.getValue().close();
+				}
+				catch (IOException | RuntimeException x) {
+					logger.warn("could not close setup client for {}", serverAddress, x);
+				}
+			}
+		}
+	}
+
+	private C unclosable(C client) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+			if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+				return null;
+			}
+			try {
+				return method.invoke(client, args);
+			}
+			catch (InvocationTargetException ix) {
+				throw ix.getCause();
+			}
+		}));
+	}
+}
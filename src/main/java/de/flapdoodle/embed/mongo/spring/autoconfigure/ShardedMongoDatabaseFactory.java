@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * {@link MongoDatabaseFactory} which assigns each test class to one of several servers (round robin on first use), so
+ * test classes running in parallel use different servers. {@link ShardingTestExecutionListener} selects the server of
+ * the test class before each test method; outside of a test each thread is assigned a server on first use.
+ * <p>
+ * Only class-level concurrency is isolated: methods of the same class always share its server, also if they run
+ * concurrently. If there are more test classes than servers, some classes share a server.
+ */
+public class ShardedMongoDatabaseFactory implements MongoDatabaseFactory {
+
+	private final List<MongoDatabaseFactory> shards;
+	private final AtomicInteger next = new AtomicInteger();
+	private final ConcurrentMap<Class<?>, MongoDatabaseFactory> byTestClass = new ConcurrentHashMap<>();
+	private final ThreadLocal<MongoDatabaseFactory> selected = new ThreadLocal<>();
+	private final ThreadLocal<MongoDatabaseFactory> byThread;
+
+	public ShardedMongoDatabaseFactory(List<MongoClient> clients, String databaseName) {
+		this.shards = clients.stream()
+			.map(client -> new SimpleMongoClientDatabaseFactory(client, databaseName))
+			.collect(Collectors.toList());
+		this.byThread = ThreadLocal.withInitial(this::nextShard);
+	}
+
+	/**
+	 * use the server of {@code testClass} on the current thread until {@link #clearTestClass()}
+	 */
+	public void selectTestClass(Class<?> testClass) {
+		selected.set(byTestClass.computeIfAbsent(testClass, it -> nextShard()));
+	}
+
+	public void clearTestClass() {
+		selected.remove();
+	}
+
+	/**
+	 * @return index of the server used by the current thread
+	 */
+	public int shard() {
+		return shards.indexOf(current());
+	}
+
+	private MongoDatabaseFactory nextShard() {
+		return shards.get(Math.floorMod(next.getAndIncrement(), shards.size()));
+	}
+
+	private MongoDatabaseFactory current() {
+		MongoDatabaseFactory testClassShard = selected.get();
+		return testClassShard != null
+			? testClassShard
+			: byThread.get();
+	}
+
+	@Override
+	public MongoDatabase getMongoDatabase() throws DataAccessException {
+		return current().getMongoDatabase();
+	}
+
+	@Override
+	public MongoDatabase getMongoDatabase(String dbName) throws DataAccessException {
+		return current().getMongoDatabase(dbName);
+	}
+
+	@Override
+	public PersistenceExceptionTranslator getExceptionTranslator() {
+		return current().getExceptionTranslator();
+	}
+
+	@Override
+	public CodecRegistry getCodecRegistry() {
+		return current().getCodecRegistry();
+	}
+
+	@Override
+	public ClientSession getSession(ClientSessionOptions options) {
+		return current().getSession(options);
+	}
+
+	@Override
+	public MongoDatabaseFactory withSession(ClientSession session) {
+		return current().withSession(session);
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+
+/**
+ * Selects the server of the test class in {@link ShardedMongoDatabaseFactory} for each test method, if
+ * de.flapdoodle.mongodb.embedded.sharding.enabled is set.
+ */
+public class ShardingTestExecutionListener extends AbstractTestExecutionListener {
+
+	private static final String PROPERTY = "de.flapdoodle.mongodb.embedded.sharding.enabled";
+
+	@Override
+	public int getOrder() {
+		// before the test method and its @BeforeEach methods use the database
+		return HIGHEST_PRECEDENCE;
+	}
+
+	@Override
+	public void beforeTestMethod(TestContext testContext) {
+		if (enabled(testContext)) {
+			testContext.getApplicationContext().getBeanProvider(ShardedMongoDatabaseFactory.class)
+				.ifAvailable(factory -> factory.selectTestClass(testContext.getTestClass()));
+		}
+	}
+
+	@Override
+	public void afterTestMethod(TestContext testContext) {
+		if (enabled(testContext)) {
+			testContext.getApplicationContext().getBeanProvider(ShardedMongoDatabaseFactory.class)
+				.ifAvailable(ShardedMongoDatabaseFactory::clearTestClass);
+		}
+	}
+
+	private static boolean enabled(TestContext testContext) {
+		if (!testContext.hasApplicationContext()) {
+			return false;
+		}
+		ApplicationContext context = testContext.getApplicationContext();
+		return context.getEnvironment().getProperty(PROPERTY, Boolean.class, false);
+	}
+}
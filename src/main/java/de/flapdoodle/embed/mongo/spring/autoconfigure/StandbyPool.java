@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.Listener;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.Transitions;
+import de.flapdoodle.reverse.transitions.Start;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Keeps started and set up mongod instances in the background, so the next context (e.g. after @DirtiesContext) gets
+ * a ready server at once. The port of a standby is handed out when the {@link Net} of a context is created; the wrapper
+ * takes the standby on start if it was started with the same key (server settings, credentials and data), and replaces
+ * it in the background. A standby runs all setup steps (users, replica set, data) before it can be taken. Unused
+ * standbys are stopped on jvm shutdown.
+ */
+abstract class StandbyPool {
+	private static final Logger logger = LoggerFactory.getLogger(StandbyPool.class);
+
+	private static final List<Standby> standbys = new ArrayList<>();
+	private static final Set<Integer> poolablePorts = new HashSet<>();
+	private static final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "embedded-mongo-standby");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(StandbyPool::closeAll, "embedded-mongo-standby-shutdown"));
+	}
+
+	private StandbyPool() {
+		// no instance
+	}
+
+	/**
+	 * @return port of an unclaimed standby, or a free port if there is none
+	 */
+	static synchronized int port(InetAddress host) throws IOException {
+		Optional<Standby> standby = standbys.stream()
+			.filter(it -> !it.reserved && !it.running.isCompletedExceptionally())
+			.findFirst();
+		int port;
+		if (standby.isPresent()) {
+			standby.get().reserved = true;
+			port = standby.get().port;
+		} else {
+			port = de.flapdoodle.net.Net.freeServerPort(host);
+		}
+		poolablePorts.add(port);
+		return port;
+	}
+
+	/**
+	 * hands the standby reserved for this port out again, if the context which reserved it did not take it
+	 */
+	static synchronized void release(int port) {
+		standbys.stream()
+			.filter(it -> it.port == port && it.reserved)
+			.forEach(it -> {
+				logger.info("release standby on port {}", port);
+				it.reserved = false;
+			});
+	}
+
+	/**
+	 * @return the standby started on this port, if started with the same key; it is stopped otherwise, so the port
+	 * is free for a new server
+	 */
+	static Optional<TransitionWalker.ReachedState<RunningMongodProcess>> take(String key, int port) {
+		Standby standby;
+		synchronized (StandbyPool.class) {
+			standby = standbys.stream()
+				.filter(it -> it.port == port)
+				.findFirst()
+				.orElse(null);
+			if (standby == null) {
+				return Optional.empty();
+			}
+			standbys.remove(standby);
+		}
+
+		if (!standby.key.equals(key)) {
+			logger.info("standby on port {} was started with different settings, stop it", port);
+			standby.close();
+			return Optional.empty();
+		}
+
+		TransitionWalker.ReachedState<RunningMongodProcess> running;
+		try {
+			running = standby.running.join();
+		}
+		catch (CompletionException cx) {
+			logger.warn("standby on port {} failed to start", port, cx.getCause());
+			return Optional.empty();
+		}
+
+		logger.info("use standby on port {}", port);
+		return Optional.of(running);
+	}
+
+	/**
+	 * start standbys in the background until there are {@code size} unclaimed ones for this key, each is set up by
+	 * its own {@code listeners}
+	 */
+	static synchronized void replenish(String key, Transitions transitions, Net net, int size, Supplier<List<Listener>> listeners) {
+		if (!poolablePorts.contains(net.getPort())) {
+			logger.debug("port {} is not managed by the standby pool, no standby is started", net.getPort());
+			return;
+		}
+
+		long unclaimed = standbys.stream()
+			.filter(it -> it.key.equals(key) && !it.reserved)
+			.count();
+		for (long i = unclaimed; i < size; i++) {
+			int port;
+			try {
+				port = de.flapdoodle.net.Net.freeServerPort(net.getServerAddress());
+			}
+			catch (IOException iox) {
+				logger.warn("no free port for standby", iox);
+				return;
+			}
+			Transitions standbyTransitions = transitions.replace(Start.to(Net.class).initializedWith(net.withPort(port)));
+			List<Listener> standbyListeners = listeners.get();
+			CompletableFuture<TransitionWalker.ReachedState<RunningMongodProcess>> running = CompletableFuture.supplyAsync(
+				() -> standbyTransitions.walker().initState(StateID.of(RunningMongodProcess.class), standbyListeners), executor);
+			standbys.add(new Standby(key, port, running));
+			logger.info("start standby on port {}", port);
+		}
+	}
+
+	private static void closeAll() {
+		List<Standby> unclaimed;
+		synchronized (StandbyPool.class) {
+			unclaimed = new ArrayList<>(standbys);
+			standbys.clear();
+		}
+		unclaimed.forEach(Standby::close);
+	}
+
+	private static final class Standby {
+		private final String key;
+		private final int port;
+		private final CompletableFuture<TransitionWalker.ReachedState<RunningMongodProcess>> running;
+		private boolean reserved = false;
+
+		private Standby(String key, int port, CompletableFuture<TransitionWalker.ReachedState<RunningMongodProcess>> running) {
+			this.key = key;
+			this.port = port;
+			this.running = running;
+		}
+
+		private void close() {
+			try {
+				running.join().close();
+			}
+			catch (RuntimeException rx) {
+				logger.debug("could not stop standby on port {}", port, rx);
+			}
+		}
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Optional;
+
+/**
+ * port of a standby reserved for a context; released on context close, so a standby the wrapper did not take (e.g. the
+ * context failed to start) is handed out again
+ */
+public final class StandbyReservation {
+	private final Integer port;
+
+	private StandbyReservation(Integer port) {
+		this.port = port;
+	}
+
+	public Optional<Integer> port() {
+		return Optional.ofNullable(port);
+	}
+
+	public void release() {
+		if (port != null) {
+			StandbyPool.release(port);
+		}
+	}
+
+	static StandbyReservation reserve(InetAddress host) throws IOException {
+		return new StandbyReservation(StandbyPool.port(host));
+	}
+
+	static StandbyReservation none() {
+		return new StandbyReservation(null);
+	}
+}
@@ -21,17 +21,88 @@
 package de.flapdoodle.embed.mongo.spring.autoconfigure;
 
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCredential;
 import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.InsertManyOptions;
 import de.flapdoodle.embed.mongo.client.SyncClientAdapter;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import org.bson.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
 
+import java.util.List;
+import java.util.Optional;
+
 public class SyncClientServerFactory extends AbstractServerFactory<MongoClient> {
 	private static Logger logger = LoggerFactory.getLogger(SyncClientServerFactory.class);
 
+	private final MongoClientSettings clientSettings;
+
 	SyncClientServerFactory(MongoProperties properties, MongoClientSettings clientSettings) {
-		super(properties, new SyncClientAdapter(clientSettings));
+		this(properties, withoutCommandListeners(clientSettings), new SetupSession<>(MongoClient.class));
+	}
+
+	private SyncClientServerFactory(MongoProperties properties, MongoClientSettings clientSettings, SetupSession<MongoClient> session) {
+		super(properties, new SessionClientAdapter(clientSettings, session), session);
+		this.clientSettings = clientSettings;
 		logger.info("sync server factory");
 	}
+
+	@Override
+	protected MongoClient client(ServerAddress serverAddress) {
+		return MongoClients.create(clientSettings(clientSettings, serverAddress));
+	}
+
+	@Override
+	protected ServerClient serverClient(MongoClient client) {
+		return new ServerClient() {
+			@Override
+			public Document runCommand(String databaseName, Document command) {
+				return client.getDatabase(databaseName).runCommand(command);
+			}
+
+			@Override
+			public void drop(String databaseName, String collectionName) {
+				client.getDatabase(databaseName).getCollection(collectionName).drop();
+			}
+
+			@Override
+			public void insertMany(String databaseName, String collectionName, List<Document> documents) {
+				client.getDatabase(databaseName).getCollection(collectionName)
+					.insertMany(documents, new InsertManyOptions().ordered(false));
+			}
+
+			@Override
+			public void createIndexes(String databaseName, String collectionName, List<IndexModel> indexes) {
+				client.getDatabase(databaseName).getCollection(collectionName).createIndexes(indexes);
+			}
+
+			@Override
+			public void close() {
+				client.close();
+			}
+		};
+	}
+
+	private static class SessionClientAdapter extends SyncClientAdapter {
+		private final SetupSession<MongoClient> session;
+
+		SessionClientAdapter(MongoClientSettings clientSettings, SetupSession<MongoClient> session) {
+			super(clientSettings);
+			this.session = session;
+		}
+
+		@Override
+		protected MongoClient client(ServerAddress serverAddress) {
+			return session.client(serverAddress, Optional.empty(), () -> super.client(serverAddress));
+		}
+
+		@Override
+		protected MongoClient client(ServerAddress serverAddress, MongoCredential credential) {
+			return session.client(serverAddress, Optional.of(credential), () -> super.client(serverAddress, credential));
+		}
+	}
 }
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Collects $indexStats, top and $collStats of all application databases of each embedded server when the context is
+ * closed, before the servers are stopped, and writes a report of unused indexes and the most used collections.
+ */
+public class UsageReport {
+	private static final Logger logger = LoggerFactory.getLogger(UsageReport.class);
+
+	private static final Set<String> SYSTEM_DATABASES = new HashSet<>(Arrays.asList("admin", "config", "local"));
+
+	private final Supplier<Map<String, MongodWrapper>> mongodWrappers;
+	private final Optional<Path> file;
+
+	public UsageReport(MongodWrapper mongodWrapper, Optional<Path> file) {
+		this(() -> Collections.singletonMap(MongodWrappers.DEFAULT, mongodWrapper), file);
+	}
+
+	/**
+	 * @param mongodWrappers all servers by name, each one gets its own section
+	 */
+	public UsageReport(Supplier<Map<String, MongodWrapper>> mongodWrappers, Optional<Path> file) {
+		this.mongodWrappers = mongodWrappers;
+		this.file = file;
+	}
+
+	/**
+	 * called on context shutdown, the embedded servers are stopped afterwards
+	 */
+	public void write() {
+		Map<String, List<CollectionUsage>> usagesByServer = new LinkedHashMap<>();
+		mongodWrappers.get().forEach((name, mongodWrapper) -> {
+			try (ServerClient client = mongodWrapper.client()) {
+				usagesByServer.put(name, collect(client));
+			}
+			catch (RuntimeException rx) {
+				logger.warn("could not collect usage report of {}", name, rx);
+			}
+		});
+		if (usagesByServer.isEmpty()) {
+			return;
+		}
+		String report = render(usagesByServer);
+
+		if (file.isPresent()) {
+			try {
+				Path parent = file.get().toAbsolutePath().getParent();
+				if (parent != null) {
+					Files.createDirectories(parent);
+				}
+				Files.write(file.get(), report.getBytes(StandardCharsets.UTF_8));
+				logger.info("usage report written to {}", file.get());
+			}
+			catch (IOException iox) {
+				throw new UncheckedIOException("could not write usage report to " + file.get(), iox);
+			}
+		} else {
+			logger.info("usage report:\n{}", report);
+		}
+	}
+
+	static List<CollectionUsage> collect(ServerClient client) {
+		Document top = client.runCommand("admin", new Document("top", 1)).get("totals", Document.class);
+
+		List<CollectionUsage> usages = new ArrayList<>();
+		for (String database : databases(client)) {
+			for (String collection : collections(client, database)) {
+				String namespace = database + "." + collection;
+				Document topOfCollection = top != null ? top.get(namespace, Document.class) : null;
+				List<Document> indexStats = aggregate(client, database, collection, new Document("$indexStats", new Document()));
+				List<Document> collStats = aggregate(client, database, collection,
+					new Document("$collStats", new Document("storageStats", new Document())));
+
+				usages.add(new CollectionUsage(namespace,
+					number(topOfCollection, "readLock", "time"),
+					number(topOfCollection, "readLock", "count"),
+					number(topOfCollection, "writeLock", "time"),
+					number(topOfCollection, "writeLock", "count"),
+					collStats.isEmpty() ? 0 : number(collStats.get(0), "storageStats", "wiredTiger", "cache", "bytes read into cache"),
+					unusedIndexes(indexStats)));
+			}
+		}
+		return usages;
+	}
+
+	/**
+	 * one section per server, without a header if there is only one
+	 */
+	static String render(Map<String, List<CollectionUsage>> usagesByServer) {
+		if (usagesByServer.size() == 1) {
+			return render(usagesByServer.values().iterator().next());
+		}
+		StringBuilder sb = new StringBuilder();
+		usagesByServer.forEach((name, usages) -> sb.append("server ").append(name).append(":\n")
+			.append(render(usages).replaceAll("(?m)^", "  ")));
+		return sb.toString();
+	}
+
+	static String render(List<CollectionUsage> usages) {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("unused indexes:\n");
+		List<CollectionUsage> withUnusedIndexes = usages.stream()
+			.filter(it -> !it.unusedIndexes.isEmpty())
+			.collect(Collectors.toList());
+		if (withUnusedIndexes.isEmpty()) {
+			sb.append("  none\n");
+		}
+		withUnusedIndexes.forEach(it -> sb.append("  ").append(it.namespace).append(": ").append(String.join(", ", it.unusedIndexes)).append("\n"));
+
+		sb.append("collections by time spent:\n");
+		usages.stream()
+			.sorted(Comparator.comparingLong((CollectionUsage it) -> it.readTimeMicros + it.writeTimeMicros).reversed()
+				.thenComparing(it -> it.namespace))
+			.forEach(it -> sb.append(String.format(Locale.ROOT, "  %-40s read %6dms (%d ops)  write %6dms (%d ops)  cache bytes read %d%n",
+				it.namespace,
+				TimeUnit.MICROSECONDS.toMillis(it.readTimeMicros), it.readCount,
+				TimeUnit.MICROSECONDS.toMillis(it.writeTimeMicros), it.writeCount,
+				it.cacheBytesRead)));
+
+		return sb.toString();
+	}
+
+	private static List<String> databases(ServerClient client) {
+		return client.runCommand("admin", new Document("listDatabases", 1).append("nameOnly", true))
+			.getList("databases", Document.class).stream()
+			.map(it -> it.getString("name"))
+			.filter(it -> !SYSTEM_DATABASES.contains(it))
+			.sorted()
+			.collect(Collectors.toList());
+	}
+
+	private static List<String> collections(ServerClient client, String database) {
+		return client.runCommand(database, new Document("listCollections", 1)
+				.append("filter", new Document("type", "collection"))
+				.append("nameOnly", true))
+			.get("cursor", Document.class)
+			.getList("firstBatch", Document.class).stream()
+			.map(it -> it.getString("name"))
+			.filter(it -> !it.startsWith("system."))
+			.sorted()
+			.collect(Collectors.toList());
+	}
+
+	private static List<Document> aggregate(ServerClient client, String database, String collection, Document stage) {
+		return client.runCommand(database, new Document("aggregate", collection)
+				.append("pipeline", Collections.singletonList(stage))
+				.append("cursor", new Document("batchSize", 1000)))
+			.get("cursor", Document.class)
+			.getList("firstBatch", Document.class);
+	}
+
+	private static List<String> unusedIndexes(List<Document> indexStats) {
+		return indexStats.stream()
+			.filter(it -> !"_id_".equals(it.getString("name")))
+			.filter(it -> number(it, "accesses", "ops") == 0)
+			.map(it -> it.getString("name"))
+			.sorted()
+			.collect(Collectors.toList());
+	}
+
+	private static long number(Document document, String... path) {
+		Object current = document;
+		for (String key : path) {
+			if (!(current instanceof Document)) {
+				return 0;
+			}
+			current = ((Document) current).get(key);
+		}
+		return current instanceof Number
+			? ((Number) current).longValue()
+			: 0;
+	}
+
+	static final class CollectionUsage {
+		private final String namespace;
+		private final long readTimeMicros;
+		private final long readCount;
+		private final long writeTimeMicros;
+		private final long writeCount;
+		private final long cacheBytesRead;
+		private final List<String> unusedIndexes;
+
+		CollectionUsage(String namespace, long readTimeMicros, long readCount, long writeTimeMicros, long writeCount,
+			long cacheBytesRead, List<String> unusedIndexes) {
+			this.namespace = namespace;
+			this.readTimeMicros = readTimeMicros;
+			this.readCount = readCount;
+			this.writeTimeMicros = writeTimeMicros;
+			this.writeCount = writeCount;
+			this.cacheBytesRead = cacheBytesRead;
+			this.unusedIndexes = unusedIndexes;
+		}
+	}
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.MongoSecurityException;
+import de.flapdoodle.embed.mongo.commands.MongoImportArguments;
+import de.flapdoodle.embed.mongo.commands.MongoRestoreArguments;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.types.DatabaseDir;
+import de.flapdoodle.reverse.Listener;
+import de.flapdoodle.reverse.StateID;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Setup steps for a persistent database directory. Each step first looks for the state a previous run left behind
+ * (user exists, replica set configured, data loaded from unchanged sources) and skips itself if found, so a restart
+ * is just a process launch.
+ */
+abstract class WarmRestart {
+	private static final Logger logger = LoggerFactory.getLogger(WarmRestart.class);
+
+	static final String DATA_MARKER = "embedded-mongo-data.properties";
+
+	private static final long REPLICA_SET_TIMEOUT_MILLIS = 30_000;
+	private static final long POLL_INTERVAL_MILLIS = 100;
+
+	private WarmRestart() {
+		// no instance
+	}
+
+	/**
+	 * skips the user setup if the configured user can already authenticate
+	 */
+	static Listener authentication(Function<ServerAddress, ServerClient> clientFactory, Listener setupAuthentication) {
+		return Listeners.onRunning(setupAuthentication, (running, setup) -> {
+			if (canAuthenticate(clientFactory, running.getServerAddress())) {
+				logger.info("user already exists, skip authentication setup");
+			} else {
+				setup.run();
+			}
+		});
+	}
+
+	/**
+	 * skips replSetInitiate if the server already has a replica set config and waits until it is elected as primary
+	 */
+	static Listener replicaSet(Function<ServerAddress, ServerClient> clientFactory, Listener initReplicaSet) {
+		return Listeners.onRunning(initReplicaSet, (running, initiate) -> {
+			try (ServerClient client = clientFactory.apply(running.getServerAddress())) {
+				if (!isMaster(client).containsKey("setName")) {
+					try {
+						initiate.run();
+						return;
+					}
+					catch (RuntimeException rx) {
+						// the config of a previous run may still be loading
+						if (!await(client, it -> it.containsKey("setName"))) {
+							throw rx;
+						}
+					}
+				}
+				logger.info("replica set already configured, skip replSetInitiate");
+				if (!await(client, it -> Boolean.TRUE.equals(it.getBoolean("ismaster")))) {
+					throw new IllegalStateException("replica set not elected as primary after " + REPLICA_SET_TIMEOUT_MILLIS + "ms: "
+						+ running.getServerAddress());
+				}
+			}
+		});
+	}
+
+	/**
+	 * skips all data steps (restore, import, fixtures) if the data was loaded from the same sources before,
+	 * marked by {@link #DATA_MARKER} in the database directory, so the marker is wiped together with the data and
+	 * needs no privileges beyond the application database
+	 */
+	static Listener data(Function<ServerAddress, ServerClient> clientFactory, String databaseName,
+		Optional<Supplier<Optional<String>>> dataKeySource, Listener... steps) {
+		Listener allSteps = Listeners.all(steps);
+
+		if (!dataKeySource.isPresent()) {
+			return allSteps;
+		}
+
+		AtomicReference<Path> databaseDir = new AtomicReference<>();
+		return Listeners.all(
+			Listener.typedBuilder()
+				.onStateReached(StateID.of(DatabaseDir.class), dir -> databaseDir.set(dir.value()))
+				.build(),
+			Listeners.onRunning(allSteps, (running, load) -> {
+				Optional<String> dataKey = dataKeySource.get().get();
+				if (!dataKey.isPresent() || databaseDir.get() == null) {
+					load.run();
+					return;
+				}
+				Path marker = databaseDir.get().resolve(DATA_MARKER);
+				BooleanSupplier hasCollections = () -> hasCollections(clientFactory, running.getServerAddress(), databaseName);
+				if (dataKey.equals(loadedDataKey(marker, hasCollections))) {
+					logger.info("data already loaded, skip restore, import and fixtures");
+				} else {
+					load.run();
+					markLoaded(marker, dataKey.get(), hasCollections.getAsBoolean());
+				}
+			}));
+	}
+
+	/**
+	 * @param importKey import cache key of {@code mongoImportArguments}
+	 * @return hash of everything the data steps load, empty if there is nothing to load or a source can not be hashed
+	 */
+	static Optional<String> dataKey(
+		List<MongoRestoreArguments> mongoRestoreArguments,
+		List<MongoImportArguments> mongoImportArguments,
+		Optional<String> importKey,
+		List<CollectionFixture> collectionFixtures
+	) {
+		if (mongoRestoreArguments.isEmpty() && mongoImportArguments.isEmpty() && collectionFixtures.isEmpty()) {
+			return Optional.empty();
+		}
+
+		MessageDigest digest = ImportCache.sha256();
+		try {
+			for (MongoRestoreArguments arguments : mongoRestoreArguments) {
+				Optional<String> source = arguments.archive().isPresent() ? arguments.archive() : arguments.dir();
+				if (!source.isPresent() || !Files.exists(Paths.get(source.get()))) {
+					return Optional.empty();
+				}
+				ImportCache.update(digest, arguments.toString());
+				for (Path file : files(Paths.get(source.get()))) {
+					ImportCache.update(digest, Paths.get(source.get()).relativize(file).toString());
+					try (InputStream in = Files.newInputStream(file)) {
+						ImportCache.update(digest, in);
+					}
+				}
+			}
+
+			if (!mongoImportArguments.isEmpty()) {
+				if (!importKey.isPresent()) {
+					return Optional.empty();
+				}
+				ImportCache.update(digest, importKey.get());
+			}
+
+			for (CollectionFixture fixture : collectionFixtures) {
+				ImportCache.update(digest, fixture.databaseName());
+				ImportCache.update(digest, fixture.collectionName());
+				ImportCache.update(digest, String.valueOf(fixture.dropCollection()));
+				ImportCache.update(digest, fixture.indexes().toString());
+				try (InputStream in = fixture.source().open()) {
+					ImportCache.update(digest, in);
+				}
+			}
+		}
+		catch (IOException iox) {
+			throw new IllegalStateException("could not hash data sources", iox);
+		}
+		return Optional.of(ImportCache.hex(digest.digest()));
+	}
+
+	/**
+	 * @param hasCollections checked only if the application database had collections after loading, because a dropped
+	 *                       database must be loaded again
+	 */
+	static Optional<String> loadedDataKey(Path marker, BooleanSupplier hasCollections) {
+		if (!Files.isRegularFile(marker)) {
+			return Optional.empty();
+		}
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(marker)) {
+			properties.load(in);
+		}
+		catch (IOException iox) {
+			logger.warn("could not read {}", marker, iox);
+			return Optional.empty();
+		}
+		if (Boolean.parseBoolean(properties.getProperty("collections")) && !hasCollections.getAsBoolean()) {
+			return Optional.empty();
+		}
+		return Optional.ofNullable(properties.getProperty("key"));
+	}
+
+	static void markLoaded(Path marker, String dataKey, boolean hasCollections) {
+		Properties properties = new Properties();
+		properties.setProperty("key", dataKey);
+		properties.setProperty("collections", String.valueOf(hasCollections));
+		try {
+			Path temp = Files.createTempFile(marker.getParent(), marker.getFileName().toString(), ".tmp");
+			try (OutputStream out = Files.newOutputStream(temp)) {
+				properties.store(out, null);
+			}
+			Files.move(temp, marker, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException iox) {
+			logger.warn("could not write {}, data is loaded again on next start", marker, iox);
+		}
+	}
+
+	static boolean hasCollections(Function<ServerAddress, ServerClient> clientFactory, ServerAddress serverAddress,
+		String databaseName) {
+		try (ServerClient client = clientFactory.apply(serverAddress)) {
+			Document result = client.runCommand(databaseName, new Document("listCollections", 1)
+				.append("nameOnly", true));
+			return !result.get("cursor", Document.class).getList("firstBatch", Document.class).isEmpty();
+		}
+	}
+
+	static boolean canAuthenticate(Function<ServerAddress, ServerClient> clientFactory, ServerAddress serverAddress) {
+		try (ServerClient client = clientFactory.apply(serverAddress)) {
+			client.runCommand("admin", new Document("ping", 1));
+			return true;
+		}
+		catch (MongoSecurityException sx) {
+			return false;
+		}
+	}
+
+	private static Document isMaster(ServerClient client) {
+		// hello is not known by older versions
+		return client.runCommand("admin", new Document("isMaster", 1));
+	}
+
+	private static boolean await(ServerClient client, Predicate<Document> condition) {
+		long until = System.currentTimeMillis() + REPLICA_SET_TIMEOUT_MILLIS;
+		while (!condition.test(isMaster(client))) {
+			if (System.currentTimeMillis() > until) {
+				return false;
+			}
+			try {
+				Thread.sleep(POLL_INTERVAL_MILLIS);
+			}
+			catch (InterruptedException ix) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static List<Path> files(Path source) throws IOException {
+		if (Files.isDirectory(source)) {
+			try (Stream<Path> files = Files.walk(source)) {
+				return files.filter(Files::isRegularFile)
+					.sorted()
+					.collect(Collectors.toList());
+			}
+		}
+		return Collections.singletonList(source);
+	}
+}
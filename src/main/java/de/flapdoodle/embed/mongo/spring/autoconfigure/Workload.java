@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.immutables.value.Value;
+
+/**
+ * YCSB style workload for {@link WorkloadGenerator}: operation mix, document size, key distribution,
+ * concurrency and target throughput. Runs with the same seed choose the same keys and operations.
+ */
+@Value.Immutable
+public abstract class Workload {
+
+	public enum Operation {
+		READ, UPDATE, INSERT, AGGREGATE
+	}
+
+	public enum KeyDistribution {
+		UNIFORM,
+		/**
+		 * some keys are much more popular than others
+		 */
+		ZIPFIAN,
+		/**
+		 * recently inserted keys are the most popular
+		 */
+		LATEST
+	}
+
+	@Value.Default
+	public String collectionName() {
+		return "workload";
+	}
+
+	/**
+	 * documents inserted before the run
+	 */
+	@Value.Default
+	public int recordCount() {
+		return 1000;
+	}
+
+	@Value.Default
+	public int operationCount() {
+		return 10000;
+	}
+
+	@Value.Default
+	public double readProportion() {
+		return 0.5;
+	}
+
+	@Value.Default
+	public double updateProportion() {
+		return 0.5;
+	}
+
+	@Value.Default
+	public double insertProportion() {
+		return 0;
+	}
+
+	@Value.Default
+	public double aggregateProportion() {
+		return 0;
+	}
+
+	/**
+	 * size of the payload of each document in bytes
+	 */
+	@Value.Default
+	public int documentSize() {
+		return 100;
+	}
+
+	@Value.Default
+	public KeyDistribution keyDistribution() {
+		return KeyDistribution.UNIFORM;
+	}
+
+	@Value.Default
+	public int threads() {
+		return 1;
+	}
+
+	/**
+	 * operations per second over all threads, unlimited if zero
+	 */
+	@Value.Default
+	public int targetOpsPerSecond() {
+		return 0;
+	}
+
+	@Value.Default
+	public long seed() {
+		return 42;
+	}
+
+	@Value.Check
+	protected void check() {
+		if (recordCount() <= 0) {
+			throw new IllegalArgumentException("recordCount must be greater than zero: " + recordCount());
+		}
+		if (threads() <= 0) {
+			throw new IllegalArgumentException("threads must be greater than zero: " + threads());
+		}
+		if (operationCount() < 0 || documentSize() < 0 || targetOpsPerSecond() < 0) {
+			throw new IllegalArgumentException("negative operationCount, documentSize or targetOpsPerSecond: " + this);
+		}
+		if (readProportion() < 0 || updateProportion() < 0 || insertProportion() < 0 || aggregateProportion() < 0
+			|| totalProportion() <= 0) {
+			throw new IllegalArgumentException("proportions must not be negative and not all zero: " + this);
+		}
+	}
+
+	Operation operation(double random) {
+		double[] proportions = { readProportion(), updateProportion(), insertProportion(), aggregateProportion() };
+		double value = random * totalProportion();
+		Operation last = null;
+		for (Operation operation : Operation.values()) {
+			double proportion = proportions[operation.ordinal()];
+			if (proportion > 0) {
+				last = operation;
+				if ((value -= proportion) < 0) {
+					return operation;
+				}
+			}
+		}
+		// rounding may leave a rest for a random value close to 1, it must not pick an operation without proportion
+		return last;
+	}
+
+	private double totalProportion() {
+		return readProportion() + updateProportion() + insertProportion() + aggregateProportion();
+	}
+
+	public static ImmutableWorkload.Builder builder() {
+		return ImmutableWorkload.builder();
+	}
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.HdrHistogram.Histogram;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a {@link Workload} against a {@link MongoTemplate} or {@link ReactiveMongoTemplate}, usually the one
+ * connected to the embedded server, and records the latency of each operation in a HdrHistogram.
+ * <p>
+ * With a target throughput every operation has an intended start time and the latency is measured from there,
+ * so a stalled server shows up in the histogram instead of only slowing down the generator (coordinated omission).
+ */
+public class WorkloadGenerator {
+	private static final Logger logger = LoggerFactory.getLogger(WorkloadGenerator.class);
+
+	private static final int LOAD_BATCH_SIZE = 1000;
+
+	private final Target target;
+
+	private WorkloadGenerator(Target target) {
+		this.target = target;
+	}
+
+	public static WorkloadGenerator of(MongoTemplate template) {
+		return new WorkloadGenerator(new SyncTarget(template));
+	}
+
+	public static WorkloadGenerator of(ReactiveMongoTemplate template) {
+		return new WorkloadGenerator(new ReactiveTarget(template));
+	}
+
+	/**
+	 * (re)creates the collection with {@link Workload#recordCount()} documents
+	 */
+	public void load(Workload workload) {
+		SplittableRandom random = new SplittableRandom(workload.seed());
+		target.drop(workload.collectionName());
+		List<Document> batch = new ArrayList<>(LOAD_BATCH_SIZE);
+		for (long key = 0; key < workload.recordCount(); key++) {
+			batch.add(document(key, workload.documentSize(), random));
+			if (batch.size() == LOAD_BATCH_SIZE) {
+				target.insertAll(workload.collectionName(), batch);
+				batch = new ArrayList<>(LOAD_BATCH_SIZE);
+			}
+		}
+		if (!batch.isEmpty()) {
+			target.insertAll(workload.collectionName(), batch);
+		}
+	}
+
+	public WorkloadResult run(Workload workload) {
+		AtomicLong keyCount = new AtomicLong(workload.recordCount());
+		AtomicLong nextInsertKey = new AtomicLong(workload.recordCount());
+		KeyGenerator keys = new KeyGenerator(workload.keyDistribution(), keyCount);
+
+		int threads = workload.threads();
+		long intervalNanos = workload.targetOpsPerSecond() > 0
+			? (long) (threads * 1_000_000_000.0 / workload.targetOpsPerSecond())
+			: 0;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			long start = System.nanoTime();
+			List<Future<Map<Workload.Operation, Histogram>>> results = new ArrayList<>();
+			for (int thread = 0; thread < threads; thread++) {
+				int operations = workload.operationCount() / threads + (thread < workload.operationCount() % threads ? 1 : 0);
+				SplittableRandom random = new SplittableRandom(workload.seed() + thread + 1);
+				// spread the threads over the interval, so their operations do not arrive at once
+				long threadStart = start + thread * intervalNanos / threads;
+				results.add(executor.submit(() -> runThread(workload, operations, random, keys, keyCount, nextInsertKey, threadStart,
+					intervalNanos)));
+			}
+
+			Map<Workload.Operation, Histogram> latencies = new EnumMap<>(Workload.Operation.class);
+			for (Future<Map<Workload.Operation, Histogram>> result : results) {
+				result.get().forEach((operation, histogram) -> latencies.computeIfAbsent(operation, it -> new Histogram(3)).add(histogram));
+			}
+
+			WorkloadResult result = new WorkloadResult(latencies, Duration.ofNanos(System.nanoTime() - start));
+			logger.info("workload {} done:\n{}", workload.collectionName(), result);
+			return result;
+		}
+		catch (InterruptedException ix) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted", ix);
+		}
+		catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new IllegalStateException("workload failed", ex.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Map<Workload.Operation, Histogram> runThread(Workload workload, int operations, SplittableRandom random, KeyGenerator keys,
+		AtomicLong keyCount, AtomicLong nextInsertKey, long start, long intervalNanos) {
+
+		Map<Workload.Operation, Histogram> latencies = new EnumMap<>(Workload.Operation.class);
+		String collection = workload.collectionName();
+
+		for (int i = 0; i < operations; i++) {
+			long intended = System.nanoTime();
+			if (intervalNanos > 0) {
+				intended = start + i * intervalNanos;
+				long wait;
+				while ((wait = intended - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(wait);
+				}
+			}
+
+			Workload.Operation operation = workload.operation(random.nextDouble());
+			switch (operation) {
+				case READ:
+					target.findById(collection, key(keys.next(random)));
+					break;
+				case UPDATE:
+					target.increment(collection, key(keys.next(random)));
+					break;
+				case INSERT:
+					long key = nextInsertKey.getAndIncrement();
+					target.insert(collection, document(key, workload.documentSize(), random));
+					keyCount.accumulateAndGet(key + 1, Math::max);
+					break;
+				case AGGREGATE:
+					target.sumFrom(collection, key(keys.next(random)));
+					break;
+			}
+
+			latencies.computeIfAbsent(operation, it -> new Histogram(3))
+				.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended));
+		}
+		return latencies;
+	}
+
+	static String key(long key) {
+		return String.format("user%012d", key);
+	}
+
+	private static Document document(long key, int size, SplittableRandom random) {
+		byte[] payload = new byte[size];
+		for (int i = 0; i < size; i++) {
+			payload[i] = (byte) random.nextInt(256);
+		}
+		return new Document("_id", key(key))
+			.append("counter", 0)
+			.append("payload", new Binary(payload));
+	}
+
+	private static Query byId(String id) {
+		return Query.query(Criteria.where("_id").is(id));
+	}
+
+	private static Aggregation sumFrom(String id) {
+		return Aggregation.newAggregation(
+			Aggregation.match(Criteria.where("_id").gte(id)),
+			Aggregation.limit(10),
+			Aggregation.group().sum("counter").as("total"));
+	}
+
+	private interface Target {
+		void drop(String collection);
+
+		void insertAll(String collection, List<Document> documents);
+
+		void insert(String collection, Document document);
+
+		void findById(String collection, String id);
+
+		void increment(String collection, String id);
+
+		void sumFrom(String collection, String id);
+	}
+
+	private static class SyncTarget implements Target {
+		private final MongoTemplate template;
+
+		SyncTarget(MongoTemplate template) {
+			this.template = template;
+		}
+
+		@Override
+		public void drop(String collection) {
+			template.dropCollection(collection);
+		}
+
+		@Override
+		public void insertAll(String collection, List<Document> documents) {
+			template.insert(documents, collection);
+		}
+
+		@Override
+		public void insert(String collection, Document document) {
+			template.insert(document, collection);
+		}
+
+		@Override
+		public void findById(String collection, String id) {
+			template.findById(id, Document.class, collection);
+		}
+
+		@Override
+		public void increment(String collection, String id) {
+			template.updateFirst(byId(id), new Update().inc("counter", 1), collection);
+		}
+
+		@Override
+		public void sumFrom(String collection, String id) {
+			template.aggregate(WorkloadGenerator.sumFrom(id), collection, Document.class);
+		}
+	}
+
+	private static class ReactiveTarget implements Target {
+		private final ReactiveMongoTemplate template;
+
+		ReactiveTarget(ReactiveMongoTemplate template) {
+			this.template = template;
+		}
+
+		@Override
+		public void drop(String collection) {
+			template.dropCollection(collection).block();
+		}
+
+		@Override
+		public void insertAll(String collection, List<Document> documents) {
+			template.insert(documents, collection).blockLast();
+		}
+
+		@Override
+		public void insert(String collection, Document document) {
+			template.insert(document, collection).block();
+		}
+
+		@Override
+		public void findById(String collection, String id) {
+			template.findById(id, Document.class, collection).block();
+		}
+
+		@Override
+		public void increment(String collection, String id) {
+			template.updateFirst(byId(id), new Update().inc("counter", 1), collection).block();
+		}
+
+		@Override
+		public void sumFrom(String collection, String id) {
+			template.aggregate(WorkloadGenerator.sumFrom(id), collection, Document.class).blockLast();
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Latencies (in microseconds) per operation and overall throughput of a {@link WorkloadGenerator} run.
+ */
+// no immutable, the annotation processor can not handle the upper case package name of HdrHistogram
+public final class WorkloadResult {
+
+	private final Map<Workload.Operation, Histogram> latencies;
+	private final Duration elapsed;
+
+	WorkloadResult(Map<Workload.Operation, Histogram> latencies, Duration elapsed) {
+		this.latencies = Collections.unmodifiableMap(latencies);
+		this.elapsed = elapsed;
+	}
+
+	public Map<Workload.Operation, Histogram> latencies() {
+		return latencies;
+	}
+
+	public Duration elapsed() {
+		return elapsed;
+	}
+
+	public long operations() {
+		return latencies.values().stream()
+			.mapToLong(Histogram::getTotalCount)
+			.sum();
+	}
+
+	public double opsPerSecond() {
+		return elapsed.isZero()
+			? 0
+			: operations() * 1_000_000_000.0 / elapsed.toNanos();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%d operations in %d ms, %.1f ops/s%n", operations(), elapsed.toMillis(), opsPerSecond()));
+		latencies.forEach((operation, histogram) -> sb.append(String.format("%-10s count=%d p50=%dus p99=%dus p99.9=%dus max=%dus%n",
+			operation, histogram.getTotalCount(), histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99),
+			histogram.getValueAtPercentile(99.9), histogram.getMaxValue())));
+		return sb.toString();
+	}
+}
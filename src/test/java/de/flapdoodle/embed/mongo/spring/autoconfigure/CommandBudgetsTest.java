@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CommandBudgetsTest {
+
+	private static final ConnectionDescription CONNECTION = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+	@Test
+	void countOnlyWhileTracking() {
+		CommandBudgets testee = new CommandBudgets();
+
+		command(testee, 1, "find", new BsonDocument("find", new BsonString("people")), 1);
+
+		CommandBudgets.Tracking tracking = testee.start();
+		command(testee, 2, "hello", new BsonDocument("hello", new BsonInt64(1)), 1);
+		command(testee, 3, "find", new BsonDocument("find", new BsonString("people")), 3);
+		command(testee, 4, "getMore", new BsonDocument("getMore", new BsonInt64(7)).append("collection", new BsonString("people")), 2);
+		command(testee, 5, "find", new BsonDocument("find", new BsonString("orders")), 4);
+		testee.stop(tracking);
+
+		command(testee, 6, "find", new BsonDocument("find", new BsonString("people")), 1);
+
+		assertThat(tracking.commands()).containsExactly("find people", "find orders");
+		assertThat(tracking.roundTrips()).isEqualTo(3);
+		assertThat(tracking.timeMs()).isEqualTo(9);
+	}
+
+	@Test
+	void countCommandsOfTheTrackingThread() throws Exception {
+		CommandBudgets testee = new CommandBudgets();
+		CommandBudgets.Tracking tracking = testee.start();
+
+		Thread other = new Thread(() -> {
+			CommandBudgets.Tracking otherTracking = testee.start();
+			command(testee, 1, "find", new BsonDocument("find", new BsonString("orders")), 1);
+			testee.stop(otherTracking);
+		});
+		other.start();
+		other.join();
+		command(testee, 2, "find", new BsonDocument("find", new BsonString("people")), 1);
+
+		testee.stop(tracking);
+		assertThat(tracking.commands()).containsExactly("find people");
+	}
+
+	@Test
+	void countCommandsOfOtherThreadsOnlyIfUnambiguous() throws Exception {
+		CommandBudgets testee = new CommandBudgets();
+		CommandBudgets.Tracking tracking = testee.start();
+
+		Thread driver = new Thread(() -> command(testee, 1, "find", new BsonDocument("find", new BsonString("people")), 1));
+		driver.start();
+		driver.join();
+
+		assertThat(tracking.commands()).containsExactly("find people");
+
+		AtomicReference<CommandBudgets.Tracking> other = new AtomicReference<>();
+		Thread parallelTest = new Thread(() -> other.set(testee.start()));
+		parallelTest.start();
+		parallelTest.join();
+		Thread ambiguous = new Thread(() -> command(testee, 2, "find", new BsonDocument("find", new BsonString("orders")), 1));
+		ambiguous.start();
+		ambiguous.join();
+
+		testee.stop(other.get());
+		testee.stop(tracking);
+		assertThat(tracking.commands()).containsExactly("find people");
+		assertThat(other.get().commands()).isEmpty();
+	}
+
+	@Test
+	void failIfBudgetIsExceeded() throws NoSuchMethodException {
+		MongoQueryBudget budget = getClass().getDeclaredMethod("budget").getAnnotation(MongoQueryBudget.class);
+		CommandBudgets testee = new CommandBudgets();
+
+		CommandBudgets.Tracking tracking = testee.start();
+		command(testee, 1, "find", new BsonDocument("find", new BsonString("people")), 3);
+		assertThatCode(() -> MongoQueryBudgetExtension.check(budget, tracking))
+			.doesNotThrowAnyException();
+
+		command(testee, 2, "find", new BsonDocument("find", new BsonString("orders")), 3);
+		assertThatThrownBy(() -> MongoQueryBudgetExtension.check(budget, tracking))
+			.isInstanceOf(AssertionError.class)
+			.hasMessageContaining("2 commands (max 1)")
+			.hasMessageContaining("6ms total command time (max 5ms)")
+			.hasMessageContaining("find orders");
+	}
+
+	@Test
+	void enabledOnlyForTestsUsingABudget() {
+		assertThat(MongoQueryBudgetContextCustomizerFactory.usesQueryBudget(getClass())).isTrue();
+		assertThat(MongoQueryBudgetContextCustomizerFactory.usesQueryBudget(WithBudget.class)).isTrue();
+		assertThat(MongoQueryBudgetContextCustomizerFactory.usesQueryBudget(CommandLatenciesTest.class)).isFalse();
+	}
+
+	@MongoQueryBudget(maxCommands = 1, maxTotalTimeMs = 5)
+	private static void budget() {
+	}
+
+	@MongoQueryBudget(maxCommands = 1)
+	static class WithBudget {
+	}
+
+	private static void command(CommandBudgets testee, int requestId, String name, BsonDocument command, long millis) {
+		testee.commandStarted(new CommandStartedEvent(null, 1, requestId, CONNECTION, "test", name, command));
+		testee.commandSucceeded(new CommandSucceededEvent(null, 1, requestId, CONNECTION, "test", name, new BsonDocument(),
+			TimeUnit.MILLISECONDS.toNanos(millis)));
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.HdrHistogram.Histogram;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommandLatenciesTest {
+
+	private static final ConnectionDescription CONNECTION = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+	@Test
+	void recordPerCommandAndCollection() {
+		CommandLatencies testee = new CommandLatencies();
+
+		command(testee, 1, "find", new BsonDocument("find", new BsonString("people")), 2_000);
+		command(testee, 2, "find", new BsonDocument("find", new BsonString("people")), 4_000);
+		command(testee, 3, "getMore", new BsonDocument("getMore", new BsonInt64(17)).append("collection", new BsonString("people")), 1_000);
+		command(testee, 4, "ping", new BsonDocument("ping", new BsonInt64(1)), 500);
+		testee.commandStarted(new CommandStartedEvent(null, 1, 5, CONNECTION, "test", "insert", new BsonDocument("insert", new BsonString("people"))));
+		testee.commandFailed(new CommandFailedEvent(null, 1, 5, CONNECTION, "test", "insert", TimeUnit.MICROSECONDS.toNanos(9_000), new RuntimeException()));
+
+		Map<CommandLatencies.Key, Histogram> interval = testee.interval();
+
+		assertThat(interval.keySet()).extracting(CommandLatencies.Key::toString)
+			.containsExactly("insert people", "find people", "getMore people", "ping");
+		assertThat(interval.values()).extracting(Histogram::getTotalCount)
+			.containsExactly(1L, 2L, 1L, 1L);
+
+		assertThat(testee.interval()).isEmpty();
+	}
+
+	@Test
+	void attributeToRepositoryMethod() {
+		CommandLatencies testee = new CommandLatencies();
+		List<String> observed = new ArrayList<>();
+		testee.observe((key, nanos) -> observed.add(key.caller()));
+
+		ProxyFactory proxyFactory = new ProxyFactory(new PersonRepository() {
+			@Override
+			public void findByName(String name) {
+				command(testee, 1, "find", new BsonDocument("find", new BsonString("people")), 100);
+			}
+		});
+		proxyFactory.addInterface(PersonRepository.class);
+		proxyFactory.addAdvice(new RepositoryMethodCaller(PersonRepository.class));
+		((PersonRepository) proxyFactory.getProxy()).findByName("Klaus");
+
+		command(testee, 2, "find", new BsonDocument("find", new BsonString("people")), 100);
+
+		assertThat(observed).containsExactly("PersonRepository.findByName", "");
+		assertThat(RepositoryMethodCaller.current()).isEmpty();
+	}
+
+	@Test
+	void everyObserverSeesEveryCommand() {
+		CommandLatencies testee = new CommandLatencies();
+		List<String> first = new ArrayList<>();
+		List<String> second = new ArrayList<>();
+		testee.observe((key, nanos) -> first.add(key.command()));
+		testee.observe((key, nanos) -> second.add(key.command()));
+
+		command(testee, 1, "find", new BsonDocument("find", new BsonString("people")), 100);
+
+		assertThat(first).containsExactly("find");
+		assertThat(second).containsExactly("find");
+	}
+
+	private static void command(CommandLatencies testee, int requestId, String name, BsonDocument command, long micros) {
+		testee.commandStarted(new CommandStartedEvent(null, 1, requestId, CONNECTION, "test", name, command));
+		testee.commandSucceeded(new CommandSucceededEvent(null, 1, requestId, CONNECTION, "test", name, new BsonDocument(),
+			TimeUnit.MICROSECONDS.toNanos(micros)));
+	}
+
+	interface PersonRepository {
+		void findByName(String name);
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.process.io.ProcessOutput;
+import de.flapdoodle.embed.process.io.StreamProcessor;
+import de.flapdoodle.reverse.Listener;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.Transitions;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DevToolsRestartTest {
+
+	@Test
+	void nextContextTakesParkedServerWithSameKeyAndPort() {
+		List<String> stopped = new ArrayList<>();
+		DevToolsRestart.Server running = running("first", stopped);
+
+		assertThat(DevToolsRestart.park("key", 27017, running)).isTrue();
+		assertThat(DevToolsRestart.port()).contains(27017);
+
+		assertThat(DevToolsRestart.take("key", 27017, ProcessOutput.silent())).containsSame(running);
+		assertThat(DevToolsRestart.port()).isEmpty();
+		assertThat(stopped).isEmpty();
+	}
+
+	@Test
+	void parkedServerIsStoppedIfConfigurationChanged() {
+		List<String> stopped = new ArrayList<>();
+
+		DevToolsRestart.park("key", 27017, running("first", stopped));
+		assertThat(DevToolsRestart.take("other key", 27017, ProcessOutput.silent())).isEmpty();
+		assertThat(stopped).containsExactly("first");
+
+		DevToolsRestart.park("key", 27017, running("second", stopped));
+		assertThat(DevToolsRestart.take("key", 27018, ProcessOutput.silent())).isEmpty();
+		assertThat(stopped).containsExactly("first", "second");
+	}
+
+	@Test
+	void previouslyParkedServerIsStopped() {
+		List<String> stopped = new ArrayList<>();
+
+		DevToolsRestart.park("key", 27017, running("first", stopped));
+		DevToolsRestart.park("key", 27018, running("second", stopped));
+		assertThat(stopped).containsExactly("first");
+
+		assertThat(DevToolsRestart.take("key", 27018, ProcessOutput.silent())).isPresent();
+	}
+
+	@Test
+	void parkedServerIsDetachedFromItsContext() {
+		List<String> contextTearDown = new ArrayList<>();
+		DevToolsRestart.Attachment attachment = new DevToolsRestart.Attachment(Collections.singletonList(Listener.typedBuilder()
+			.onStateTearDown(StateID.of(String.class), contextTearDown::add)
+			.build()));
+		DevToolsRestart.Server server = server(Transitions.from(Start.to(String.class).initializedWith("first"))
+			.walker()
+			.initState(StateID.of(String.class), attachment), attachment);
+
+		DevToolsRestart.park("key", 27017, server);
+		assertThat(DevToolsRestart.take("other key", 27017, ProcessOutput.silent())).isEmpty();
+		assertThat(contextTearDown).isEmpty();
+	}
+
+	@Test
+	void processOutputIsHandedOverToNextContext() {
+		List<String> first = new ArrayList<>();
+		List<String> next = new ArrayList<>();
+		DevToolsRestart.Attachment attachment = new DevToolsRestart.Attachment(Collections.emptyList());
+		ProcessOutput output = DevToolsRestart.processOutput(collect(first));
+		attachment.onStateReached(StateID.of(ProcessOutput.class), output);
+		StreamProcessor stream = output.output();
+
+		stream.process("started");
+		DevToolsRestart.park("key", 27017, server(running("first", new ArrayList<>()).running(), attachment));
+		stream.process("parked");
+		assertThat(DevToolsRestart.take("key", 27017, DevToolsRestart.processOutput(collect(next)))).isPresent();
+		stream.process("taken");
+
+		assertThat(first).containsExactly("started");
+		assertThat(next).containsExactly("taken");
+	}
+
+	@Test
+	void notActiveWithoutRestartClassLoader() {
+		assertThat(DevToolsRestart.active(getClass().getClassLoader())).isFalse();
+		assertThat(DevToolsRestart.active(null)).isFalse();
+	}
+
+	private static DevToolsRestart.Server running(String name, List<String> stopped) {
+		// only close is used while parked
+		return server(Transitions.from(Start.to(String.class).initializedWith(name))
+			.walker()
+			.initState(StateID.of(String.class), Listener.typedBuilder()
+				.onStateTearDown(StateID.of(String.class), stopped::add)
+				.build()), new DevToolsRestart.Attachment(Collections.emptyList()));
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static DevToolsRestart.Server server(TransitionWalker.ReachedState state, DevToolsRestart.Attachment attachment) {
+		return new DevToolsRestart.Server(state, attachment);
+	}
+
+	private static ProcessOutput collect(List<String> blocks) {
+		StreamProcessor processor = new StreamProcessor() {
+			@Override
+			public void process(String block) {
+				blocks.add(block);
+			}
+
+			@Override
+			public void onProcessed() {
+			}
+		};
+		return ProcessOutput.builder()
+			.output(processor)
+			.error(processor)
+			.commands(processor)
+			.build();
+	}
+}
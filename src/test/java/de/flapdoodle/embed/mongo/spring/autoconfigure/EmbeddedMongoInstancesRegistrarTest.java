@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddedMongoInstancesRegistrarTest {
+
+	@Test
+	void registerQualifiedBeansForEachInstance() {
+		DefaultListableBeanFactory registry = register(new MockEnvironment()
+			.withProperty("de.flapdoodle.mongodb.embedded.instances.operational.port", "27018")
+			.withProperty("de.flapdoodle.mongodb.embedded.instances.analytics.database", "reports"));
+
+		assertThat(registry.getBeanDefinitionNames())
+			.containsExactlyInAnyOrder(
+				"operationalMongodWrapper", "operationalMongoClient", "operationalMongoTemplate",
+				"operationalReactiveMongoClient", "operationalReactiveMongoTemplate",
+				"analyticsMongodWrapper", "analyticsMongoClient", "analyticsMongoTemplate",
+				"analyticsReactiveMongoClient", "analyticsReactiveMongoTemplate");
+
+		AbstractBeanDefinition client = (AbstractBeanDefinition) registry.getBeanDefinition("analyticsMongoClient");
+		assertThat(client.isDefaultCandidate()).isFalse();
+		assertThat(client.getQualifier(Qualifier.class.getName()).getAttribute("value")).isEqualTo("analytics");
+
+		AbstractBeanDefinition template = (AbstractBeanDefinition) registry.getBeanDefinition("analyticsMongoTemplate");
+		assertThat(template.getConstructorArgumentValues().getIndexedArgumentValue(1, String.class).getValue())
+			.isEqualTo("reports");
+	}
+
+	@Test
+	void noBeansWithoutInstances() {
+		DefaultListableBeanFactory registry = register(new MockEnvironment());
+
+		assertThat(registry.getBeanDefinitionNames()).isEmpty();
+	}
+
+	private static DefaultListableBeanFactory register(MockEnvironment environment) {
+		DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+		EmbeddedMongoInstancesRegistrar testee = new EmbeddedMongoInstancesRegistrar();
+		testee.setEnvironment(environment);
+		testee.registerBeanDefinitions(AnnotationMetadata.introspect(EmbeddedMongoInstancesRegistrarTest.class), registry);
+		return registry;
+	}
+}
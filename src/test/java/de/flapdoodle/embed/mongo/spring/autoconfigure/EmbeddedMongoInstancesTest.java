@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.commands.MongoImportArguments;
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddedMongoInstancesTest {
+
+	@Test
+	void qualifiedBeansAndListsByInstanceName() {
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Config.class)) {
+			Map<String, List<MongoImportArguments>> qualified = EmbeddedMongoInstances.qualified(context.getBeanFactory(),
+				MongoImportArguments.class, new LinkedHashSet<>(Arrays.asList("analytics", "archive", "other")));
+
+			assertThat(qualified.get("analytics")).extracting(it -> it.collectionName().orElse(null))
+				.containsExactlyInAnyOrder("single", "first", "second");
+			assertThat(qualified.get("archive")).extracting(it -> it.collectionName().orElse(null))
+				.containsExactly("archived");
+			assertThat(qualified.get("other")).isEmpty();
+		}
+	}
+
+	@Test
+	void instancesUseCredentialsOfDefaultServer() {
+		MongoProperties properties = new MongoProperties();
+		properties.setUsername("user");
+		properties.setPassword("secret".toCharArray());
+		EmbeddedMongoProperties.Instance instance = new EmbeddedMongoProperties.Instance();
+		instance.setDatabase("reports");
+
+		MongoProperties instanceProperties = EmbeddedMongoInstances.instanceProperties(properties, instance);
+		MongodArguments mongodArguments = EmbeddedMongoInstances.mongodArguments(instance.getStorage(), instanceProperties);
+
+		assertThat(instanceProperties.getMongoClientDatabase()).isEqualTo("reports");
+		assertThat(instanceProperties.getUsername()).isEqualTo("user");
+		assertThat(mongodArguments.auth()).isTrue();
+	}
+
+	@Test
+	void conditionMatchesOnlyIfInstancesAreConfigured() {
+		assertThat(conditionalBeanExists()).isFalse();
+		assertThat(conditionalBeanExists(EmbeddedMongoInstancesRegistrar.PREFIX + ".analytics.database=reports")).isTrue();
+	}
+
+	private static boolean conditionalBeanExists(String... properties) {
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+			TestPropertyValues.of(properties).applyTo(context);
+			context.register(ConditionalConfig.class);
+			context.refresh();
+			return context.containsBean("conditional");
+		}
+	}
+
+	static class ConditionalConfig {
+		@Bean
+		@Conditional(OnEmbeddedMongoInstancesCondition.class)
+		public String conditional() {
+			return "conditional";
+		}
+	}
+
+	static class Config {
+		@Bean(defaultCandidate = false)
+		@Qualifier("analytics")
+		public MongoImportArguments single() {
+			return arguments("single");
+		}
+
+		@Bean(defaultCandidate = false)
+		@Qualifier("analytics")
+		public List<MongoImportArguments> list() {
+			return Arrays.asList(arguments("first"), arguments("second"));
+		}
+
+		@Bean(defaultCandidate = false)
+		@Qualifier("archive")
+		public List<MongoImportArguments> archive() {
+			return Collections.singletonList(arguments("archived"));
+		}
+
+		private static MongoImportArguments arguments(String collectionName) {
+			return MongoImportArguments.builder()
+				.databaseName("test")
+				.collectionName(collectionName)
+				.build();
+		}
+	}
+}
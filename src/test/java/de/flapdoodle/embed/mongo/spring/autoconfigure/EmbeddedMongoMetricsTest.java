@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddedMongoMetricsTest {
+
+	@Test
+	void valueOfNestedPath() {
+		Document status = new Document("wiredTiger", new Document("cache", new Document("bytes currently in the cache", 1234L)))
+			.append("connections", new Document("current", 3));
+
+		assertThat(EmbeddedMongoMetrics.value(status, "wiredTiger", "cache", "bytes currently in the cache")).isEqualTo(1234.0);
+		assertThat(EmbeddedMongoMetrics.value(status, "connections", "current")).isEqualTo(3.0);
+		assertThat(EmbeddedMongoMetrics.value(status, "connections", "missing")).isNaN();
+		assertThat(EmbeddedMongoMetrics.value(status, "connections", "current", "deeper")).isNaN();
+	}
+}
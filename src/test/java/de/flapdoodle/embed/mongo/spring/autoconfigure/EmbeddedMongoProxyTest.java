@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbeddedMongoProxyTest {
+
+	private ServerSocket echoServer;
+	private EmbeddedMongoProxy proxy;
+
+	@BeforeEach
+	void startEchoServer() throws IOException {
+		echoServer = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread thread = new Thread(() -> {
+			while (!echoServer.isClosed()) {
+				try {
+					Socket socket = echoServer.accept();
+					Thread echo = new Thread(() -> {
+						try (Socket s = socket; InputStream in = s.getInputStream(); OutputStream out = s.getOutputStream()) {
+							byte[] buffer = new byte[8192];
+							int read;
+							while ((read = in.read(buffer)) != -1) {
+								out.write(buffer, 0, read);
+								out.flush();
+							}
+						}
+						catch (IOException iox) {
+							// closed
+						}
+					});
+					echo.setDaemon(true);
+					echo.start();
+				}
+				catch (IOException iox) {
+					// closed
+				}
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@AfterEach
+	void stop() throws IOException {
+		if (proxy != null) {
+			proxy.stop();
+		}
+		echoServer.close();
+	}
+
+	@Test
+	void latencyIsAddedInBothDirections() throws IOException {
+		EmbeddedMongoProperties.Proxy settings = new EmbeddedMongoProperties.Proxy();
+		settings.setLatency(Duration.ofMillis(50));
+		start(settings);
+
+		try (Socket socket = connect()) {
+			long start = System.nanoTime();
+			byte[] answer = roundTrip(socket, "ping".getBytes());
+			long millis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+			assertThat(new String(answer)).isEqualTo("ping");
+			assertThat(millis).isGreaterThanOrEqualTo(100);
+		}
+	}
+
+	@Test
+	void bandwidthIsCapped() throws IOException {
+		EmbeddedMongoProperties.Proxy settings = new EmbeddedMongoProperties.Proxy();
+		settings.setBandwidth(DataSize.ofKilobytes(200));
+		start(settings);
+
+		try (Socket socket = connect()) {
+			byte[] data = new byte[100 * 1024];
+			Arrays.fill(data, (byte) 7);
+
+			long start = System.nanoTime();
+			byte[] answer = roundTrip(socket, data);
+			long millis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+			assertThat(answer).isEqualTo(data);
+			// 100k at 200k/s in each direction
+			assertThat(millis).isGreaterThanOrEqualTo(400);
+		}
+	}
+
+	@Test
+	void connectionIsReset() throws IOException {
+		EmbeddedMongoProperties.Proxy settings = new EmbeddedMongoProperties.Proxy();
+		settings.setResetProbability(1.0);
+		start(settings);
+
+		try (Socket socket = connect()) {
+			assertThatThrownBy(() -> roundTrip(socket, "ping".getBytes()))
+				.isInstanceOf(IOException.class);
+		}
+	}
+
+	private void start(EmbeddedMongoProperties.Proxy settings) throws IOException {
+		InetAddress loopback = InetAddress.getLoopbackAddress();
+		proxy = new EmbeddedMongoProxy(new InetSocketAddress(loopback, 0), new InetSocketAddress(loopback, echoServer.getLocalPort()),
+			settings);
+		proxy.start();
+	}
+
+	private Socket connect() throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), proxy.port());
+		socket.setSoTimeout(5000);
+		return socket;
+	}
+
+	private static byte[] roundTrip(Socket socket, byte[] data) throws IOException {
+		socket.getOutputStream().write(data);
+		socket.getOutputStream().flush();
+		byte[] answer = new byte[data.length];
+		new DataInputStream(socket.getInputStream()).readFully(answer);
+		return answer;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddedMongoRuntimeHintsTest {
+
+	@Test
+	void registersHintsForReflectiveAccess() {
+		RuntimeHints hints = new RuntimeHints();
+		new EmbeddedMongoRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+		assertThat(RuntimeHintsPredicates.reflection().onMethod(MongodWrapper.class, "start").invoke()).accepts(hints);
+		assertThat(RuntimeHintsPredicates.reflection().onMethod(MongodWrapper.class, "stop").invoke()).accepts(hints);
+		assertThat(RuntimeHintsPredicates.reflection().onType(MongoProperties.class)).accepts(hints);
+		assertThat(RuntimeHintsPredicates.reflection().onType(EmbeddedMongoProperties.class)).accepts(hints);
+		assertThat(RuntimeHintsPredicates.reflection()
+			.onType(EmbeddedMongoAutoConfiguration.MongoPropertiesDependsOnBeanFactoryPostProcessor.class)).accepts(hints);
+	}
+}
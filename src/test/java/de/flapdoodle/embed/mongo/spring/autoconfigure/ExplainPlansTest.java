@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExplainPlansTest {
+
+	private static final ConnectionDescription CONNECTION = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+	private static final ConnectionDescription SHARD_CONNECTION = new ConnectionDescription(new ServerId(new ClusterId(),
+		new ServerAddress("localhost", 27018)));
+
+	@Test
+	void explainEachDistinctQueryOnce() {
+		RecordingServerClient client = new RecordingServerClient(command -> Document.parse(
+			"{queryPlanner: {winningPlan: {stage: 'COLLSCAN'}}, executionStats: {nReturned: 1, totalDocsExamined: 100}}"));
+		ExplainPlans testee = new ExplainPlans(address -> client, 10);
+
+		query(testee, "test", "find", "{find: 'people', filter: {name: 'Susi'}, lsid: {id: 1}, $db: 'test'}");
+		query(testee, "test", "find", "{find: 'people', filter: {name: 'Susi'}, lsid: {id: 2}, $db: 'test'}");
+		query(testee, "test", "insert", "{insert: 'people', documents: []}");
+		query(testee, "admin", "find", "{find: 'users', filter: {user: 'admin'}}");
+		query(testee, "test", "aggregate", "{aggregate: 'people', pipeline: [{$match: {}}, {$out: 'copy'}]}");
+
+		List<String> findings = testee.check();
+
+		List<Document> explained = client.commands();
+		assertThat(explained).hasSize(1);
+		assertThat(explained.get(0).toJson()).contains("\"explain\": {\"find\": \"people\"")
+			.contains("executionStats")
+			.doesNotContain("lsid")
+			.doesNotContain("$db");
+		assertThat(findings).hasSize(1);
+		assertThat(findings.get(0)).startsWith("find test.people: COLLSCAN, docsExamined/nReturned 100/1");
+
+		assertThat(testee.check()).isEmpty();
+	}
+
+	@Test
+	void explainOnServerWhichRanTheQuery() {
+		List<Integer> ports = new ArrayList<>();
+		ExplainPlans testee = new ExplainPlans(address -> {
+			ports.add(address.getPort());
+			return new RecordingServerClient(command -> Document.parse("{queryPlanner: {winningPlan: {stage: 'COLLSCAN'}}}"));
+		}, 10);
+
+		query(testee, CONNECTION, "test", "find", "{find: 'people', filter: {name: 'Susi'}}");
+		query(testee, SHARD_CONNECTION, "test", "find", "{find: 'people', filter: {name: 'Susi'}}");
+
+		assertThat(testee.check()).hasSize(2);
+		assertThat(ports).containsExactly(27017, 27018);
+	}
+
+	@Test
+	void problemsOfWinningPlan() {
+		Document explain = Document.parse("{queryPlanner: {"
+			+ "winningPlan: {stage: 'FETCH', inputStage: {stage: 'IXSCAN'}},"
+			+ "rejectedPlans: [{stage: 'SORT', inputStage: {stage: 'COLLSCAN'}}]},"
+			+ "executionStats: {nReturned: 2, totalDocsExamined: 2}}");
+
+		assertThat(ExplainPlans.problems("find", BsonDocument.parse("{find: 'people', filter: {name: 'Susi'}}"), explain, 10))
+			.isEmpty();
+
+		Document sorted = Document.parse("{queryPlanner: {winningPlan: {queryPlan: {stage: 'sort', inputStage: {stage: 'COLLSCAN'}}}},"
+			+ "executionStats: {nReturned: 2, totalDocsExamined: 30}}");
+
+		assertThat(ExplainPlans.problems("find", BsonDocument.parse("{find: 'people', filter: {name: 'Susi'}}"), sorted, 10))
+			.containsExactly("COLLSCAN", "in-memory SORT", "docsExamined/nReturned 30/2");
+		assertThat(ExplainPlans.problems("find", BsonDocument.parse("{find: 'people', filter: {name: 'Susi'}}"), sorted, 0))
+			.containsExactly("COLLSCAN", "in-memory SORT");
+	}
+
+	@Test
+	void collectionScanWithoutFilterIsExpected() {
+		Document explain = Document.parse("{stages: [{$cursor: {queryPlanner: {winningPlan: {stage: 'COLLSCAN'}},"
+			+ "executionStats: {nReturned: 5, totalDocsExamined: 5}}}, {$group: {_id: '$name'}}]}");
+
+		assertThat(ExplainPlans.problems("aggregate", BsonDocument.parse("{aggregate: 'people', pipeline: [{$group: {_id: '$name'}}]}"), explain, 10))
+			.isEmpty();
+		assertThat(ExplainPlans.problems("aggregate", BsonDocument.parse("{aggregate: 'people', pipeline: [{$match: {name: 'Susi'}}]}"), explain, 10))
+			.containsExactly("COLLSCAN");
+		assertThat(ExplainPlans.problems("find", BsonDocument.parse("{find: 'people'}"), explain, 10))
+			.isEmpty();
+	}
+
+	private static void query(ExplainPlans testee, String database, String commandName, String command) {
+		query(testee, CONNECTION, database, commandName, command);
+	}
+
+	private static void query(ExplainPlans testee, ConnectionDescription connection, String database, String commandName, String command) {
+		testee.commandStarted(new CommandStartedEvent(null, 1, 1, connection, database, commandName, BsonDocument.parse(command)));
+	}
+}
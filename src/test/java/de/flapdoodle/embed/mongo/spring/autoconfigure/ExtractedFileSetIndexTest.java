@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.process.archives.ExtractedFileSet;
+import de.flapdoodle.embed.process.config.store.FileSet;
+import de.flapdoodle.embed.process.config.store.FileType;
+import de.flapdoodle.embed.process.config.store.Package;
+import de.flapdoodle.embed.process.distribution.ArchiveType;
+import de.flapdoodle.embed.process.io.directories.PersistentDir;
+import de.flapdoodle.embed.process.types.Archive;
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.StateLookup;
+import de.flapdoodle.reverse.Transition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExtractedFileSetIndexTest {
+
+	@TempDir
+	Path temp;
+
+	@Test
+	void secondStartUsesIndex() throws IOException {
+		CountingExtraction extraction = new CountingExtraction(temp.resolve("store"), false);
+		Transition<ExtractedFileSet> testee = new ExtractedFileSetIndex().wrap(extraction);
+		StateLookup lookup = lookup(archive("mongodb-4.4.0.tgz"));
+
+		ExtractedFileSet first = testee.result(lookup).value();
+		ExtractedFileSet second = testee.result(lookup).value();
+
+		assertThat(extraction.count.get()).isEqualTo(1);
+		assertThat(second.executable()).isEqualTo(first.executable());
+		assertThat(testee.sources()).contains(StateID.of(PersistentDir.class));
+	}
+
+	@Test
+	void missingExecutableInvalidatesEntry() throws IOException {
+		CountingExtraction extraction = new CountingExtraction(temp.resolve("store"), false);
+		Transition<ExtractedFileSet> testee = new ExtractedFileSetIndex().wrap(extraction);
+		StateLookup lookup = lookup(archive("mongodb-4.4.0.tgz"));
+
+		Files.delete(testee.result(lookup).value().executable());
+		testee.result(lookup);
+
+		assertThat(extraction.count.get()).isEqualTo(2);
+	}
+
+	@Test
+	void changedExecutableOfSameSizeInvalidatesEntry() throws IOException {
+		CountingExtraction extraction = new CountingExtraction(temp.resolve("store"), false);
+		Transition<ExtractedFileSet> testee = new ExtractedFileSetIndex().wrap(extraction);
+		StateLookup lookup = lookup(archive("mongodb-4.4.0.tgz"));
+
+		Path executable = testee.result(lookup).value().executable();
+		FileTime lastModified = Files.getLastModifiedTime(executable);
+		Files.write(executable, new byte[] { 43 });
+		Files.setLastModifiedTime(executable, lastModified);
+		testee.result(lookup);
+
+		assertThat(extraction.count.get()).isEqualTo(2);
+	}
+
+	@Test
+	void temporaryExtractionIsNotIndexed() throws IOException {
+		CountingExtraction extraction = new CountingExtraction(temp.resolve("store"), true);
+		Transition<ExtractedFileSet> testee = new ExtractedFileSetIndex().wrap(extraction);
+		StateLookup lookup = lookup(archive("mongodb-4.4.0.tgz"));
+
+		testee.result(lookup);
+		testee.result(lookup);
+
+		assertThat(extraction.count.get()).isEqualTo(2);
+	}
+
+	@Test
+	void concurrentStartsExtractOnce() throws Exception {
+		CountingExtraction extraction = new CountingExtraction(temp.resolve("store"), false);
+		StateLookup lookup = lookup(archive("mongodb-4.4.0.tgz"));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<ExtractedFileSet>> results = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(() -> new ExtractedFileSetIndex().wrap(extraction).result(lookup).value()));
+			}
+			for (Future<ExtractedFileSet> result : results) {
+				assertThat(result.get(10, TimeUnit.SECONDS).executable()).exists();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		assertThat(extraction.count.get()).isEqualTo(1);
+	}
+
+	private Archive archive(String name) throws IOException {
+		return Archive.of(Files.write(temp.resolve(name), new byte[] { 1, 2, 3 }));
+	}
+
+	private StateLookup lookup(Archive archive) {
+		Package distPackage = Package.of(ArchiveType.TGZ, FileSet.builder().addEntry(FileType.Executable, "mongod").build(),
+			"https://fastdl.mongodb.org/" + archive.value().getFileName());
+		PersistentDir persistentDir = PersistentDir.of(temp);
+
+		return new StateLookup() {
+			@Override
+			public <D> D of(StateID<D> type) {
+				if (type.equals(StateID.of(Archive.class))) return type.type().cast(archive);
+				if (type.equals(StateID.of(Package.class))) return type.type().cast(distPackage);
+				if (type.equals(StateID.of(PersistentDir.class))) return type.type().cast(persistentDir);
+				throw new IllegalArgumentException("unexpected " + type);
+			}
+		};
+	}
+
+	private static class CountingExtraction implements Transition<ExtractedFileSet> {
+		private final Path store;
+		private final boolean temporary;
+		private final AtomicInteger count = new AtomicInteger();
+
+		CountingExtraction(Path store, boolean temporary) {
+			this.store = store;
+			this.temporary = temporary;
+		}
+
+		@Override
+		public StateID<ExtractedFileSet> destination() {
+			return StateID.of(ExtractedFileSet.class);
+		}
+
+		@Override
+		public Set<StateID<?>> sources() {
+			return StateID.setOf(StateID.of(Archive.class), StateID.of(Package.class));
+		}
+
+		@Override
+		public State<ExtractedFileSet> result(StateLookup lookup) {
+			int run = count.incrementAndGet();
+			try {
+				Thread.sleep(50);
+				Path dir = Files.createDirectories(store.resolve("run-" + run));
+				Path executable = Files.write(dir.resolve("mongod"), new byte[] { 42 });
+				Files.setPosixFilePermissions(executable, PosixFilePermissions.fromString("rwx------"));
+				ExtractedFileSet fileSet = ExtractedFileSet.builder(dir).executable(executable).build();
+				return temporary
+					? State.of(fileSet, it -> {})
+					: State.of(fileSet);
+			}
+			catch (IOException | InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
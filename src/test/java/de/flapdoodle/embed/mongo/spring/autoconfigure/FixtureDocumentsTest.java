@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FixtureDocumentsTest {
+
+	@Test
+	void readJsonArrayInBatches() throws IOException {
+		List<List<Document>> batches = read("[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"}]".getBytes(StandardCharsets.UTF_8), 2);
+
+		assertThat(batches).hasSize(2);
+		assertThat(batches.get(0)).extracting(doc -> doc.getString("name")).containsExactly("a", "b");
+		assertThat(batches.get(1)).extracting(doc -> doc.getString("name")).containsExactly("c");
+	}
+
+	@Test
+	void readSequenceOfDocuments() throws IOException {
+		List<List<Document>> batches = read("{\"name\":\"a\"}\n{\"name\":\"b\", \"count\": 2}\n".getBytes(StandardCharsets.UTF_8), 10);
+
+		assertThat(batches).hasSize(1);
+		assertThat(batches.get(0)).extracting(doc -> doc.getString("name")).containsExactly("a", "b");
+	}
+
+	@Test
+	void readGzipCompressedContent() throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (OutputStream out = new GZIPOutputStream(buffer)) {
+			out.write("[{\"name\":\"a\"}]".getBytes(StandardCharsets.UTF_8));
+		}
+
+		assertThat(read(buffer.toByteArray(), 10).get(0))
+			.extracting(doc -> doc.getString("name")).containsExactly("a");
+	}
+
+	@Test
+	void readZstdCompressedContent() throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (OutputStream out = new ZstdOutputStream(buffer)) {
+			out.write("{\"name\":\"a\"}".getBytes(StandardCharsets.UTF_8));
+		}
+
+		assertThat(read(buffer.toByteArray(), 10).get(0))
+			.extracting(doc -> doc.getString("name")).containsExactly("a");
+	}
+
+	@Test
+	void detectCompressionOnShortReads() throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (OutputStream out = new ZstdOutputStream(buffer)) {
+			out.write("{\"name\":\"a\"}".getBytes(StandardCharsets.UTF_8));
+		}
+		InputStream oneByteAtATime = new FilterInputStream(new ByteArrayInputStream(buffer.toByteArray())) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return super.read(b, off, Math.min(len, 1));
+			}
+
+			@Override
+			public int available() {
+				return 0;
+			}
+		};
+
+		List<List<Document>> batches = new ArrayList<>();
+		FixtureDocuments.read(oneByteAtATime, 10, batches::add);
+		assertThat(batches.get(0)).extracting(doc -> doc.getString("name")).containsExactly("a");
+	}
+
+	@Test
+	void readFromClasspath() throws IOException {
+		List<List<Document>> batches = new ArrayList<>();
+		FixtureDocuments.read(FixtureSource.classpath("first.json").open(), 100, batches::add);
+
+		assertThat(batches.get(0)).hasSize(3);
+	}
+
+	private static List<List<Document>> read(byte[] content, int batchSize) throws IOException {
+		List<List<Document>> batches = new ArrayList<>();
+		FixtureDocuments.read(new ByteArrayInputStream(content), batchSize, batches::add);
+		return batches;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.commands.MongoImportArguments;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FixtureKeysTest {
+
+	@Test
+	void sourcesAreReadOnce() {
+		AtomicInteger reads = new AtomicInteger();
+		List<CollectionFixture> fixtures = Collections.singletonList(CollectionFixture.builder()
+			.databaseName("test")
+			.collectionName("people")
+			.source(() -> {
+				reads.incrementAndGet();
+				return new ByteArrayInputStream("{name: 'Susi'}".getBytes(StandardCharsets.UTF_8));
+			})
+			.build());
+
+		FixtureKeys testee = new FixtureKeys(Version.Main.V7_0, Collections.emptyList(), Collections.emptyList(), fixtures);
+
+		assertThat(testee.dataKey().join()).isPresent();
+		assertThat(testee.dataKey().join()).isEqualTo(testee.dataKey().join());
+		assertThat(reads.get()).isEqualTo(1);
+	}
+
+	@Test
+	void keysMatchDirectHashing(@TempDir Path tempDir) throws IOException {
+		Path importFile = Files.write(tempDir.resolve("people.json"), "{\"name\": \"Susi\"}".getBytes(StandardCharsets.UTF_8));
+		List<MongoImportArguments> imports = Collections.singletonList(MongoImportArguments.builder()
+			.databaseName("test")
+			.collectionName("people")
+			.importFile(importFile.toString())
+			.build());
+
+		FixtureKeys testee = new FixtureKeys(Version.Main.V7_0, Collections.emptyList(), imports, Collections.emptyList());
+
+		assertThat(testee.importKey().join())
+			.isPresent()
+			.isEqualTo(ImportCache.key(Version.Main.V7_0, imports));
+		assertThat(testee.dataKey().join())
+			.isPresent()
+			.isEqualTo(WarmRestart.dataKey(Collections.emptyList(), imports, ImportCache.key(Version.Main.V7_0, imports), Collections.emptyList()));
+	}
+
+	@Test
+	void noKeysWithoutData() {
+		FixtureKeys testee = new FixtureKeys(Version.Main.V7_0, Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+
+		assertThat(testee.noData()).isTrue();
+		assertThat(testee.importKey().join()).isEmpty();
+		assertThat(testee.dataKey().join()).isEmpty();
+	}
+}
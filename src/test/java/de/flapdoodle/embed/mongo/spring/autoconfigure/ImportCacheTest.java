@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.commands.MongoImportArguments;
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImportCacheTest {
+
+	@Test
+	void keyChangesWithContentAndVersion(@TempDir Path tempDir) throws IOException {
+		Path importFile = tempDir.resolve("fixture.json");
+		Files.write(importFile, "[{\"name\":\"Susi\"}]".getBytes(StandardCharsets.UTF_8));
+		List<MongoImportArguments> arguments = Collections.singletonList(MongoImportArguments.builder()
+			.databaseName("test")
+			.collectionName("fixture")
+			.importFile(importFile.toString())
+			.isJsonArray(true)
+			.build());
+
+		Optional<String> key = ImportCache.key(Version.Main.V7_0, arguments);
+		assertThat(key).isPresent();
+		assertThat(ImportCache.key(Version.Main.V7_0, arguments)).isEqualTo(key);
+		assertThat(ImportCache.key(Version.Main.V8_0, arguments)).isNotEqualTo(key);
+
+		Files.write(importFile, "[{\"name\":\"Klaus\"}]".getBytes(StandardCharsets.UTF_8));
+		assertThat(ImportCache.key(Version.Main.V7_0, arguments)).isPresent().isNotEqualTo(key);
+	}
+
+	@Test
+	void keyDoesNotDependOnLocation(@TempDir Path tempDir) throws IOException {
+		Path first = Files.createDirectories(tempDir.resolve("first")).resolve("fixture.json");
+		Path second = Files.createDirectories(tempDir.resolve("second")).resolve("fixture.json");
+		Files.write(first, "[{\"name\":\"Susi\"}]".getBytes(StandardCharsets.UTF_8));
+		Files.write(second, "[{\"name\":\"Susi\"}]".getBytes(StandardCharsets.UTF_8));
+
+		assertThat(ImportCache.key(Version.Main.V7_0, arguments(first)))
+			.isPresent()
+			.isEqualTo(ImportCache.key(Version.Main.V7_0, arguments(second)));
+		assertThat(ImportCache.key(Version.Main.V7_0, Collections.singletonList(MongoImportArguments.builder()
+			.from(arguments(first).get(0))
+			.isJsonArray(false)
+			.build())))
+			.isNotEqualTo(ImportCache.key(Version.Main.V7_0, arguments(first)));
+	}
+
+	@Test
+	void noKeyWithoutImportFile() {
+		List<MongoImportArguments> arguments = Collections.singletonList(MongoImportArguments.builder()
+			.databaseName("test")
+			.collectionName("fixture")
+			.build());
+
+		assertThat(ImportCache.key(Version.Main.V7_0, arguments)).isEmpty();
+	}
+
+	@Test
+	void commitMovesEntryInPlace(@TempDir Path tempDir) throws IOException {
+		ImportCache cache = new ImportCache(tempDir.resolve("cache"));
+		Path entry = tempDir.resolve("cache").resolve("key");
+		Path inProgress = cache.prepare(entry);
+		Files.createFile(ImportCache.archive(inProgress, "test", "fixture"));
+
+		assertThat(ImportCache.isComplete(entry)).isFalse();
+		cache.commit(inProgress, entry);
+		assertThat(ImportCache.isComplete(entry)).isTrue();
+		assertThat(ImportCache.archive(entry, "test", "fixture")).isRegularFile();
+	}
+
+	@Test
+	void namespaceFallsBackLikeMongoImport() {
+		assertThat(ImportCache.namespace(MongoImportArguments.builder()
+			.databaseName("db")
+			.collectionName("people")
+			.importFile("/fixtures/other.json")
+			.build()))
+			.containsExactly("db", "people");
+		assertThat(ImportCache.namespace(MongoImportArguments.builder()
+			.importFile("/fixtures/people.json")
+			.build()))
+			.containsExactly("test", "people");
+	}
+
+	private static List<MongoImportArguments> arguments(Path importFile) {
+		return Collections.singletonList(MongoImportArguments.builder()
+			.databaseName("test")
+			.collectionName("fixture")
+			.importFile(importFile.toString())
+			.isJsonArray(true)
+			.build());
+	}
+}
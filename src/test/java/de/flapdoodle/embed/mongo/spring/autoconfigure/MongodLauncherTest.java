@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MongodLauncherTest {
+
+	@Test
+	void notConfiguredByDefault() {
+		assertThat(new EmbeddedMongoProperties.Launch().isConfigured()).isFalse();
+	}
+
+	@Test
+	void execMongodWithCommandPrefix() {
+		EmbeddedMongoProperties.Launch launch = new EmbeddedMongoProperties.Launch();
+		launch.setCpuSet("2-3");
+		launch.setNice(10);
+		launch.setIoClass(2);
+		launch.setIoPriority(7);
+		launch.setNumaInterleave(true);
+
+		String script = new MongodLauncher(launch).script(Paths.get("/opt/mongo's/mongod"), Optional.empty());
+
+		assertThat(script)
+			.startsWith("#!/bin/sh\n")
+			.endsWith("exec 'taskset' '-c' '2-3' 'nice' '-n' '10' 'ionice' '-c' '2' '-n' '7' 'numactl' '--interleave=all' '/opt/mongo'\\''s/mongod' \"$@\"\n")
+			.doesNotContain("cgroup");
+	}
+
+	@Test
+	void ioPriorityWithoutIoClass() {
+		EmbeddedMongoProperties.Launch launch = new EmbeddedMongoProperties.Launch();
+		launch.setIoPriority(7);
+
+		assertThat(launch.isConfigured()).isTrue();
+		assertThat(new MongodLauncher(launch).commandPrefix()).containsExactly("ionice", "-n", "7");
+	}
+
+	@Test
+	void cgroupLimitsWithoutCgroupAreRejected() {
+		EmbeddedMongoProperties.Launch launch = new EmbeddedMongoProperties.Launch();
+		launch.setCgroupCpus(1.5);
+
+		assertThat(launch.isConfigured()).isTrue();
+		assertThatThrownBy(() -> MongodLauncher.of(launch))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("launch.cgroup");
+	}
+
+	@Test
+	void joinCgroupWithLimits() {
+		EmbeddedMongoProperties.Launch launch = new EmbeddedMongoProperties.Launch();
+		launch.setCgroup("/sys/fs/cgroup/test");
+		launch.setCgroupCpus(1.5);
+		launch.setCgroupMemoryMax(DataSize.ofMegabytes(512));
+
+		Path cgroup = Paths.get("/sys/fs/cgroup/test/embedded-mongod-1");
+		String script = new MongodLauncher(launch).script(Paths.get("/opt/mongod"), Optional.of(cgroup));
+
+		assertThat(script)
+			.contains("echo '150000 100000' > '/sys/fs/cgroup/test/embedded-mongod-1/cpu.max'\n")
+			.contains("echo '536870912' > '/sys/fs/cgroup/test/embedded-mongod-1/memory.max'\n")
+			.contains("echo $$ > '/sys/fs/cgroup/test/embedded-mongod-1/cgroup.procs'\n")
+			.endsWith("exec '/opt/mongod' \"$@\"\n");
+	}
+}
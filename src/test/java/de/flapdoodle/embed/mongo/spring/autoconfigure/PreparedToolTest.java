@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.MongoImport;
+import de.flapdoodle.embed.process.archives.ExtractedFileSet;
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.Transitions;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PreparedToolTest {
+
+	@Test
+	void toolTransitionsProvideExtractedFileSet() {
+		assertThat(MongoImport.instance().transitions(Version.Main.V7_0).transitions())
+			.anyMatch(it -> it.destination().equals(StateID.of(ExtractedFileSet.class)));
+	}
+
+	@Test
+	void extractOnceAndReuseForEveryWalk() {
+		AtomicInteger extracted = new AtomicInteger();
+		AtomicInteger tornDown = new AtomicInteger();
+
+		try (PreparedTool testee = new PreparedTool("tool", transitions(extracted, tornDown))) {
+			testee.prepare();
+			testee.prepare();
+
+			for (int i = 0; i < 3; i++) {
+				try (TransitionWalker.ReachedState<ExtractedFileSet> state = testee.apply(transitions(extracted, tornDown)).walker()
+					.initState(StateID.of(ExtractedFileSet.class))) {
+					assertThat(state.current().executable()).isEqualTo(Paths.get("tool", "bin"));
+				}
+			}
+
+			assertThat(extracted.get()).isEqualTo(1);
+		}
+
+		assertThat(tornDown.get()).isEqualTo(1);
+	}
+
+	@Test
+	void notPreparedToolIsResolvedAsBefore() {
+		AtomicInteger extracted = new AtomicInteger();
+
+		PreparedTool testee = new PreparedTool("tool", transitions(extracted, new AtomicInteger()));
+		try (TransitionWalker.ReachedState<ExtractedFileSet> state = testee.apply(transitions(extracted, new AtomicInteger())).walker()
+			.initState(StateID.of(ExtractedFileSet.class))) {
+			assertThat(state.current().executable()).isEqualTo(Paths.get("tool", "bin"));
+			assertThat(extracted.get()).isEqualTo(1);
+		}
+	}
+
+	private static Transitions transitions(AtomicInteger extracted, AtomicInteger tornDown) {
+		return Transitions.from(Start.of(StateID.of(ExtractedFileSet.class), () -> {
+			extracted.incrementAndGet();
+			return State.of(ExtractedFileSet.builder(Paths.get("tool"))
+				.executable(Paths.get("tool", "bin"))
+				.build(), it -> tornDown.incrementAndGet());
+		}));
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProcessStatsTest {
+
+	@Test
+	void readFromProcFiles(@TempDir Path procDir) throws IOException {
+		write(procDir.resolve("stat"), "4711 (mongod (x)) S 1 4711 4711 0 -1 4194560 2000 0 0 0 250 50 0 0 20 0 31 0 100 0 0");
+		write(procDir.resolve("status"), "Name:\tmongod\nVmRSS:\t  102400 kB\nThreads:\t31\n");
+		write(procDir.resolve("io"), "rchar: 1\nwchar: 2\nread_bytes: 4096\nwrite_bytes: 8192\n");
+
+		Optional<ProcessStats> stats = ProcessStats.of(procDir, 100);
+
+		assertThat(stats).isPresent();
+		assertThat(stats.get().cpuTime()).isEqualTo(Duration.ofSeconds(3));
+		assertThat(stats.get().residentBytes()).isEqualTo(102400L * 1024);
+		assertThat(stats.get().threads()).isEqualTo(31);
+		assertThat(stats.get().readBytes()).isEqualTo(4096);
+		assertThat(stats.get().writtenBytes()).isEqualTo(8192);
+
+		ProcessStats since = stats.get().since(ProcessStats.builder().from(stats.get())
+			.cpuTime(Duration.ofSeconds(1))
+			.readBytes(1024)
+			.build());
+		assertThat(since.cpuTime()).isEqualTo(Duration.ofSeconds(2));
+		assertThat(since.readBytes()).isEqualTo(3072);
+		assertThat(since.writtenBytes()).isEqualTo(0);
+	}
+
+	@Test
+	void noStatsForMissingProcess(@TempDir Path tempDir) {
+		assertThat(ProcessStats.of(tempDir.resolve("missing"), 100)).isEmpty();
+	}
+
+	@Test
+	void cpuTimeUsesClockTicks(@TempDir Path procDir) throws IOException {
+		write(procDir.resolve("stat"), "4711 (mongod) S 1 4711 4711 0 -1 4194560 2000 0 0 0 250 50 0 0 20 0 31 0 100 0 0");
+		write(procDir.resolve("status"), "Name:\tmongod\n");
+
+		assertThat(ProcessStats.of(procDir, 250).map(ProcessStats::cpuTime)).contains(Duration.ofMillis(1200));
+	}
+
+	@Test
+	void clockTicksFallBackToDefault() {
+		assertThat(ProcessStats.clockTicksPerSecond("250\n")).isEqualTo(250);
+		assertThat(ProcessStats.clockTicksPerSecond("undefined")).isEqualTo(100);
+		assertThat(ProcessStats.clockTicksPerSecond("0")).isEqualTo(100);
+	}
+
+	private static void write(Path path, String content) throws IOException {
+		Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+	}
+}
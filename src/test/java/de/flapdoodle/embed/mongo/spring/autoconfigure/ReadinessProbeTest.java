@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.transitions.RunningMongoProcess;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.embed.process.config.SupportConfig;
+import de.flapdoodle.embed.process.io.ProcessOutput;
+import de.flapdoodle.embed.process.runtime.ProcessControl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReadinessProbeTest {
+
+	@Test
+	void logMessagesMatchEmbedMongo() throws ReflectiveOperationException {
+		assertThat(ReadinessProbe.SUCCESS_MESSAGES).isEqualTo(embedMongoMessages("successMessage"));
+		assertThat(ReadinessProbe.FAILURE_MESSAGES).isEqualTo(embedMongoMessages("knownFailureMessages"));
+	}
+
+	@Test
+	void helloGetsReplyFromServer() throws IOException {
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			Thread replying = replyOnce(server);
+
+			assertThat(ReadinessProbe.hello(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort()), 1000))
+				.isTrue();
+			replying.interrupt();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<String> embedMongoMessages(String methodName) throws ReflectiveOperationException {
+		Method method = RunningMongoProcess.class.getDeclaredMethod(methodName);
+		method.setAccessible(true);
+		return (List<String>) method.invoke(null);
+	}
+
+	@Test
+	void helloFailsIfNothingListens() throws IOException {
+		int port;
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			port = server.getLocalPort();
+		}
+
+		assertThat(ReadinessProbe.hello(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 100))
+			.isFalse();
+	}
+
+	@Test
+	@DisabledOnOs(OS.WINDOWS)
+	void readyByLogMessage() throws IOException {
+		ProcessControl process = start("echo 'pid=1234 port=27017'; echo '[initandlisten] waiting for connections on port 27017'; sleep 30");
+		try {
+			RunningMongodProcess running = startedWith(process, 30_000, freePort());
+
+			assertThat(running).isInstanceOf(ReadinessProbe.ReadyMongodProcess.class);
+			assertThat(((ReadinessProbe.ReadyMongodProcess) running).readyBy()).isEqualTo("log");
+		}
+		finally {
+			process.stop(1000);
+		}
+	}
+
+	@Test
+	@DisabledOnOs(OS.WINDOWS)
+	void readyByHelloIfNothingIsLogged() throws IOException {
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			Thread replying = replyOnce(server);
+			ProcessControl process = start("sleep 30");
+			try {
+				RunningMongodProcess running = startedWith(process, 30_000, server.getLocalPort());
+
+				assertThat(((ReadinessProbe.ReadyMongodProcess) running).readyBy()).isEqualTo("hello");
+			}
+			finally {
+				process.stop(1000);
+				replying.interrupt();
+			}
+		}
+	}
+
+	@Test
+	@DisabledOnOs(OS.WINDOWS)
+	void failFastIfProcessDies() throws IOException {
+		ProcessControl process = start("echo 'something went wrong'; exit 3");
+		long started = System.nanoTime();
+
+		assertThatThrownBy(() -> startedWith(process, 30_000, freePort()))
+			.hasMessageContaining("process exited before it was ready")
+			.hasMessageContaining("something went wrong");
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(10_000);
+	}
+
+	private static RunningMongodProcess startedWith(ProcessControl process, long startTimeout, int port) {
+		Net net = Net.of(InetAddress.getLoopbackAddress().getHostAddress(), port, false);
+		return ReadinessProbe.factory(startTimeout, SupportConfig.generic(), null, net)
+			.startedWith(process, ProcessOutput.silent(), null, 1000);
+	}
+
+	private static ProcessControl start(String script) throws IOException {
+		return ProcessControl.fromCommandLine(SupportConfig.generic(), Arrays.asList("sh", "-c", script), false);
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			return server.getLocalPort();
+		}
+	}
+
+	private static Thread replyOnce(ServerSocket server) {
+		Thread thread = new Thread(() -> {
+			try (Socket socket = server.accept()) {
+				byte[] header = new byte[16];
+				DataInputStream in = new DataInputStream(socket.getInputStream());
+				in.readFully(header);
+				ByteBuffer request = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+				int length = request.getInt();
+				int requestId = request.getInt();
+				in.readFully(new byte[length - 16]);
+
+				ByteBuffer reply = ByteBuffer.allocate(21).order(ByteOrder.LITTLE_ENDIAN);
+				reply.putInt(21).putInt(1).putInt(requestId).putInt(2013).putInt(0).put((byte) 0);
+				socket.getOutputStream().write(reply.array());
+				socket.getOutputStream().flush();
+			}
+			catch (IOException ignore) {
+				// test is over
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+}
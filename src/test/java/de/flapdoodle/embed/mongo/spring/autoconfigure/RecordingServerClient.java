@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.client.model.IndexModel;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * {@link ServerClient} which records each command and answers it with the given function, other operations are not
+ * supported
+ */
+final class RecordingServerClient implements ServerClient {
+	private final List<Document> commands = new ArrayList<>();
+	private final Function<Document, Document> result;
+
+	RecordingServerClient(Function<Document, Document> result) {
+		this.result = result;
+	}
+
+	List<Document> commands() {
+		return commands;
+	}
+
+	@Override
+	public Document runCommand(String databaseName, Document command) {
+		commands.add(command);
+		return result.apply(command);
+	}
+
+	@Override
+	public void drop(String databaseName, String collectionName) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void insertMany(String databaseName, String collectionName, List<Document> documents) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void createIndexes(String databaseName, String collectionName, List<IndexModel> indexes) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() {
+	}
+}
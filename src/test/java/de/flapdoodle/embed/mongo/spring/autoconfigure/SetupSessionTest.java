@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.MongoCredential;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SetupSessionTest {
+
+	private static final ServerAddress SERVER_ADDRESS = ServerAddress.of("localhost", 27017);
+	private static final ServerAddress OTHER_SERVER_ADDRESS = ServerAddress.of("localhost", 27018);
+	private static final Optional<MongoCredential> ADMIN = Optional.of(MongoCredential.createCredential("admin", "admin", "pass".toCharArray()));
+
+	@Test
+	void openSessionSharesOneClientPerCredential() {
+		List<TestClient> created = new ArrayList<>();
+		SetupSession<TestClient> session = new SetupSession<>(TestClient.class);
+
+		session.open(SERVER_ADDRESS);
+		TestClient first = session.client(SERVER_ADDRESS, Optional.empty(), factory(created));
+		first.close();
+		TestClient second = session.client(SERVER_ADDRESS, Optional.empty(), factory(created));
+		session.client(SERVER_ADDRESS, ADMIN, factory(created)).close();
+		session.client(SERVER_ADDRESS, ADMIN, factory(created)).close();
+
+		assertThat(created).hasSize(2);
+		assertThat(first.id()).isEqualTo(second.id()).isEqualTo(0);
+		assertThat(created).noneMatch(TestClient::isClosed);
+
+		session.close(SERVER_ADDRESS);
+		assertThat(created).allMatch(TestClient::isClosed);
+	}
+
+	@Test
+	void newClientForEachCallWithoutOpenSession() {
+		List<TestClient> created = new ArrayList<>();
+		SetupSession<TestClient> session = new SetupSession<>(TestClient.class);
+
+		session.open(OTHER_SERVER_ADDRESS);
+		session.client(SERVER_ADDRESS, Optional.empty(), factory(created)).close();
+		session.client(SERVER_ADDRESS, Optional.empty(), factory(created)).close();
+
+		assertThat(created).hasSize(2).allMatch(TestClient::isClosed);
+	}
+
+	@Test
+	void unsharedSessionCreatesNewClientForEachCall() {
+		List<TestClient> created = new ArrayList<>();
+		SetupSession<TestClient> session = SetupSession.unshared();
+
+		session.open(SERVER_ADDRESS);
+		session.client(SERVER_ADDRESS, Optional.empty(), factory(created)).close();
+		session.client(SERVER_ADDRESS, Optional.empty(), factory(created)).close();
+		session.close(SERVER_ADDRESS);
+
+		assertThat(created).hasSize(2).allMatch(TestClient::isClosed);
+	}
+
+	private static Supplier<TestClient> factory(List<TestClient> created) {
+		return () -> {
+			TestClient client = new TestClient.Simple(created.size());
+			created.add(client);
+			return client;
+		};
+	}
+
+	interface TestClient extends Closeable {
+		int id();
+
+		boolean isClosed();
+
+		@Override
+		void close();
+
+		class Simple implements TestClient {
+			private final int id;
+			private boolean closed;
+
+			Simple(int id) {
+				this.id = id;
+			}
+
+			@Override
+			public int id() {
+				return id;
+			}
+
+			@Override
+			public boolean isClosed() {
+				return closed;
+			}
+
+			@Override
+			public void close() {
+				closed = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedMongoDatabaseFactoryTest {
+
+	@Test
+	void eachThreadStaysOnItsShard() {
+		try (MongoClient first = MongoClients.create("mongodb://localhost:27001");
+			MongoClient second = MongoClients.create("mongodb://localhost:27002")) {
+			ShardedMongoDatabaseFactory testee = new ShardedMongoDatabaseFactory(Arrays.asList(first, second), "test");
+
+			int mainShard = testee.shard();
+			assertThat(testee.shard()).isEqualTo(mainShard);
+			assertThat(testee.getMongoDatabase().getName()).isEqualTo("test");
+
+			int otherShard = CompletableFuture.supplyAsync(testee::shard).join();
+			int thirdShard = CompletableFuture.supplyAsync(testee::shard).join();
+
+			assertThat(Arrays.asList(mainShard, otherShard, thirdShard)).containsExactly(0, 1, 0);
+		}
+	}
+
+	@Test
+	void eachTestClassStaysOnItsShard() {
+		try (MongoClient first = MongoClients.create("mongodb://localhost:27001");
+			MongoClient second = MongoClients.create("mongodb://localhost:27002")) {
+			ShardedMongoDatabaseFactory testee = new ShardedMongoDatabaseFactory(Arrays.asList(first, second), "test");
+
+			testee.selectTestClass(String.class);
+			int stringShard = testee.shard();
+			testee.clearTestClass();
+
+			int otherThreadOfSameClass = CompletableFuture.supplyAsync(() -> {
+				testee.selectTestClass(String.class);
+				try {
+					return testee.shard();
+				}
+				finally {
+					testee.clearTestClass();
+				}
+			}).join();
+			int otherClass = CompletableFuture.supplyAsync(() -> {
+				testee.selectTestClass(Integer.class);
+				try {
+					return testee.shard();
+				}
+				finally {
+					testee.clearTestClass();
+				}
+			}).join();
+
+			assertThat(otherThreadOfSameClass).isEqualTo(stringShard);
+			assertThat(otherClass).isNotEqualTo(stringShard);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.Transitions;
+import de.flapdoodle.reverse.transitions.Derive;
+import de.flapdoodle.reverse.transitions.Start;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StandbyPoolTest {
+
+	@Test
+	void releasedStandbyIsHandedOutAgain() throws IOException {
+		InetAddress host = InetAddress.getLoopbackAddress();
+		Net net = Net.of(host.getHostAddress(), StandbyPool.port(host), false);
+		CountDownLatch stop = new CountDownLatch(1);
+		Transitions transitions = Transitions.from(
+			Start.to(Net.class).initializedWith(net),
+			Derive.given(Net.class).state(RunningMongodProcess.class).deriveBy(it -> {
+				try {
+					stop.await();
+				}
+				catch (InterruptedException ix) {
+					Thread.currentThread().interrupt();
+				}
+				throw new IllegalStateException("no server in this test");
+			}));
+
+		StandbyPool.replenish("key", transitions, net, 1, Collections::emptyList);
+		int reserved = StandbyPool.port(host);
+		assertThat(StandbyPool.port(host)).isNotEqualTo(reserved);
+
+		StandbyPool.release(reserved);
+		assertThat(StandbyPool.port(host)).isEqualTo(reserved);
+
+		stop.countDown();
+		assertThat(StandbyPool.take("key", reserved)).isEmpty();
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UsageReportTest {
+
+	@Test
+	void unusedIndexesAndCollectionsByTime() {
+		ServerClient client = new RecordingServerClient(command -> {
+			if (command.containsKey("top")) {
+				return Document.parse("{totals: {note: 'all times in microseconds',"
+					+ "'test.people': {readLock: {time: 2000, count: 4}, writeLock: {time: 1000, count: 2}},"
+					+ "'test.orders': {readLock: {time: 9000, count: 10}, writeLock: {time: 0, count: 0}}}}");
+			}
+			if (command.containsKey("listDatabases")) {
+				return Document.parse("{databases: [{name: 'admin'}, {name: 'test'}, {name: 'local'}]}");
+			}
+			if (command.containsKey("listCollections")) {
+				return Document.parse("{cursor: {firstBatch: [{name: 'people'}, {name: 'orders'}, {name: 'system.views'}]}}");
+			}
+			Document stage = command.getList("pipeline", Document.class).get(0);
+			if (stage.containsKey("$indexStats")) {
+				return "people".equals(command.getString("aggregate"))
+					? Document.parse("{cursor: {firstBatch: ["
+						+ "{name: '_id_', accesses: {ops: 0}},"
+						+ "{name: 'name_1', accesses: {ops: 0}},"
+						+ "{name: 'age_1', accesses: {ops: 3}}]}}")
+					: Document.parse("{cursor: {firstBatch: [{name: '_id_', accesses: {ops: 7}}]}}");
+			}
+			return Document.parse("{cursor: {firstBatch: [{storageStats: {wiredTiger: {cache: {'bytes read into cache': 4096}}}}]}}");
+		});
+
+		String report = UsageReport.render(UsageReport.collect(client));
+
+		assertThat(report).startsWith("unused indexes:\n  test.people: name_1\ncollections by time spent:\n");
+		assertThat(report.indexOf("test.orders")).isLessThan(report.indexOf("test.people", report.indexOf("collections")));
+		assertThat(report).contains("read      2ms (4 ops)  write      1ms (2 ops)  cache bytes read 4096")
+			.doesNotContain("system.views")
+			.doesNotContain("admin");
+	}
+
+	@Test
+	void oneSectionPerServer() {
+		Map<String, List<UsageReport.CollectionUsage>> usagesByServer = new LinkedHashMap<>();
+		usagesByServer.put("default", Collections.singletonList(new UsageReport.CollectionUsage("test.people", 0, 0, 0, 0, 0,
+			Collections.singletonList("name_1"))));
+		usagesByServer.put("shard-1", Collections.emptyList());
+
+		assertThat(UsageReport.render(usagesByServer))
+			.startsWith("server default:\n  unused indexes:\n    test.people: name_1\n")
+			.contains("server shard-1:\n  unused indexes:\n    none\n");
+		assertThat(UsageReport.render(Collections.singletonMap("default", Collections.<UsageReport.CollectionUsage>emptyList())))
+			.startsWith("unused indexes:\n  none\n");
+	}
+}
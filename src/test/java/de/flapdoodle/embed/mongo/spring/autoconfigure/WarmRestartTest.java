@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import com.mongodb.MongoCredential;
+import com.mongodb.MongoSecurityException;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.Indexes;
+import de.flapdoodle.embed.mongo.commands.MongoImportArguments;
+import de.flapdoodle.embed.mongo.commands.MongoRestoreArguments;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WarmRestartTest {
+
+	private static final ServerAddress SERVER_ADDRESS = ServerAddress.of("localhost", 27017);
+
+	@Test
+	void dataKeyChangesWithFixtureContentAndIndexes() {
+		Optional<String> key = WarmRestart.dataKey(Collections.emptyList(), Collections.emptyList(), Optional.empty(),
+			Collections.singletonList(fixture("{name: 'Susi'}", Collections.emptyList())));
+
+		assertThat(key).isPresent();
+		assertThat(WarmRestart.dataKey(Collections.emptyList(), Collections.emptyList(), Optional.empty(),
+			Collections.singletonList(fixture("{name: 'Susi'}", Collections.emptyList()))))
+			.isEqualTo(key);
+		assertThat(WarmRestart.dataKey(Collections.emptyList(), Collections.emptyList(), Optional.empty(),
+			Collections.singletonList(fixture("{name: 'Klaus'}", Collections.emptyList()))))
+			.isPresent().isNotEqualTo(key);
+		assertThat(WarmRestart.dataKey(Collections.emptyList(), Collections.emptyList(), Optional.empty(),
+			Collections.singletonList(fixture("{name: 'Susi'}", Collections.singletonList(new IndexModel(Indexes.ascending("name")))))))
+			.isPresent().isNotEqualTo(key);
+	}
+
+	@Test
+	void dataKeyFollowsDumpContent(@TempDir Path tempDir) throws IOException {
+		Path dump = Files.createDirectories(tempDir.resolve("dump").resolve("test"));
+		Files.write(dump.resolve("people.bson"), "one".getBytes(StandardCharsets.UTF_8));
+		List<MongoRestoreArguments> restore = Collections.singletonList(MongoRestoreArguments.builder()
+			.dir(tempDir.resolve("dump").toString())
+			.build());
+
+		Optional<String> key = WarmRestart.dataKey(restore, Collections.emptyList(), Optional.empty(), Collections.emptyList());
+		assertThat(key).isPresent();
+
+		Files.write(dump.resolve("people.bson"), "two".getBytes(StandardCharsets.UTF_8));
+		assertThat(WarmRestart.dataKey(restore, Collections.emptyList(), Optional.empty(), Collections.emptyList()))
+			.isPresent().isNotEqualTo(key);
+	}
+
+	@Test
+	void noDataKeyIfNothingToLoadOrSourceIsMissing(@TempDir Path tempDir) {
+		assertThat(WarmRestart.dataKey(Collections.emptyList(), Collections.emptyList(), Optional.empty(), Collections.emptyList()))
+			.isEmpty();
+		assertThat(WarmRestart.dataKey(Collections.singletonList(MongoRestoreArguments.builder()
+			.archive(tempDir.resolve("missing.archive").toString())
+			.build()), Collections.emptyList(), Optional.empty(), Collections.emptyList()))
+			.isEmpty();
+	}
+
+	@Test
+	void dataKeyFollowsImportKey() {
+		List<MongoImportArguments> imports = Collections.singletonList(MongoImportArguments.builder()
+			.databaseName("test")
+			.collectionName("people")
+			.importFile("people.json")
+			.build());
+
+		assertThat(WarmRestart.dataKey(Collections.emptyList(), imports, Optional.empty(), Collections.emptyList()))
+			.describedAs("imports which can not be hashed")
+			.isEmpty();
+
+		Optional<String> key = WarmRestart.dataKey(Collections.emptyList(), imports, Optional.of("first"), Collections.emptyList());
+		assertThat(key).isPresent();
+		assertThat(WarmRestart.dataKey(Collections.emptyList(), imports, Optional.of("second"), Collections.emptyList()))
+			.isPresent().isNotEqualTo(key);
+	}
+
+	@Test
+	void loadedDataKeyIsReadFromMarkerInDatabaseDir(@TempDir Path tempDir) {
+		Path marker = tempDir.resolve(WarmRestart.DATA_MARKER);
+		assertThat(WarmRestart.loadedDataKey(marker, () -> true)).isEmpty();
+
+		WarmRestart.markLoaded(marker, "abc", false);
+		assertThat(WarmRestart.loadedDataKey(marker, () -> {
+			throw new AssertionError("database without collections after loading is not checked");
+		})).contains("abc");
+
+		WarmRestart.markLoaded(marker, "abc", true);
+		assertThat(WarmRestart.loadedDataKey(marker, () -> true)).contains("abc");
+		assertThat(WarmRestart.loadedDataKey(marker, () -> false))
+			.describedAs("dropped database")
+			.isEmpty();
+	}
+
+	@Test
+	void hasCollectionsListsApplicationDatabase() {
+		RecordingServerClient client = new RecordingServerClient(command ->
+			Document.parse("{cursor: {firstBatch: [{name: 'people', type: 'collection'}]}}"));
+
+		assertThat(WarmRestart.hasCollections(address -> client, SERVER_ADDRESS, "test"))
+			.isTrue();
+		assertThat(client.commands()).containsExactly(Document.parse("{listCollections: 1, nameOnly: true}"));
+
+		assertThat(WarmRestart.hasCollections(address -> new RecordingServerClient(command -> Document.parse("{cursor: {firstBatch: []}}")),
+			SERVER_ADDRESS, "test"))
+			.isFalse();
+	}
+
+	@Test
+	void userCanNotAuthenticateBeforeSetup() {
+		assertThat(WarmRestart.canAuthenticate(address -> new RecordingServerClient(command -> new Document("ok", 1)), SERVER_ADDRESS))
+			.isTrue();
+		assertThat(WarmRestart.canAuthenticate(address -> new RecordingServerClient(command -> {
+			throw new MongoSecurityException(MongoCredential.createCredential("user", "test", "pass".toCharArray()), "auth failed");
+		}), SERVER_ADDRESS))
+			.isFalse();
+	}
+
+	private static CollectionFixture fixture(String document, List<IndexModel> indexes) {
+		return CollectionFixture.builder()
+			.databaseName("test")
+			.collectionName("people")
+			.source(() -> new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)))
+			.indexes(indexes)
+			.build();
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WorkloadTest {
+
+	@Test
+	void operationMixFollowsProportions() {
+		Workload workload = Workload.builder()
+			.readProportion(0.7)
+			.updateProportion(0.1)
+			.insertProportion(0.1)
+			.aggregateProportion(0.1)
+			.build();
+
+		SplittableRandom random = new SplittableRandom(1);
+		Map<Workload.Operation, Integer> counts = new EnumMap<>(Workload.Operation.class);
+		for (int i = 0; i < 100_000; i++) {
+			counts.merge(workload.operation(random.nextDouble()), 1, Integer::sum);
+		}
+
+		assertThat(counts.get(Workload.Operation.READ)).isBetween(69_000, 71_000);
+		assertThat(counts.get(Workload.Operation.UPDATE)).isBetween(9_500, 10_500);
+		assertThat(counts.get(Workload.Operation.INSERT)).isBetween(9_500, 10_500);
+		assertThat(counts.get(Workload.Operation.AGGREGATE)).isBetween(9_500, 10_500);
+	}
+
+	@Test
+	void roundingNeverChoosesOperationWithoutProportion() {
+		Workload workload = Workload.builder()
+			.readProportion(0.1)
+			.updateProportion(0.2)
+			.insertProportion(0.7)
+			.aggregateProportion(0)
+			.build();
+
+		assertThat(workload.operation(Math.nextDown(1.0))).isEqualTo(Workload.Operation.INSERT);
+	}
+
+	@Test
+	void invalidWorkloadsAreRejected() {
+		assertThatThrownBy(() -> Workload.builder().readProportion(0).updateProportion(0).build())
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Workload.builder().threads(0).build())
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void sameSeedChoosesSameKeys() {
+		KeyGenerator keys = new KeyGenerator(Workload.KeyDistribution.ZIPFIAN, new AtomicLong(1000));
+
+		assertThat(sample(keys, 7)).containsExactly(sample(keys, 7));
+	}
+
+	@Test
+	void zipfianKeysAreSkewed() {
+		long[] hits = new long[1000];
+		KeyGenerator keys = new KeyGenerator(Workload.KeyDistribution.ZIPFIAN, new AtomicLong(hits.length));
+		SplittableRandom random = new SplittableRandom(1);
+		for (int i = 0; i < 100_000; i++) {
+			long key = keys.next(random);
+			assertThat(key).isBetween(0L, 999L);
+			hits[(int) key]++;
+		}
+
+		long top10 = LongStream.of(hits).map(it -> -it).sorted().limit(10).map(it -> -it).sum();
+		// uniform would be 1000
+		assertThat(top10).isGreaterThan(20_000);
+	}
+
+	@Test
+	void latestPrefersNewKeys() {
+		AtomicLong keyCount = new AtomicLong(1000);
+		KeyGenerator keys = new KeyGenerator(Workload.KeyDistribution.LATEST, keyCount);
+		keyCount.set(2000);
+
+		SplittableRandom random = new SplittableRandom(1);
+		long recent = 0;
+		for (int i = 0; i < 10_000; i++) {
+			if (keys.next(random) >= 1900) {
+				recent++;
+			}
+		}
+		assertThat(recent).isGreaterThan(5_000);
+	}
+
+	private static long[] sample(KeyGenerator keys, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		return LongStream.range(0, 100).map(it -> keys.next(random)).toArray();
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure.simple;
+
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.Indexes;
+import de.flapdoodle.embed.mongo.spring.autoconfigure.CollectionFixture;
+import de.flapdoodle.embed.mongo.spring.autoconfigure.FixtureSource;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataMongoTest()
+@ExtendWith(SpringExtension.class)
+@Import(CollectionFixtureTest.Config.class)
+public class CollectionFixtureTest {
+	@Test
+	void example(@Autowired final MongoTemplate mongoTemplate) {
+		ArrayList<Document> first = mongoTemplate.getDb()
+			.getCollection("first")
+			.find()
+			.into(new ArrayList<>());
+
+		assertThat(first).hasSize(3)
+			.anyMatch(doc -> doc.get("name", String.class).equals("Cassandra"));
+
+		ArrayList<Document> third = mongoTemplate.getDb()
+			.getCollection("third")
+			.find()
+			.into(new ArrayList<>());
+
+		assertThat(third).hasSize(2)
+			.anyMatch(doc -> doc.get("name", String.class).equals("Klaus"));
+
+		ArrayList<Document> indexes = mongoTemplate.getDb()
+			.getCollection("third")
+			.listIndexes()
+			.into(new ArrayList<>());
+
+		assertThat(indexes)
+			.anyMatch(index -> index.get("name", String.class).equals("name_1_age_-1"));
+	}
+
+	static class Config {
+		@Bean
+		public List<CollectionFixture> collectionFixtures() {
+			return Arrays.asList(CollectionFixture.builder()
+					.databaseName("test")
+					.collectionName("first")
+					.source(FixtureSource.classpath("first.json"))
+					.build(),
+				CollectionFixture.builder()
+					.databaseName("test")
+					.collectionName("third")
+					.source(FixtureSource.classpath("third.json.gz"))
+					.addIndexes(new IndexModel(Indexes.compoundIndex(Indexes.ascending("name"), Indexes.descending("age"))))
+					.build());
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure.simple;
+
+import de.flapdoodle.embed.mongo.spring.autoconfigure.ExplainPlans;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataMongoTest()
+@TestPropertySource(properties = "de.flapdoodle.mongodb.embedded.explain.enabled=true")
+@ExtendWith(SpringExtension.class)
+public class ExplainPlansTest {
+
+	@Test
+	void findCollectionScan(@Autowired MongoTemplate mongoTemplate, @Autowired ExplainPlans explainPlans) {
+		mongoTemplate.insert(IntStream.range(0, 100)
+			.mapToObj(i -> new Document("name", "name" + i).append("age", i))
+			.collect(Collectors.toList()), "explained");
+		mongoTemplate.indexOps("explained").createIndex(new Index().on("age", Sort.Direction.ASC));
+
+		mongoTemplate.find(Query.query(Criteria.where("age").is(42)), Document.class, "explained");
+		assertThat(explainPlans.check()).isEmpty();
+
+		mongoTemplate.find(Query.query(Criteria.where("name").is("name42")), Document.class, "explained");
+		assertThat(explainPlans.check())
+			.singleElement()
+			.asString()
+			.contains("COLLSCAN", "docsExamined/nReturned 100/1");
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure.simple;
+
+import de.flapdoodle.embed.mongo.spring.autoconfigure.EmbeddedMongoMetrics;
+import de.flapdoodle.embed.mongo.spring.autoconfigure.MongodProcessMetrics;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.data.mongo.AutoConfigureDataMongo;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@AutoConfigureDataMongo
+@SpringBootTest(
+	properties = {
+		"de.flapdoodle.mongodb.embedded.metrics.enabled=true",
+		"de.flapdoodle.mongodb.embedded.instances.analytics.database=reports",
+		"de.flapdoodle.mongodb.embedded.sharding.enabled=true",
+		"de.flapdoodle.mongodb.embedded.sharding.instances=2"
+	}
+)
+@EnableAutoConfiguration()
+@DirtiesContext
+public class MetricsTest {
+
+	@Test
+	void metersForEachServer(@Autowired EmbeddedMongoMetrics metrics, @Autowired MongodProcessMetrics processMetrics) {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		metrics.bindTo(registry);
+		processMetrics.bindTo(registry);
+
+		for (String instance : new String[] { "default", "analytics", "shard-1" }) {
+			assertThat(registry.find("embedded.mongodb.connections.current").tag("instance", instance).gauge())
+				.describedAs("connections of %s", instance)
+				.isNotNull()
+				.satisfies(gauge -> assertThat(gauge.value()).isPositive());
+			assertThat(registry.find("embedded.mongodb.process.threads").tag("instance", instance).meter())
+				.describedAs("process threads of %s", instance)
+				.isNotNull();
+		}
+
+		assertThat(registry.find("embedded.mongodb.connections.current").meters())
+			.extracting(meter -> meter.getId().getTag("port"))
+			.doesNotHaveDuplicates()
+			.hasSize(3);
+	}
+}
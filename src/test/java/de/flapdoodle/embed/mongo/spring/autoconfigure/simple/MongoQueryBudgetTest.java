@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure.simple;
+
+import de.flapdoodle.embed.mongo.spring.autoconfigure.MongoQueryBudget;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataMongoTest()
+@ExtendWith(SpringExtension.class)
+public class MongoQueryBudgetTest {
+
+	@Test
+	@MongoQueryBudget(maxCommands = 2, maxRoundTrips = 2, maxTotalTimeMs = 1000, maxOperationTimeMs = 1000)
+	void insertAndQueryWithinBudget(@Autowired MongoTemplate mongoTemplate) {
+		mongoTemplate.insert(Arrays.asList(new Document("name", "Klaus"), new Document("name", "Susi")), "budget");
+
+		assertThat(mongoTemplate.find(Query.query(Criteria.where("name").is("Susi")), Document.class, "budget"))
+			.hasSize(1);
+	}
+}
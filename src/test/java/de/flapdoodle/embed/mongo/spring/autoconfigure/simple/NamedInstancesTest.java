@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure.simple;
+
+import de.flapdoodle.embed.mongo.commands.MongoImportArguments;
+import de.flapdoodle.embed.mongo.spring.autoconfigure.CollectionFixture;
+import de.flapdoodle.embed.mongo.spring.autoconfigure.FixtureSource;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.data.mongo.AutoConfigureDataMongo;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@AutoConfigureDataMongo
+@SpringBootTest(
+	properties = {
+		"de.flapdoodle.mongodb.embedded.instances.analytics.database=reports",
+		"de.flapdoodle.mongodb.embedded.instances.archive.version=5.0.5"
+	}
+)
+@EnableAutoConfiguration()
+@Import(NamedInstancesTest.Config.class)
+@DirtiesContext
+public class NamedInstancesTest {
+
+	@Test
+	void eachInstanceIsSeparated(
+		@Autowired MongoTemplate mongoTemplate,
+		@Autowired @Qualifier("analytics") MongoTemplate analyticsTemplate,
+		@Autowired @Qualifier("archive") MongoTemplate archiveTemplate
+	) {
+		assertThat(analyticsTemplate.getDb().getName()).isEqualTo("reports");
+
+		assertThat(analyticsTemplate.getCollection("first").find().into(new ArrayList<>()))
+			.hasSize(3);
+		assertThat(mongoTemplate.collectionExists("first")).isFalse();
+		assertThat(archiveTemplate.collectionExists("first")).isFalse();
+
+		assertThat(archiveTemplate.getCollection("second").countDocuments()).isEqualTo(2);
+		assertThat(mongoTemplate.collectionExists("second")).isFalse();
+
+		archiveTemplate.getCollection("moved").insertOne(new Document("name", "Klaus"));
+		assertThat(mongoTemplate.collectionExists("moved")).isFalse();
+		assertThat(archiveTemplate.getCollection("moved").countDocuments()).isEqualTo(1);
+	}
+
+	static class Config {
+		@Bean
+		public List<CollectionFixture> collectionFixtures() {
+			return Collections.singletonList(CollectionFixture.builder()
+				.instance("analytics")
+				.databaseName("reports")
+				.collectionName("first")
+				.source(FixtureSource.classpath("first.json"))
+				.build());
+		}
+
+		@Bean(defaultCandidate = false)
+		@Qualifier("archive")
+		public List<MongoImportArguments> archiveImportArguments() {
+			return Collections.singletonList(MongoImportArguments.builder()
+				.databaseName("test")
+				.collectionName("second")
+				.importFile(NamedInstancesTest.class.getResource("/second.json").getFile())
+				.isJsonArray(true)
+				.build());
+		}
+	}
+}
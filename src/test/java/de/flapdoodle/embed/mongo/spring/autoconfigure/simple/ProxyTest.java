@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure.simple;
+
+import de.flapdoodle.embed.mongo.config.Net;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataMongoTest(
+	properties = {
+		"de.flapdoodle.mongodb.embedded.proxy.enabled=true",
+		"de.flapdoodle.mongodb.embedded.proxy.latency=20ms"
+	}
+)
+@ExtendWith(SpringExtension.class)
+public class ProxyTest {
+
+	@Test
+	void clientIsConnectedThroughProxy(@Autowired MongoTemplate mongoTemplate, @Autowired Net net, @Autowired MongoProperties properties) {
+		assertThat(properties.getPort()).isNotEqualTo(net.getPort());
+
+		mongoTemplate.executeCommand(new Document("ping", 1));
+
+		long start = System.nanoTime();
+		mongoTemplate.executeCommand(new Document("ping", 1));
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(40));
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure.simple;
+
+import de.flapdoodle.embed.mongo.spring.autoconfigure.UsageReport;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataMongoTest()
+@TestPropertySource(properties = {
+	"de.flapdoodle.mongodb.embedded.report.enabled=true",
+	"de.flapdoodle.mongodb.embedded.report.file=target/usage-report/UsageReportTest.txt"
+})
+@ExtendWith(SpringExtension.class)
+public class UsageReportTest {
+
+	@Test
+	void reportUnusedIndex(@Autowired MongoTemplate mongoTemplate, @Autowired UsageReport usageReport) throws IOException {
+		mongoTemplate.insert(new Document("name", "Klaus").append("age", 42), "reported");
+		mongoTemplate.indexOps("reported").createIndex(new Index().on("age", Sort.Direction.ASC));
+
+		usageReport.write();
+
+		Path file = Paths.get("target", "usage-report", "UsageReportTest.txt");
+		assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+			.contains("test.reported: age_1");
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	...
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.spring.autoconfigure.simple;
+
+import de.flapdoodle.embed.mongo.spring.autoconfigure.Workload;
+import de.flapdoodle.embed.mongo.spring.autoconfigure.WorkloadGenerator;
+import de.flapdoodle.embed.mongo.spring.autoconfigure.WorkloadResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataMongoTest()
+@ExtendWith(SpringExtension.class)
+public class WorkloadGeneratorTest {
+
+	@Test
+	void mixedWorkload(@Autowired final MongoTemplate mongoTemplate) {
+		Workload workload = Workload.builder()
+			.recordCount(500)
+			.operationCount(2000)
+			.readProportion(0.5)
+			.updateProportion(0.3)
+			.insertProportion(0.1)
+			.aggregateProportion(0.1)
+			.keyDistribution(Workload.KeyDistribution.ZIPFIAN)
+			.threads(4)
+			.targetOpsPerSecond(4000)
+			.build();
+
+		WorkloadGenerator generator = WorkloadGenerator.of(mongoTemplate);
+		generator.load(workload);
+		WorkloadResult result = generator.run(workload);
+
+		assertThat(result.operations()).isEqualTo(2000);
+		assertThat(result.latencies()).containsKeys(Workload.Operation.values());
+		assertThat(mongoTemplate.getCollection("workload").countDocuments())
+			.isEqualTo(500 + result.latencies().get(Workload.Operation.INSERT).getTotalCount());
+	}
+}